@@ -0,0 +1,203 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * ArrayChain.java
+ * A chain of a HashTable which keeps its values in an array, next to an array of their hash codes, instead of
+ * in one node per value like SimpleList. A lookup walks the hash codes, which lie next to each other in memory,
+ * and only calls equals() on a value whose hash code matches, and adding a value only allocates when the arrays
+ * are full. The arrays start with room for 2 values, chains of a HashTable hold 1.2 values on average.
+ * The values stay in the order they were added, removal shifts the following values down.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class ArrayChain<T> implements Bucket<T> {
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    private Object[] values;
+    private int[] hashes; //hashes[i] == values[i].hashCode()
+    private int size;
+    private int probes; //values the last find() compared
+
+    /**
+     * Create an empty chain
+     */
+    public ArrayChain() {
+        this.values = new Object[INITIAL_CAPACITY];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Add the value at the end of the chain
+     * @param value the value
+     */
+    public void add(T value) {
+        add(value, value.hashCode());
+    }
+
+    @Override
+    public void add(T value, int hash) {
+        // O(1) amortized
+        if (this.size == this.values.length) {
+            int capacity = 2 * this.size;
+            this.values = java.util.Arrays.copyOf(this.values, capacity);
+            this.hashes = java.util.Arrays.copyOf(this.hashes, capacity);
+        }
+        this.values[this.size] = value;
+        this.hashes[this.size] = hash;
+        this.size++;
+    }
+
+    /**
+     * @return int, the index of the first value equal to value, -1 if there is none
+     */
+    private int find(Object value, int hash) {
+        // O(N) where N is the number of values returned by size()
+        int[] h = this.hashes;
+        for (int i = 0; i < this.size; i++) {
+            if (h[i] == hash && this.values[i].equals(value)) {
+                this.probes = i + 1;
+                return i;
+            }
+        }
+        this.probes = this.size;
+        return -1;
+    }
+
+    /**
+     * Remove the first value equal to value
+     * @param value value we are looking for
+     * @return boolean, true if a value was removed
+     */
+    public boolean remove(T value) {
+        return remove(value, value.hashCode());
+    }
+
+    @Override
+    public boolean remove(T value, int hash) {
+        // O(N)
+        int i = find(value, hash);
+        if (i < 0) {
+            return false;
+        }
+        int moved = this.size - i - 1;
+        System.arraycopy(this.values, i + 1, this.values, i, moved);
+        System.arraycopy(this.hashes, i + 1, this.hashes, i, moved);
+        this.size--;
+        this.values[this.size] = null; //let the value be collected
+        return true;
+    }
+
+    /**
+     * @param value value we are looking for
+     * @return int, the index (0 to size-1) of the first value equal to value, -1 if there is none
+     */
+    public int indexOf(T value) {
+        return find(value, value.hashCode());
+    }
+
+    /**
+     * @param value value we are looking for
+     * @return boolean, true if a value equal to value is in the chain
+     */
+    public boolean contains(T value) {
+        return find(value, value.hashCode()) >= 0;
+    }
+
+    @Override
+    public boolean contains(T value, int hash) {
+        // O(N)
+        return find(value, hash) >= 0;
+    }
+
+    /**
+     * @param value value we are looking for
+     * @return T, the value IN THE CHAIN which is equal to value, or null if there is none
+     */
+    public T get(T value) {
+        return get(value, value.hashCode());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(T value, int hash) {
+        // O(N)
+        int i = find(value, hash);
+        return (i < 0) ? null : (T)this.values[i];
+    }
+
+    @Override
+    public int probes() {
+        // O(1)
+        return this.probes;
+    }
+
+    @Override
+    public int size() {
+        // O(1)
+        return this.size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return this.next < ArrayChain.this.size;
+            }
+
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (this.next >= ArrayChain.this.size) {
+                    throw new NoSuchElementException();
+                }
+                return (T)ArrayChain.this.values[this.next++];
+            }
+        };
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        ArrayChain<Integer> ilist = new ArrayChain<>();
+        ilist.add(11);
+        ilist.add(20);
+        ilist.add(5);
+        if (ilist.size() == 3 && ilist.contains(5) && !ilist.contains(2) && ilist.indexOf(20) == 1
+                && ilist.get(20).equals(20) && ilist.get(16) == null) {
+            System.out.println("Yay 1");
+        }
+
+        // removing keeps the order, the freed end of the array is reused
+        if (!ilist.remove(16) && ilist.remove(11) && !ilist.contains(11) && ilist.indexOf(5) == 1) {
+            ilist.add(7);
+            Iterator<Integer> iter = ilist.iterator();
+            if (iter.next() == 20 && iter.next() == 5 && iter.next() == 7 && !iter.hasNext()) {
+                System.out.println("Yay 2");
+            }
+        }
+
+        // values with equal hash codes are told apart by equals()
+        ArrayChain<String> words = new ArrayChain<>();
+        words.add("Aa");
+        words.add("BB"); //"Aa".hashCode() == "BB".hashCode()
+        boolean thrown = false;
+        try {
+            new ArrayChain<String>().iterator().next();
+        }
+        catch (NoSuchElementException e) {
+            thrown = true;
+        }
+        if (thrown && words.get("BB", "BB".hashCode()).equals("BB") && words.remove("Aa", "Aa".hashCode())
+                && words.contains("BB") && words.size() == 1 && new ArrayChain<String>().get("x") == null) {
+            System.out.println("Yay 3");
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/**
+ * BitBoard.java
+ * A dense board storage which keeps one bit per cell in two bitplanes: one for trees and one for tents.
+ * Every row of a plane starts on a new long, so the neighbors of a cell in one row are found
+ * by masking (at most) two neighboring words instead of probing a hash table once per cell.
+ * The padding bits after the last column of a row are always 0.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class BitBoard implements BoardStorage {
+
+    // 3-bit patterns over the columns <col-1, col, col+1> of one row
+    private static final int CENTER = 2;
+    private static final int SIDES = 5;
+    private static final int ALL = 7;
+
+    private final int numRows, numCols;
+    private final int words; //number of longs in one row of a plane
+    private final long[] trees; //tree bitplane
+    private final long[] tents; //tent bitplane
+    private int size; //number of occupied cells
+
+    /**
+     * Create an empty bitboard
+     * @param numRows number of rows of the board
+     * @param numCols number of columns of the board
+     */
+    public BitBoard(int numRows, int numCols) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.words = (numCols + 63) >>> 6;
+        if ((long)numRows * this.words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("board is too large for a bitboard: " + numRows + "x" + numCols);
+        }
+        this.trees = new long[numRows * this.words];
+        this.tents = new long[numRows * this.words];
+        this.size = 0;
+    }
+
+    /**
+     * Create a bitboard holding the given bitplanes, used to load a board without adding its cells one by one
+     * @param numRows number of rows of the board
+     * @param numCols number of columns of the board
+     * @param trees the tree bitplane, every row starts on a new long and the padding bits are 0
+     * @param tents the tent bitplane, in the same layout
+     * @throws IllegalArgumentException if the planes do not have that layout or a cell is in both planes
+     */
+    public BitBoard(int numRows, int numCols, long[] trees, long[] tents) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.words = (numCols + 63) >>> 6;
+        if (trees.length != (long)numRows * this.words || tents.length != trees.length) {
+            throw new IllegalArgumentException("bitplanes do not match a " + numRows + "x" + numCols + " board");
+        }
+        long padding = (numCols & 63) == 0 ? 0 : -1L << (numCols & 63); //bits past the last column
+        for (int i = 0; i < trees.length; i++) {
+            if ((trees[i] & tents[i]) != 0) {
+                throw new IllegalArgumentException("a cell holds both a tree and a tent");
+            }
+            if (i % this.words == this.words - 1 && ((trees[i] | tents[i]) & padding) != 0) {
+                throw new IllegalArgumentException("a cell is past the last column");
+            }
+            this.size += Long.bitCount(trees[i]) + Long.bitCount(tents[i]);
+        }
+        this.trees = trees;
+        this.tents = tents;
+    }
+
+    /**
+     * Check whether the board is small enough to be stored in a bitboard
+     * @param numRows number of rows of the board
+     * @param numCols number of columns of the board
+     * @return boolean, true if the planes can be allocated
+     */
+    public static boolean fits(int numRows, int numCols) {
+        return (long)numRows * ((numCols + 63) >>> 6) <= Integer.MAX_VALUE;
+    }
+
+    public Kind kind() {
+        return Kind.BITBOARD;
+    }
+
+    /**
+     * @param code TREE or TENT
+     * @return the bitplane holding the code, null for any other code
+     */
+    private long[] plane(byte code) {
+        if (code == TREE) {
+            return this.trees;
+        }
+        else if (code == TENT) {
+            return this.tents;
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * @return boolean, true if <row, col> is on the board
+     */
+    private boolean onBoard(int row, int col) {
+        return row >= 0 && row < this.numRows && col >= 0 && col < this.numCols;
+    }
+
+    public byte get(int row, int col) {
+        // O(1)
+        if (!onBoard(row, col)) {
+            return EMPTY;
+        }
+        int i = row * this.words + (col >>> 6);
+        long bit = 1L << col; //shifts only use the low 6 bits of col
+        if ((this.trees[i] & bit) != 0) {
+            return TREE;
+        }
+        else if ((this.tents[i] & bit) != 0) {
+            return TENT;
+        }
+        else {
+            return EMPTY;
+        }
+    }
+
+    public boolean add(int row, int col, byte code) {
+        // O(1)
+        long[] plane = plane(code);
+        if (plane == null) {
+            throw new IllegalArgumentException("cannot store symbol code " + code);
+        }
+        if (!onBoard(row, col)) {
+            throw new IndexOutOfBoundsException("<" + row + "," + col + "> is not on the board");
+        }
+        int i = row * this.words + (col >>> 6);
+        long bit = 1L << col;
+        if (((this.trees[i] | this.tents[i]) & bit) != 0) { //the cell is already occupied
+            return false;
+        }
+        plane[i] |= bit;
+        this.size++;
+        return true;
+    }
+
+    public boolean remove(int row, int col) {
+        // O(1)
+        if (!onBoard(row, col)) {
+            return false;
+        }
+        int i = row * this.words + (col >>> 6);
+        long bit = 1L << col;
+        if (((this.trees[i] | this.tents[i]) & bit) == 0) {
+            return false;
+        }
+        this.trees[i] &= ~bit;
+        this.tents[i] &= ~bit;
+        this.size--;
+        return true;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Test the columns <col-1, col, col+1> of one row of a plane against a 3-bit pattern.
+     * The word holding col is masked in one operation, the neighboring word is only read
+     * when col-1 or col+1 crosses a word boundary.
+     * @param plane the bitplane to test
+     * @param row row to test, rows off the board never match
+     * @param col the middle column, must be on the board
+     * @param pattern bit 0 selects col-1, bit 1 selects col, bit 2 selects col+1
+     * @return boolean, true if any selected cell is set
+     */
+    private boolean test(long[] plane, int row, int col, int pattern) {
+        if (row < 0 || row >= this.numRows) {
+            return false;
+        }
+        int w = col >>> 6;
+        int b = col & 63;
+        int i = row * this.words + w;
+        long mask = (b == 0) ? (pattern >>> 1) : ((long)pattern << (b - 1));
+        if ((plane[i] & mask) != 0) {
+            return true;
+        }
+        if (b == 0 && (pattern & 1) != 0 && w > 0 && plane[i - 1] < 0) { //col-1 is the top bit of the previous word
+            return true;
+        }
+        if (b == 63 && (pattern & 4) != 0 && w + 1 < this.words && (plane[i + 1] & 1L) != 0) { //col+1 is bit 0 of the next word
+            return true;
+        }
+        return false;
+    }
+
+    public boolean hasNbr(int row, int col, byte code) {
+        // O(1), 3 masked word tests
+        long[] plane = plane(code);
+        if (plane == null || !onBoard(row, col)) {
+            return false;
+        }
+        return test(plane, row - 1, col, CENTER) || test(plane, row, col, SIDES) || test(plane, row + 1, col, CENTER);
+    }
+
+    public boolean touching(int row, int col, byte code) {
+        // O(1), 3 masked word tests
+        long[] plane = plane(code);
+        if (plane == null || !onBoard(row, col)) {
+            return false;
+        }
+        return test(plane, row - 1, col, ALL) || test(plane, row, col, SIDES) || test(plane, row + 1, col, ALL);
+    }
+
+    /**
+     * @return long, word i of the plane shifted so that bit b tells whether column 64w+b-1 is set
+     */
+    private long left(long[] plane, int i, int w) {
+        return (plane[i] << 1) | (w > 0 ? plane[i - 1] >>> 63 : 0);
+    }
+
+    /**
+     * @return long, word i of the plane shifted so that bit b tells whether column 64w+b+1 is set
+     */
+    private long right(long[] plane, int i, int w) {
+        return (plane[i] >>> 1) | (w + 1 < this.words ? plane[i + 1] << 63 : 0);
+    }
+
+    /**
+     * @return long, the cells of word i (in row row, column word w) with a set orthogonal neighbor in the plane
+     */
+    private long nbrs(long[] plane, int row, int i, int w) {
+        long up = (row > 0) ? plane[i - this.words] : 0;
+        long down = (row + 1 < this.numRows) ? plane[i + this.words] : 0;
+        return up | down | left(plane, i, w) | right(plane, i, w);
+    }
+
+    /**
+     * Mark every cell with a neighbor holding the code, 64 cells at a time. Whether the rows above and below
+     * exist is checked once per row, and the diagonal neighbors are the left and right shifts of those rows.
+     * @param code TREE or TENT
+     * @param diagonals false for the 4 orthogonal neighbors (like hasNbr()), true for all 8 (like touching())
+     * @return long[], a plane in the layout of the bitplanes with its padding bits 0, empty for any other code
+     */
+    long[] nbrPlane(byte code, boolean diagonals) {
+        // O(R*C/64)
+        long[] plane = plane(code);
+        long[] marked = new long[this.trees.length];
+        if (plane == null) {
+            return marked;
+        }
+        long last = (this.numCols & 63) == 0 ? -1L : ~(-1L << (this.numCols & 63)); //columns of the last word
+        for (int row = 0; row < this.numRows; row++) {
+            int up = (row > 0) ? -this.words : 0, down = (row + 1 < this.numRows) ? this.words : 0; //0 if missing
+            int base = row * this.words;
+            long before = 0; //the rows above and below in word w-1
+            long vertical = (up != 0 ? plane[base + up] : 0) | (down != 0 ? plane[base + down] : 0);
+            for (int w = 0; w < this.words; w++) {
+                int i = base + w;
+                long after = 0;
+                if (w + 1 < this.words) {
+                    after = (up != 0 ? plane[i + 1 + up] : 0) | (down != 0 ? plane[i + 1 + down] : 0);
+                }
+                long m = vertical | left(plane, i, w) | right(plane, i, w);
+                if (diagonals) {
+                    m |= (vertical << 1) | (before >>> 63) | (vertical >>> 1) | (after << 63);
+                }
+                marked[i] = (w + 1 == this.words) ? m & last : m;
+                before = vertical;
+                vertical = after;
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Count what TentTree keeps its status counters of, 64 cells at a time instead of probing
+     * the neighbors of every cell. Shifted bits past the last column meet only 0 padding bits.
+     * @return int[], the number of trees, tents, pairs of touching tents, tents without an orthogonal tree
+     * and trees without an orthogonal tent
+     */
+    int[] statusCounts() {
+        // O(R*C/64)
+        long numTrees = 0, numTents = 0, touching = 0, orphans = 0, lonely = 0;
+        for (int row = 0; row < this.numRows; row++) {
+            for (int w = 0; w < this.words; w++) {
+                int i = row * this.words + w;
+                long tree = this.trees[i], tent = this.tents[i];
+                numTrees += Long.bitCount(tree);
+                numTents += Long.bitCount(tent);
+                lonely += Long.bitCount(tree & ~nbrs(this.tents, row, i, w));
+                orphans += Long.bitCount(tent & ~nbrs(this.trees, row, i, w));
+                // every pair is counted once: from the left tent of a pair in one row, from the upper tent otherwise
+                touching += Long.bitCount(tent & right(this.tents, i, w));
+                if (row + 1 < this.numRows) {
+                    int below = i + this.words;
+                    touching += Long.bitCount(tent & this.tents[below]) + Long.bitCount(tent & left(this.tents, below, w))
+                            + Long.bitCount(tent & right(this.tents, below, w));
+                }
+            }
+        }
+        return new int[]{(int)numTrees, (int)numTents, (int)touching, (int)orphans, (int)lonely};
+    }
+
+    public void forEach(Visitor visitor) {
+        // O(R*C/64 + M) where M = size returned by size()
+        for (int row = 0; row < this.numRows; row++) {
+            for (int w = 0; w < this.words; w++) {
+                int i = row * this.words + w;
+                long bits = this.trees[i] | this.tents[i];
+                while (bits != 0) {
+                    int b = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1; //clear the lowest set bit
+                    visitor.visit(row, (w << 6) + b, (this.trees[i] & (1L << b)) != 0 ? TREE : TENT);
+                }
+            }
+        }
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        BitBoard board = new BitBoard(3, 130);
+        if (board.add(1, 64, TREE) && !board.add(1, 64, TENT) && board.get(1, 64) == TREE
+                && board.get(1, 63) == EMPTY && board.size() == 1) {
+            System.out.println("Yay 1");
+        }
+
+        // neighbors across the word boundary between column 63 and column 64
+        if (board.hasNbr(1, 63, TREE) && board.hasNbr(0, 64, TREE) && board.hasNbr(2, 64, TREE)
+                && !board.hasNbr(0, 63, TREE) && board.touching(0, 63, TREE) && board.touching(2, 65, TREE)
+                && !board.touching(1, 64, TREE) && !board.touching(1, 66, TREE)) {
+            System.out.println("Yay 2");
+        }
+
+        final int[] count = {0};
+        board.add(2, 129, TENT);
+        board.add(0, 0, TENT);
+        board.forEach((row, col, code) -> count[0]++);
+        if (count[0] == 3 && board.touching(1, 128, TENT) && board.hasNbr(1, 0, TENT)
+                && board.remove(0, 0) && !board.remove(0, 0) && board.size() == 2) {
+            System.out.println("Yay 3");
+        }
+    }
+}
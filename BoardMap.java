@@ -0,0 +1,263 @@
+/**
+ * BoardMap.java
+ * A hash map which maps a cell of the board to the symbol stored in that cell.
+ * The row and column of a cell are packed into a single long key and the symbol is stored as a byte code
+ * in a parallel array, so no Position, Pair or linked list node is created for an occupied cell.
+ * Collisions are resolved with open addressing (linear probing) and removal uses backward shifting,
+ * so there are never any "deleted" markers left in the table.
+ * This is the storage used for large sparse boards, its memory only depends on the number of occupied cells.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class BoardMap implements BoardStorage {
+
+    // the symbol codes EMPTY, TREE and TENT come from BoardStorage, EMPTY also marks a free slot
+    private static final double MAX_LOAD = 0.6; //grow the table once it is more than 60% full
+
+    private long[] keys; //packed <row, col> of every occupied slot
+    private byte[] codes; //symbol code of every slot, EMPTY if the slot is free
+    private int mask; //table length - 1, the table length is always a power of two
+    private int size; //number of occupied slots
+
+    /**
+     * Create an empty map with a small table
+     */
+    public BoardMap() {
+        this(16);
+    }
+
+    /**
+     * Create an empty map which can hold expected cells without growing
+     * @param expected the number of cells the map is expected to hold
+     */
+    public BoardMap(int expected) {
+        int capacity = 16;
+        while (capacity * MAX_LOAD < expected && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.codes = new byte[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    public Kind kind() {
+        return Kind.HASH;
+    }
+
+    /**
+     * Pack a row and a column into a single key, the row is stored in the upper 32 bits
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return long, the packed key
+     */
+    public static long key(int row, int col) {
+        return ((long)row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Mix all of the bits of the key (the finalizer of MurmurHash3) and fold it into the table
+     * @param key a packed key
+     * @return int, the home slot of the key
+     */
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int)key & this.mask;
+    }
+
+    /**
+     * Find the slot which holds the key
+     * @param key a packed key
+     * @return int, the slot holding the key or -1 if the key is not in the map
+     */
+    private int find(long key) {
+        int i = slot(key);
+        while (this.codes[i] != EMPTY) { //an empty slot ends the probe sequence
+            if (this.keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Return the code of the symbol stored at <row, col>
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return byte, the symbol code or EMPTY if nothing is stored there
+     */
+    public byte get(int row, int col) {
+        // O(1) average case
+        int i = find(key(row, col));
+        if (i < 0) {
+            return EMPTY;
+        }
+        return this.codes[i];
+    }
+
+    /**
+     * Check whether something is stored at <row, col>
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return boolean, true if the cell is occupied, false otherwise
+     */
+    public boolean contains(int row, int col) {
+        return find(key(row, col)) >= 0;
+    }
+
+    /**
+     * Store the code at <row, col>. Like HashMap.add() an occupied cell is never overwritten.
+     * @param row row of the cell
+     * @param col column of the cell
+     * @param code the symbol code, must not be EMPTY
+     * @return boolean, true if the code was stored, false if the cell was already occupied
+     */
+    public boolean add(int row, int col, byte code) {
+        // O(1) amortized
+        if (code == EMPTY) {
+            throw new IllegalArgumentException("cannot store an empty symbol code");
+        }
+        long key = key(row, col);
+        int i = slot(key);
+        while (this.codes[i] != EMPTY) {
+            if (this.keys[i] == key) { //the cell is already occupied
+                return false;
+            }
+            i = (i + 1) & this.mask;
+        }
+        this.keys[i] = key;
+        this.codes[i] = code;
+        this.size++;
+        if (this.size > MAX_LOAD * this.codes.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Remove whatever is stored at <row, col>.
+     * The entries following the removed slot are shifted back so that every probe sequence stays unbroken.
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return boolean, true if something was removed, false if the cell was empty
+     */
+    public boolean remove(int row, int col) {
+        // O(1) average case
+        int hole = find(key(row, col));
+        if (hole < 0) {
+            return false;
+        }
+        int i = (hole + 1) & this.mask;
+        while (this.codes[i] != EMPTY) {
+            int home = slot(this.keys[i]);
+            // move the entry into the hole unless its home slot lies (cyclically) in (hole, i]
+            if (((i - home) & this.mask) >= ((i - hole) & this.mask)) {
+                this.keys[hole] = this.keys[i];
+                this.codes[hole] = this.codes[i];
+                hole = i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        this.codes[hole] = EMPTY;
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Return the number of occupied cells
+     * @return this.size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean hasNbr(int row, int col, byte code) {
+        // O(1) average case, 4 probes
+        return get(row - 1, col) == code || get(row + 1, col) == code
+                || get(row, col - 1) == code || get(row, col + 1) == code;
+    }
+
+    public boolean touching(int row, int col, byte code) {
+        // O(1) average case, 8 probes
+        return hasNbr(row, col, code)
+                || get(row - 1, col - 1) == code || get(row - 1, col + 1) == code
+                || get(row + 1, col - 1) == code || get(row + 1, col + 1) == code;
+    }
+
+    public void forEach(Visitor visitor) {
+        // O(M) where M = the length of the table
+        for (int i = 0; i < this.codes.length; i++) {
+            if (this.codes[i] != EMPTY) {
+                long key = this.keys[i];
+                visitor.visit((int)(key >> 32), (int)key, this.codes[i]);
+            }
+        }
+    }
+
+    /**
+     * Double the table and reinsert every entry
+     */
+    private void grow() {
+        // O(M) where M = size returned by size()
+        long[] oldKeys = this.keys;
+        byte[] oldCodes = this.codes;
+        this.keys = new long[oldKeys.length * 2];
+        this.codes = new byte[oldCodes.length * 2];
+        this.mask = this.codes.length - 1;
+        for (int j = 0; j < oldCodes.length; j++) {
+            if (oldCodes[j] != EMPTY) {
+                int i = slot(oldKeys[j]);
+                while (this.codes[i] != EMPTY) {
+                    i = (i + 1) & this.mask;
+                }
+                this.keys[i] = oldKeys[j];
+                this.codes[i] = oldCodes[j];
+            }
+        }
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        BoardMap map = new BoardMap();
+        if (map.add(3, 5, TREE) && !map.add(3, 5, TENT) && map.get(3, 5) == TREE
+                && map.get(5, 3) == EMPTY && map.size() == 1) {
+            System.out.println("Yay 1");
+        }
+
+        if (map.add(-1, 0, TENT) && map.get(-1, 0) == TENT && map.remove(-1, 0)
+                && !map.remove(-1, 0) && !map.contains(-1, 0) && map.size() == 1) {
+            System.out.println("Yay 2");
+        }
+
+        boolean ok = true;
+        for (int i = 0; i < 100; i++) { // forces the table to grow a few times
+            for (int j = 0; j < 100; j++) {
+                ok &= (i == 3 && j == 5) || map.add(i, j, (i + j) % 2 == 0 ? TREE : TENT);
+            }
+        }
+        for (int i = 0; i < 100; i += 2) { // remove half of the rows
+            for (int j = 0; j < 100; j++) {
+                ok &= map.remove(i, j);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+                byte expected = (i % 2 == 0) ? EMPTY : ((i + j) % 2 == 0 ? TREE : TENT);
+                ok &= map.get(i, j) == expected;
+            }
+        }
+        if (ok && map.size() == 5000) {
+            System.out.println("Yay 3");
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * BoardRenderer.java
+ * Writes a TentTree in the format of TentTree.toString() (every cell a 5 character right-aligned symbol and a space,
+ * "-" for an empty cell, a new line after every row) straight to an Appendable such as a Writer or a StringBuilder.
+ * The cells are padded from strings made once, so no format string is parsed per cell, and runs of empty cells
+ * are copied from a row of blanks in one append. A board with few trees and tents is drawn from its occupied
+ * cells instead of probing every cell of the board.
+ * A renderer which tracks changes remembers the rows changed since the board was last drawn, so that a terminal
+ * can redraw just those rows (see redraw()).
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class BoardRenderer {
+
+    static final String EMPTY_CELL = "    - ";
+    static final int CELL = EMPTY_CELL.length(); // width of an empty cell, and of every cell with a short symbol
+    // a board with fewer than 1 occupied cell out of SPARSE_FRACTION is drawn from its occupied cells
+    static final int SPARSE_FRACTION = 8;
+
+    private static final int BLANK_CELLS = 256;
+    private static final String BLANKS = EMPTY_CELL.repeat(BLANK_CELLS); // appended in slices
+
+    private final TentTree board;
+    private final String treeCell, tentCell; // the padded cells of the tree and tent symbols
+    private final BitSet dirty;              // rows changed since the board was drawn, null if changes are not tracked
+    private boolean drawn;                   // false until the whole board was drawn once
+
+    /**
+     * Create a renderer of a board which does not track changes
+     * @param board the board to draw
+     */
+    public BoardRenderer(TentTree board){
+        this(board, false);
+    }
+
+    /**
+     * Create a renderer of a board
+     * @param board the board to draw
+     * @param trackChanges true to remember the changed rows for redraw(), the renderer then becomes the
+     *                     change listener of the board (see TentTree.setChangeListener()) until detach() is called
+     */
+    public BoardRenderer(TentTree board, boolean trackChanges){
+        this.board = board;
+        this.treeCell = cell(board.getTreeSymbol());
+        this.tentCell = cell(board.getTentSymbol());
+        if (trackChanges) {
+            this.dirty = new BitSet();
+            board.setChangeListener((row, col, code) -> this.dirty.set(row));
+        }
+        else {
+            this.dirty = null;
+        }
+    }
+
+    /**
+     * Pad a symbol the way String.format("%5s ", symbol) does
+     * @param symbol the symbol
+     * @return String, the cell
+     */
+    static String cell(String symbol){
+        String s = String.valueOf(symbol);
+        if (s.length() >= CELL - 1) {
+            return s + " ";
+        }
+        return EMPTY_CELL.substring(0, CELL - 1 - s.length()) + s + " ";
+    }
+
+    /**
+     * Write the whole board
+     * @param out where to write it
+     * @throws IOException if out cannot be written to
+     */
+    public void render(Appendable out) throws IOException{
+        // O(R*C) characters, O(R*C) probes for a dense board and O(M log M) for a sparse one
+        // where M is the number of occupied cells
+        long cells = (long)this.board.numRows() * this.board.numCols();
+        if (cells > 0 && this.board.numOccupied() < cells / SPARSE_FRACTION) {
+            renderSparse(out);
+        }
+        else {
+            for (int row = 0; row < this.board.numRows(); row++) {
+                renderRow(row, out);
+            }
+        }
+        this.drawn = true;
+        if (this.dirty != null) {
+            this.dirty.clear();
+        }
+    }
+
+    /**
+     * Write the whole board into a StringBuilder, which never fails
+     * @param sb where to write it
+     */
+    public void render(StringBuilder sb){
+        try {
+            render((Appendable)sb);
+        }
+        catch (IOException e) { //a StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write one row of the board, followed by a new line
+     * @param row the row, between 0 and numRows() - 1
+     * @param out where to write it
+     * @throws IOException if out cannot be written to
+     */
+    public void renderRow(int row, Appendable out) throws IOException{
+        // O(C) probes
+        int blanks = 0; //empty cells not written yet
+        for (int col = 0; col < this.board.numCols(); col++) {
+            byte code = this.board.codeAt(row, col);
+            if (code == BoardStorage.EMPTY) {
+                blanks++;
+            }
+            else {
+                appendBlanks(out, blanks);
+                blanks = 0;
+                out.append(cellOf(code));
+            }
+        }
+        appendBlanks(out, blanks);
+        out.append('\n');
+    }
+
+    /**
+     * Write the whole board from its occupied cells, sorted by row and column, the empty cells in between
+     * are written in runs
+     */
+    private void renderSparse(Appendable out) throws IOException{
+        final long[] keys = new long[this.board.numOccupied()];
+        final int[] n = {0};
+        this.board.forEach((row, col, code) -> keys[n[0]++] = ((long)row << 32) | col);
+        Arrays.sort(keys);
+        int numCols = this.board.numCols();
+        int i = 0;
+        for (int row = 0; row < this.board.numRows(); row++) {
+            int next = 0; //first column not written yet
+            for (; i < keys.length && (int)(keys[i] >>> 32) == row; i++) {
+                int col = (int)keys[i];
+                appendBlanks(out, col - next);
+                out.append(cellOf(this.board.codeAt(row, col)));
+                next = col + 1;
+            }
+            appendBlanks(out, numCols - next);
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Draw again the rows changed since the board was last drawn, for a terminal which shows row 0 of the board
+     * on line topLine (the first line of the terminal is 1). Every row is preceded by the ANSI escape which moves
+     * the cursor to the start of its line. If the whole board was never drawn, every row is drawn.
+     * @param out the terminal
+     * @param topLine the line of the terminal showing row 0
+     * @return int, the number of rows drawn
+     * @throws IOException if out cannot be written to
+     * @throws IllegalStateException if the renderer does not track changes
+     */
+    public int redraw(Appendable out, int topLine) throws IOException{
+        // O(C) per changed row
+        if (this.dirty == null) {
+            throw new IllegalStateException("the renderer does not track changes");
+        }
+        if (!this.drawn) {
+            this.dirty.set(0, Math.max(0, this.board.numRows()));
+        }
+        int count = 0;
+        for (int row = this.dirty.nextSetBit(0); row >= 0 && row < this.board.numRows();
+                row = this.dirty.nextSetBit(row + 1)) {
+            out.append("\033[").append(Integer.toString(topLine + row)).append(";1H");
+            renderRow(row, out);
+            count++;
+        }
+        this.dirty.clear();
+        this.drawn = true;
+        return count;
+    }
+
+    /**
+     * @return int, the number of rows changed since the board was last drawn, 0 if changes are not tracked
+     */
+    public int changedRows(){
+        return (this.dirty == null) ? 0 : this.dirty.cardinality();
+    }
+
+    /**
+     * Stop tracking the changes of the board
+     */
+    public void detach(){
+        if (this.dirty != null) {
+            this.board.setChangeListener(null);
+        }
+    }
+
+    private String cellOf(byte code){
+        return (code == BoardStorage.TREE) ? this.treeCell : this.tentCell;
+    }
+
+    /**
+     * Append n empty cells
+     */
+    private static void appendBlanks(Appendable out, int n) throws IOException{
+        while (n > 0) {
+            int k = Math.min(n, BLANK_CELLS);
+            out.append(BLANKS, 0, k * CELL);
+            n -= k;
+        }
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    // the board as TentTree.toString() used to write it
+    private static String formatted(TentTree board){
+        StringBuilder sb = new StringBuilder("");
+        for (int i = 0; i < board.numRows(); i++) {
+            for (int j = 0; j < board.numCols(); j++) {
+                String s = board.get(new Position(i, j));
+                sb.append(String.format("%5s ", (s != null) ? s : "-"));
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException{
+        TentTree g1 = new TentTree(3, 4);
+        g1.addTree(new Position(1, 1));
+        g1.addTent(new Position(0, 1));
+        if (g1.toString().equals(formatted(g1))
+                && g1.toString().equals("    -     X     -     - \n    -     O     -     - \n    -     -     -     - \n")) {
+            System.out.println("Yay 1");
+        }
+
+        // dense and sparse boards, long and short symbols, on both storages
+        boolean same = true;
+        java.util.Random random = new java.util.Random(18);
+        String[][] symbols = {{"X", "O"}, {"Tent", "Tree"}, {"TheTent", "T"}, {"tentss", "treess"}};
+        for (String[] sym : symbols) {
+            for (BoardStorage.Kind kind : new BoardStorage.Kind[]{BoardStorage.Kind.HASH, BoardStorage.Kind.BITBOARD,
+                    BoardStorage.Kind.TILED}) {
+                for (int density : new int[]{2, 50, 400}) {
+                    TentTree board = new TentTree(20, 300, sym[0], sym[1], kind);
+                    for (int k = 0; k < 6000 / density; k++) {
+                        Position pos = new Position(random.nextInt(20), random.nextInt(300));
+                        if (random.nextBoolean()) {
+                            board.addTree(pos);
+                        }
+                        else {
+                            board.addTent(pos);
+                        }
+                    }
+                    StringBuilder sb = new StringBuilder();
+                    new BoardRenderer(board).render((Appendable)sb);
+                    same &= sb.toString().equals(formatted(board)) && board.toString().equals(formatted(board));
+                }
+            }
+        }
+        if (same && new TentTree(0, 5).toString().isEmpty() && new TentTree(2, 0).toString().equals("\n\n")) {
+            System.out.println("Yay 2");
+        }
+
+        // only the changed rows are drawn again
+        TentTree g2 = new TentTree(5, 3);
+        BoardRenderer terminal = new BoardRenderer(g2, true);
+        StringBuilder screen = new StringBuilder();
+        int first = terminal.redraw(screen, 1); //never drawn: every row
+        g2.addTree(new Position(3, 0));
+        g2.addTent(new Position(3, 1));
+        g2.addTent(new Position(1, 2));
+        g2.removeTent(new Position(1, 2));
+        boolean failed = g2.addTent(new Position(3, 1)); //no change, no row
+        int changed = terminal.changedRows();
+        screen.setLength(0);
+        int second = terminal.redraw(screen, 10);
+        terminal.detach();
+        g2.addTent(new Position(0, 0));
+        if (first == 5 && !failed && changed == 2 && second == 2 && terminal.changedRows() == 0
+                && screen.toString().equals("\033[11;1H    -     -     - \n\033[13;1H    O     X     - \n")) {
+            System.out.println("Yay 3");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * BoardStorage.java
+ * The interface every TentTree board storage implements.
+ * A cell is addressed by its row and column and holds a symbol code (EMPTY, TREE or TENT).
+ * The neighbor queries used by TentTree are part of the interface so that every storage can answer them
+ * in the way that suits its layout best.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+interface BoardStorage {
+
+    // symbol codes stored on the board, EMPTY marks an empty cell
+    byte EMPTY = 0;
+    byte TREE = 1;
+    byte TENT = 2;
+
+    /**
+     * The kinds of storage a TentTree can be built on.
+     * AUTO lets the TentTree pick one from the size of the board and the density of the loaded puzzle.
+     */
+    enum Kind { AUTO, HASH, BITBOARD, TILED }
+
+    /**
+     * Called once for every occupied cell by forEach()
+     */
+    interface Visitor {
+        void visit(int row, int col, byte code);
+    }
+
+    /**
+     * @return the kind of this storage, never AUTO
+     */
+    Kind kind();
+
+    /**
+     * Return the code stored at <row, col>
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return byte, the code or EMPTY if nothing is stored there (or the cell is off the board)
+     */
+    byte get(int row, int col);
+
+    /**
+     * Store the code at <row, col>, an occupied cell is never overwritten
+     * @param row row of the cell
+     * @param col column of the cell
+     * @param code TREE or TENT
+     * @return boolean, true if the code was stored, false if the cell was already occupied
+     */
+    boolean add(int row, int col, byte code);
+
+    /**
+     * Remove whatever is stored at <row, col>
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return boolean, true if something was removed, false if the cell was empty
+     */
+    boolean remove(int row, int col);
+
+    /**
+     * @return the number of occupied cells
+     */
+    int size();
+
+    /**
+     * Check whether at least one of the 4 orthogonal neighbors of <row, col> holds the code
+     * @param row row of the cell
+     * @param col column of the cell
+     * @param code the code to look for
+     * @return boolean, true if a neighbor holds the code, false otherwise
+     */
+    boolean hasNbr(int row, int col, byte code);
+
+    /**
+     * Check whether at least one of the 8 horizontal/vertical/diagonal neighbors of <row, col> holds the code
+     * @param row row of the cell
+     * @param col column of the cell
+     * @param code the code to look for
+     * @return boolean, true if a neighbor holds the code, false otherwise
+     */
+    boolean touching(int row, int col, byte code);
+
+    /**
+     * Visit every occupied cell once, in no particular order
+     * @param visitor called with the row, column and code of each occupied cell
+     */
+    void forEach(Visitor visitor);
+}
@@ -0,0 +1,52 @@
+/**
+ * Bucket.java
+ * The chain of one slot of a HashTable. The table hands every value over together with its hash code, so a chain
+ * may keep the hash codes and compare them before calling equals(). SimpleList (one node per value) and ArrayChain
+ * (the values and their hash codes in two arrays) are the two kinds of chains.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+interface Bucket<T> extends Iterable<T> {
+
+    /**
+     * Add the value at the end of the chain, it is not checked for duplicates
+     * @param value the value
+     * @param hash value.hashCode()
+     */
+    void add(T value, int hash);
+
+    /**
+     * Remove the first value equal to value
+     * @param value the value
+     * @param hash value.hashCode()
+     * @return boolean, true if a value was removed
+     */
+    boolean remove(T value, int hash);
+
+    /**
+     * @param value the value
+     * @param hash value.hashCode()
+     * @return boolean, true if a value equal to value is in the chain
+     */
+    boolean contains(T value, int hash);
+
+    /**
+     * @param value the value
+     * @param hash value.hashCode()
+     * @return T, the value IN THE CHAIN which is equal to value, or null if there is none
+     */
+    T get(T value, int hash);
+
+    /**
+     * @return int, the number of values the last remove(), contains() or get() compared with its value
+     */
+    int probes();
+
+    /**
+     * @return int, the number of values in the chain
+     */
+    int size();
+}
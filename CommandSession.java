@@ -0,0 +1,222 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * CommandSession.java
+ * Plays a TentTree from a stream of text commands instead of the menu of PA2, so that a script or another
+ * program can drive the game: "java PA2 --script PUZZLE_FILE [COMMAND_FILE]" reads them from a file or stdin.
+ * One command per line, the words separated by spaces or tabs:
+ *   add ROW COL       add a tent
+ *   remove ROW COL    remove a tent
+ *   undo, redo        undo the last move, redo the last undone move
+ *   check             the status of the board, "status N (description)" with N from TentTree.checkStatus()
+ *   print             the board, like PA2 prints it, followed by an empty line
+ *   size              the size of the board, "size ROWS COLS"
+ *   quit, exit        stop reading commands
+ * Empty lines and lines starting with "#" are skipped. Every other command answers exactly one line:
+ * "ok" when a move was made, or the message PA2 prints when it fails. The board is only printed when asked for,
+ * and the answers go to an Appendable which the caller buffers, so a script of moves runs back to back.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class CommandSession {
+
+    private final TentTree game;
+    private final BoardRenderer renderer;
+    private long commands; //number of commands executed
+
+    /**
+     * Create a session playing a board
+     * @param game the board, changed by the commands
+     */
+    public CommandSession(TentTree game) {
+        this.game = game;
+        this.renderer = new BoardRenderer(game);
+    }
+
+    public TentTree getGame() { return this.game; }
+
+    // number of commands executed, skipped lines are not counted, O(1)
+    public long getCommands() { return this.commands; }
+
+    /**
+     * Execute every command of a stream, until its end or a "quit" command
+     * @param in the commands, one per line
+     * @param out where to write the answers, it is neither flushed nor closed
+     * @return boolean, true if the session was stopped by a "quit" command
+     * @throws IOException if in cannot be read or out cannot be written to
+     */
+    public boolean run(BufferedReader in, Appendable out) throws IOException {
+        // O(N) commands, each costing like the TentTree method it calls
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!execute(line, out)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Execute one command and write its answer
+     * @param line the command
+     * @param out where to write the answer
+     * @return boolean, false if the command was "quit" or "exit"
+     * @throws IOException if out cannot be written to
+     */
+    public boolean execute(String line, Appendable out) throws IOException {
+        // O(1) for every command but print, which is O(R*C) at most (see BoardRenderer)
+        int[] bounds = new int[2]; //start and end of the current word
+        if (!nextWord(line, 0, bounds) || line.charAt(bounds[0]) == '#') {
+            return true;
+        }
+        String command = line.substring(bounds[0], bounds[1]);
+        int end = bounds[1];
+        this.commands++;
+        switch (command) {
+            case "add":
+            case "remove":
+                move(command.equals("add"), line, end, bounds, out);
+                break;
+            case "undo":
+                answer(out, this.game.undo() ? "ok" : "Nothing to undo!");
+                break;
+            case "redo":
+                answer(out, this.game.redo() ? "ok" : "Nothing to redo!");
+                break;
+            case "check":
+                int status = this.game.checkStatus();
+                out.append("status ").append(Integer.toString(status)).append(" (")
+                        .append(PuzzleBatch.describe(status)).append(")\n");
+                break;
+            case "size":
+                out.append("size ").append(Integer.toString(this.game.numRows())).append(' ')
+                        .append(Integer.toString(this.game.numCols())).append('\n');
+                break;
+            case "print":
+                this.renderer.render(out);
+                out.append('\n');
+                break;
+            case "quit":
+            case "exit":
+                return false;
+            default:
+                answer(out, "Unknown command: " + command);
+        }
+        return true;
+    }
+
+    /**
+     * Add or remove the tent at the position given by the rest of the line
+     */
+    private void move(boolean add, String line, int from, int[] bounds, Appendable out) throws IOException {
+        int row, col;
+        try {
+            if (!nextWord(line, from, bounds)) {
+                answer(out, "Invalid row/col selection!");
+                return;
+            }
+            row = Integer.parseInt(line.substring(bounds[0], bounds[1]));
+            if (!nextWord(line, bounds[1], bounds)) {
+                answer(out, "Invalid row/col selection!");
+                return;
+            }
+            col = Integer.parseInt(line.substring(bounds[0], bounds[1]));
+        }
+        catch (NumberFormatException e) {
+            answer(out, "Invalid row/col selection!");
+            return;
+        }
+        if (nextWord(line, bounds[1], bounds) || !this.game.isValidPosition(row, col)) {
+            answer(out, "Invalid row/col selection!");
+        }
+        else if (add ? this.game.addTent(this.game.positionAt(row, col))
+                : this.game.removeTent(this.game.positionAt(row, col))) {
+            answer(out, "ok");
+        }
+        else if (add) {
+            answer(out, "Cannot add a tent (" + this.game.getTentSymbol() + ") at row " + row + " col " + col + "!");
+        }
+        else {
+            answer(out, "Cannot remove tent(" + this.game.getTentSymbol() + ") at row " + row + " col " + col + "!");
+        }
+    }
+
+    private static void answer(Appendable out, String answer) throws IOException {
+        out.append(answer).append('\n');
+    }
+
+    /**
+     * Find the next word of the line at or after from
+     * @param bounds set to the start and end of the word
+     * @return boolean, false if the rest of the line is blank
+     */
+    private static boolean nextWord(String line, int from, int[] bounds) {
+        int i = from;
+        while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        if (i == line.length()) {
+            return false;
+        }
+        int j = i;
+        while (j < line.length() && line.charAt(j) != ' ' && line.charAt(j) != '\t') {
+            j++;
+        }
+        bounds[0] = i;
+        bounds[1] = j;
+        return true;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    /**
+     * @return String, the answers of a script played on the board
+     */
+    private static String play(TentTree game, String script) throws IOException {
+        StringBuilder out = new StringBuilder();
+        new CommandSession(game).run(new BufferedReader(new StringReader(script)), out);
+        return out.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        // run from the project directory so that puzzles/ can be found
+        TentTree p4 = PuzzleLoader.load("puzzles/puzzle4.txt");
+        String answers = play(p4, "# comment\n\n  add 0 0\nremove 0 0\nundo\nredo\nredo\n\tcheck\nsize\n");
+        if (answers.equals("ok\nok\nok\nok\nNothing to redo!\nstatus 2 (unfinished)\nsize 5 5\n") && p4.get(new Position(0, 0)) == null) {
+            System.out.println("Yay 1");
+        }
+
+        TentTree small = new TentTree(2, 2);
+        small.addTree(new Position(0, 0));
+        String errors = play(small, "add 0\nadd a 1\nadd 0 1 2\nadd 5 5\nadd 0 0\nremove 1 1\njump\nadd 0 1\nprint\nquit\ncheck\n");
+        if (errors.equals("Invalid row/col selection!\nInvalid row/col selection!\nInvalid row/col selection!\n"
+                + "Invalid row/col selection!\nCannot add a tent (X) at row 0 col 0!\nCannot remove tent(X) at row 1 col 1!\n"
+                + "Unknown command: jump\nok\n" + small + "\n")) {
+            System.out.println("Yay 2");
+        }
+
+        // a long script of moves runs without printing the board
+        TentTree large = new TentTree(1000, 1000);
+        StringBuilder script = new StringBuilder();
+        for (int row = 0; row < 1000; row += 2) {
+            for (int col = 0; col < 1000; col += 50) {
+                large.addTree(new Position(row + 1, col));
+                script.append("add ").append(row).append(' ').append(col).append('\n');
+            }
+        }
+        script.append("check\n");
+        CommandSession session = new CommandSession(large);
+        StringBuilder out = new StringBuilder();
+        boolean quit = session.run(new BufferedReader(new StringReader(script.toString())), out);
+        if (!quit && session.getCommands() == 10001 && out.toString().endsWith("ok\nstatus 1 (solved)\n")
+                && out.length() == 10000 * 3 + "status 1 (solved)\n".length()) {
+            System.out.println("Yay 3");
+        }
+    }
+}
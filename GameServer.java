@@ -0,0 +1,256 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameServer.java
+ * Hosts the games of many players in one JVM: a TCP server on the loopback address which speaks the commands of
+ * CommandSession, one line per command and one line per answer, used by "java PA2 --serve PUZZLE_FILE PORT [IDLE_SECONDS]".
+ * Every connection is a session playing its own copy of the puzzle, served by its own thread with plain blocking
+ * reads. On Java 21 and later the threads are virtual threads, found by reflection so that the server still
+ * compiles and runs on older Java, where a cached pool of platform threads with small stacks is used instead.
+ * A session which sends nothing for the idle timeout is told so and closed (the read timeout of its socket),
+ * so idle players cost no polling at all. The answers of commands sent back to back (pipelined) are flushed
+ * together once the session has read every command it has been sent.
+ * See LoadClient for a load generator which plays thousands of sessions at once.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class GameServer implements Closeable {
+
+    static final int BACKLOG = 4096;              //connections waiting to be accepted, thousands arrive at once
+    static final int DEFAULT_IDLE_SECONDS = 300;
+    private static final long STACK_SIZE = 1 << 18; //of a platform session thread, a session needs very little
+
+    private final TentTree puzzle; //the puzzle every session starts from, never played on
+    private final int idleMillis;
+    private final ServerSocket server;
+    private final ExecutorService sessions;
+    private final boolean virtual;  //true if the sessions run on virtual threads
+    private final Thread acceptor;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet(); //of the open sessions, closed by close()
+
+    // statistics, updated once per session
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+
+    /**
+     * Start a server, it accepts connections until close() is called
+     * @param puzzle the puzzle every session plays a copy of
+     * @param port the port to listen to on the loopback address, 0 for any free port
+     * @param idleMillis how long a session may send nothing before it is closed, 0 for ever
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(TentTree puzzle, int port, int idleMillis) throws IOException {
+        if (idleMillis < 0) {
+            throw new IllegalArgumentException("the idle timeout cannot be negative");
+        }
+        this.puzzle = puzzle;
+        this.idleMillis = idleMillis;
+        this.server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        ExecutorService threads = virtualThreads();
+        this.virtual = (threads != null);
+        this.sessions = this.virtual ? threads : Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(null, task, "session", STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptor = new Thread(this::accept, "acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * @return ExecutorService, one new virtual thread per task, null before Java 21
+     */
+    static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) { //missing, or a preview feature before Java 21
+            return null;
+        }
+    }
+
+    public InetSocketAddress getAddress() { return (InetSocketAddress)this.server.getLocalSocketAddress(); }
+    public boolean isVirtual() { return this.virtual; }
+
+    // sessions connected now, sessions ended, sessions closed for being idle and commands of the ended sessions
+    public int getOpen() { return this.open.get(); }
+    public long getServed() { return this.served.get(); }
+    public long getEvicted() { return this.evicted.get(); }
+    public long getCommands() { return this.commands.get(); }
+
+    /**
+     * Accept connections and hand each one to a thread of its own, until the server socket is closed
+     */
+    private void accept() {
+        while (!this.server.isClosed()) {
+            try {
+                Socket socket = this.server.accept();
+                this.open.incrementAndGet();
+                this.sockets.add(socket);
+                this.sessions.execute(() -> serve(socket));
+            }
+            catch (IOException e) { //closed, or a connection which failed before it was accepted
+                continue;
+            }
+        }
+    }
+
+    /**
+     * Play one session until the client quits, disconnects or stays idle for too long
+     * @param socket the connection of the session
+     */
+    private void serve(Socket socket) {
+        TentTree game;
+        synchronized (this.puzzle) { //reading a board is not thread-safe for every storage (see TiledBoard)
+            game = this.puzzle.copy();
+        }
+        CommandSession session = new CommandSession(game);
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            s.setSoTimeout(this.idleMillis);
+            s.setTcpNoDelay(true); //the answers are flushed once per batch of commands already
+            try {
+                String line;
+                while ((line = in.readLine()) != null && session.execute(line, out)) {
+                    if (!in.ready()) { //the last command sent so far, answer the whole batch
+                        out.flush();
+                    }
+                }
+            }
+            catch (SocketTimeoutException e) {
+                this.evicted.incrementAndGet();
+                out.write("Session closed after " + this.idleMillis + " ms without a command\n");
+            }
+            out.flush();
+        }
+        catch (IOException e) { //the client went away
+        }
+        finally {
+            this.sockets.remove(socket);
+            this.commands.addAndGet(session.getCommands());
+            this.served.incrementAndGet();
+            this.open.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stop accepting connections and close every session
+     */
+    @Override
+    public void close() throws IOException {
+        this.server.close();
+        try {
+            this.acceptor.join(); //no socket is added after this
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Socket socket : this.sockets) { //a blocked read ends with an IOException
+            socket.close();
+        }
+        this.sessions.shutdown();
+        try {
+            this.sessions.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    /**
+     * A connection to the server with its reader and writer
+     */
+    private static class Player {
+        final Socket socket;
+        final BufferedReader in;
+        final Writer out;
+
+        Player(GameServer server) throws IOException {
+            this.socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+            this.in = new BufferedReader(new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new OutputStreamWriter(this.socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        void send(String commands) throws IOException {
+            this.out.write(commands);
+            this.out.flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // run from the project directory so that puzzles/ can be found
+        TentTree p4 = PuzzleLoader.load("puzzles/puzzle4.txt");
+        try (GameServer server = new GameServer(p4, 0, 500)) {
+            // two sessions play their own boards, the answers of a pipelined batch all come back
+            Player a = new Player(server), b = new Player(server);
+            a.send("add 0 0\nsize\ncheck\n");
+            b.send("remove 0 0\n");
+            String answers = a.in.readLine() + "|" + a.in.readLine() + "|" + a.in.readLine() + "|" + b.in.readLine();
+            if (answers.equals("ok|size 5 5|status 2 (unfinished)|Cannot remove tent(X) at row 0 col 0!")
+                    && p4.get(new Position(0, 0)) == null && server.getOpen() == 2 && server.getAddress().getAddress().isLoopbackAddress()) {
+                System.out.println("Yay 1");
+            }
+
+            // quit ends a session, an idle session is evicted after 500 ms
+            b.send("quit\n");
+            boolean ended = b.in.readLine() == null;
+            String evicted = a.in.readLine();
+            boolean closed = a.in.readLine() == null;
+            Thread.sleep(50);
+            if (ended && closed && evicted.startsWith("Session closed after 500 ms") && server.getEvicted() == 1
+                    && server.getServed() == 2 && server.getOpen() == 0 && server.getCommands() == 5) {
+                System.out.println("Yay 2");
+            }
+            a.socket.close();
+            b.socket.close();
+        }
+
+        // virtual threads exactly when the JVM has them
+        boolean hasVirtual;
+        try {
+            hasVirtual = Thread.class.getMethod("isVirtual") != null && Runtime.version().feature() >= 21;
+        }
+        catch (NoSuchMethodException e) {
+            hasVirtual = false;
+        }
+        // closing the server ends the sessions which never time out
+        GameServer server = new GameServer(p4, 0, 0);
+        Player idle = new Player(server);
+        idle.send("check\n");
+        boolean answered = idle.in.readLine() != null;
+        server.close();
+        if (answered && idle.in.readLine() == null && server.getOpen() == 0 && server.isVirtual() == hasVirtual) {
+            System.out.println("Yay 3");
+        }
+        idle.socket.close();
+    }
+}
@@ -2,6 +2,8 @@
 // Do not change it!
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 class HashMap<K,V> {
     // This class defines a dictionary that maps key->value.
@@ -10,7 +12,18 @@ class HashMap<K,V> {
 
     // keys in a dictionary must be unique.
 
-    private HashTable<Pair<K,V>> hashTable = new HashTable<>();
+    private final HashTable<Pair<K,V>> hashTable;
+
+    public HashMap() {
+        // a dictionary on a chained hash table
+        this(HashTable.Kind.CHAINED);
+    }
+
+    public HashMap(HashTable.Kind kind) {
+        // a dictionary on a hash table of the given kind,
+        // ROBIN_HOOD keeps the pairs in one array instead of linked lists
+        this.hashTable = new HashTable<>(kind);
+    }
 
 
     // The class representing <key,value> pair
@@ -67,11 +80,20 @@ class HashMap<K,V> {
         // update the mapping of key in the dictionary to be a new value
         // if key not present in dictionary, return false
         // if fail to update, return false
-        Pair<K,V> pair = new Pair<>(key, value);
-        if(!remove(key)) {
+        // the value of the pair in the table is replaced, one lookup and never a rehash
+        Pair<K,V> pair = find(key);
+        if (pair == null) {
             return false;
         }
-        return hashTable.add(pair);
+        pair.value = value;
+        return true;
+    }
+
+    private Pair<K,V> find(K key) {
+        // return the pair of key FROM THE TABLE, or null if key not present
+        // one lookup of the table with a pair of this call only, so that lookups
+        // from several threads never share a key
+        return hashTable.get(new Pair<>(key, null));
     }
 
     @SuppressWarnings("unchecked")
@@ -91,26 +113,65 @@ class HashMap<K,V> {
     public boolean contains(K key){
         // return true if key is present
         // return false otherwise
-        return hashTable.contains(new Pair<>(key,null));
+        return find(key) != null;
     }
 
     public boolean has(K key, V value){
         // return true if <key, value> pair is present in dictionary
         // return false otherwise
-        Pair<K, V> pair = new Pair<>(key, null);
-        return this.contains(key) && (hashTable.get(pair)).getValue().equals(value);
+        Pair<K, V> pair = find(key);
+        return pair != null && Objects.equals(pair.getValue(), value);
 
     }
 
     public V getValue(K key){
         // return the value this key mapped to from the dictionary
         // if key not present, return null
-        if (this.contains(key)){
-            Pair<K, V> pair = new Pair<>(key, null);
-            return hashTable.get(pair).getValue();
+        return getOrNull(key);
+    }
+
+    public V getOrNull(K key){
+        // return the value this key mapped to, or null if key not present
+        // one lookup, no Pair is created
+        Pair<K, V> pair = find(key);
+        return (pair == null) ? null : pair.getValue();
+    }
+
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mapping){
+        // return the value this key mapped to; if key not present, map it to
+        // mapping.apply(key) and return that value (nothing is added if it is null)
+        // the value is computed before the key is added, so mapping sees the map without the key;
+        // the key is looked up once when it is present, and once more to add it
+        Pair<K, V> found = find(key);
+        if (found != null) {
+            return found.getValue();
         }
-        else
+        V value = mapping.apply(key);
+        if (value == null) {
             return null;
+        }
+        Pair<K, V> pair = new Pair<>(key, value);
+        found = hashTable.getOrAdd(pair);
+        return found.getValue(); //the value of mapping, or the one mapping put itself under the key
+    }
+
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping){
+        // if key not present, map it to value;
+        // otherwise map it to remapping.apply(old value, value), or remove it if that is null
+        // return the new value (null if the key was removed)
+        Pair<K, V> pair = new Pair<>(key, value);
+        Pair<K, V> found = hashTable.getOrAdd(pair);
+        if (found == pair) {
+            return value;
+        }
+        V merged = remapping.apply(found.getValue(), value);
+        if (merged == null) {
+            hashTable.remove(found);
+        }
+        else {
+            found.value = merged;
+        }
+        return merged;
     }
 
     @SuppressWarnings("unchecked")
@@ -159,6 +220,43 @@ class HashMap<K,V> {
         }
         System.out.println(Arrays.toString(nameDict.pairsToArray()));
 
+        HashMap<String,Integer> openDict = new HashMap<>(HashTable.Kind.ROBIN_HOOD);
+        if (openDict.add("Alice",1) && !openDict.add("Alice",2) && openDict.update("Alice",10)
+                && openDict.getValue("Alice")==10 && openDict.has("Alice",10) && openDict.remove("Alice")
+                && !openDict.contains("Alice") && openDict.size()==0) {
+            System.out.println("Yay 5");
+        }
+
+        // counting with merge() and computeIfAbsent(), on both kinds of tables
+        for (HashTable.Kind kind : HashTable.Kind.values()) {
+            HashMap<String,Integer> counts = new HashMap<>(kind);
+            String[] words = {"tent", "tree", "tent", "grass", "tent", "tree"};
+            for (String w : words) {
+                counts.merge(w, 1, Integer::sum);
+            }
+            int[] calls = {0};
+            boolean ok = counts.getOrNull("tent") == 3 && counts.getOrNull("tree") == 2
+                    && counts.getOrNull("rock") == null && counts.merge("grass", 0, (a, b) -> null) == null
+                    && !counts.contains("grass") && counts.size() == 2
+                    && counts.computeIfAbsent("rock", k -> { calls[0]++; return k.length(); }) == 4
+                    && counts.computeIfAbsent("rock", k -> { calls[0]++; return 0; }) == 4 && calls[0] == 1
+                    && counts.computeIfAbsent("sand", k -> null) == null && !counts.contains("sand");
+            try {
+                counts.computeIfAbsent("mud", k -> { throw new IllegalStateException(); });
+                ok = false;
+            }
+            catch (IllegalStateException e) {
+                ok &= !counts.contains("mud") && counts.size() == 3;
+            }
+            // the mapping sees the map without the key, and a value it maps the key to itself is kept
+            ok &= counts.computeIfAbsent("clay", k -> counts.contains(k) || counts.getOrNull(k) != null ? -1 : counts.size()) == 3
+                    && counts.computeIfAbsent("silt", k -> { counts.merge(k, 9, Integer::sum); return 1; }) == 9
+                    && counts.getOrNull("silt") == 9 && counts.size() == 5;
+            if (ok) {
+                System.out.println("Yay " + (kind == HashTable.Kind.CHAINED ? 6 : 7));
+            }
+        }
+
 
     }
 
@@ -2,8 +2,13 @@ import java.util.Iterator;
 
 /**
  * HashTable.java
- * A hash table which uses separate chaining to overcome collisions. Uses the SimpleList file to work properly.
- * This class allows for the addition, removal, retrieval, rehashing, and existence of values using SimpleList.
+ * A hash table which uses separate chaining to overcome collisions. The chains are ArrayChains, or SimpleLists
+ * for a table created with Chains.LINKED.
+ * This class allows for the addition, removal, retrieval, rehashing, and existence of values.
+ * A table created with Kind.ROBIN_HOOD uses open addressing instead (see RobinHoodTable), behind the same methods.
+ * A CHAINED table can also grow incrementally: the new table is filled a few chains at a time by the following
+ * add(), remove() and contains() calls instead of all at once, and lookups check both tables until it is done.
+ * enableMetrics() makes the table count its lookups, probes and rehashes (see HashTableMetrics).
  *
  * @author Ali Malik
  * Professor Zhong CS 310-001
@@ -14,39 +19,276 @@ class HashTable<T> {
     // this is the class that you need to write to implement a simple hash table
     // with separate chaining
 
+    /**
+     * How the table resolves collisions
+     * CHAINED: separate chaining with a chain (see Chains) per slot
+     * ROBIN_HOOD: open addressing with linear probing and Robin Hood displacement
+     */
+    public enum Kind { CHAINED, ROBIN_HOOD }
+
+    /**
+     * How a CHAINED table picks its number of slots
+     * PRIME: a prime from TableSizes.PRIMES, 11 at first, the slot of a value is its hash code mod the size
+     * POWER_OF_TWO: a power of two, 16 at first, the slot is the low bits of the hash code mixed by TableSizes.mix()
+     */
+    public enum Sizing { PRIME, POWER_OF_TWO }
+
+    /**
+     * What the chains of a CHAINED table are made of
+     * LINKED: a SimpleList, one node per value
+     * ARRAY: an ArrayChain, the values and their hash codes in two arrays, so a lookup compares hash codes
+     * before calling equals() and does not follow a link per value
+     */
+    public enum Chains { LINKED, ARRAY }
+
+    // largest load rehash() accepts, and the load at which a ROBIN_HOOD table grows
+    static final double MAX_LOAD = 0.7;
+    // chains of the old table moved by every add(), remove() and contains() of an incremental table
+    static final int MIGRATE_STEP = 8;
+
     // you decide which additional attributes to include in this class but they should all be private
 
+    private final Kind kind;
+    private final Sizing sizing;
+    private final Chains chains;
+    private final double maxLoad;
+    private final RobinHoodTable<T> open; //every call is passed on to it for a ROBIN_HOOD table, null otherwise
     private int size; //number of elements
     private int tbSize = 11; //tbSize is the size of the table, initially 11
     private int numChain; //number of chains
     private double avgChain, load;
     @SuppressWarnings("unchecked")
-    private SimpleList<T>[] table;
+    private Bucket<T>[] table;
+
+    // incremental growth: while oldTable is not null, its chains before migrated have been moved into table
+    private final boolean incremental;
+    private Bucket<T>[] oldTable;
+    private int oldTbSize;
+    private int migrated;
+
+    private HashTableMetrics metrics; //null unless enableMetrics() was called
 
     /**
-     * Initialize all of the internal attributes. Go through each element in table and initialize it to an empty linked
-     * list.
+     * Initialize all of the internal attributes. The chain of a slot in table is created when the first value
+     * is added to it, a slot without a list is an empty chain.
      */
     public HashTable(){
+        this(Kind.CHAINED, MAX_LOAD);
+    }
+
+    /**
+     * Create an empty table of the given kind
+     * @param kind CHAINED or ROBIN_HOOD
+     */
+    public HashTable(Kind kind){
+        this(kind, MAX_LOAD);
+    }
+
+    /**
+     * Create an empty table of the given kind and largest load
+     * @param kind CHAINED or ROBIN_HOOD
+     * @param maxLoad the largest load rehash() accepts (0.7 by default), a ROBIN_HOOD table also grows past it.
+     *                A CHAINED table still grows when its average chain length passes 1.2
+     */
+    public HashTable(Kind kind, double maxLoad){
+        this(kind, maxLoad, false);
+    }
+
+    /**
+     * Create an empty table which may grow incrementally
+     * @param kind CHAINED or ROBIN_HOOD
+     * @param maxLoad the largest load rehash() accepts (0.7 by default)
+     * @param incremental true to move the chains into a grown table a few at a time, only for a CHAINED table
+     */
+    @SuppressWarnings("unchecked")
+    public HashTable(Kind kind, double maxLoad, boolean incremental){
+        this(kind, Sizing.PRIME, maxLoad, incremental);
+    }
+
+    /**
+     * Create an empty table which picks its sizes with the given sizing
+     * @param kind CHAINED or ROBIN_HOOD
+     * @param sizing PRIME or POWER_OF_TWO, only PRIME for a ROBIN_HOOD table
+     * @param maxLoad the largest load rehash() accepts (0.7 by default)
+     * @param incremental true to move the chains into a grown table a few at a time, only for a CHAINED table
+     */
+    public HashTable(Kind kind, Sizing sizing, double maxLoad, boolean incremental){
+        this(kind, sizing, Chains.ARRAY, maxLoad, incremental);
+    }
+
+    /**
+     * Create an empty table with the given kind of chains
+     * @param kind CHAINED or ROBIN_HOOD
+     * @param sizing PRIME or POWER_OF_TWO, only PRIME for a ROBIN_HOOD table
+     * @param chains ARRAY (the default) or LINKED, a ROBIN_HOOD table has no chains
+     * @param maxLoad the largest load rehash() accepts (0.7 by default)
+     * @param incremental true to move the chains into a grown table a few at a time, only for a CHAINED table
+     */
+    public HashTable(Kind kind, Sizing sizing, Chains chains, double maxLoad, boolean incremental){
         //constructor
+        if (!(maxLoad > 0)) {
+            throw new IllegalArgumentException("the largest load must be positive");
+        }
+        if (incremental && kind != Kind.CHAINED) {
+            throw new IllegalArgumentException("only a chained table can grow incrementally");
+        }
+        if (sizing == Sizing.POWER_OF_TWO && kind != Kind.CHAINED) {
+            throw new IllegalArgumentException("only a chained table can have a power of two size");
+        }
+        this.kind = kind;
+        this.sizing = sizing;
+        this.chains = chains;
+        if (sizing == Sizing.POWER_OF_TWO) {
+            this.tbSize = 16;
+        }
+        this.maxLoad = maxLoad;
+        this.incremental = incremental;
+        if (kind == Kind.ROBIN_HOOD) {
+            this.open = new RobinHoodTable<>(this.tbSize, maxLoad);
+            return;
+        }
+        this.open = null;
         this.size = 0;
         this.avgChain = 0.0;
         this.numChain = 0;
         this.load = 0.0;
-        this.table = new SimpleList[11];
-        for (int i = 0; i < this.table.length; i++) {
-            this.table[i] = new SimpleList<>();
+        this.table = newChains(this.tbSize);
+    }
+
+    /**
+     * Return the slot of a value in a table of capacity slots
+     * @param h the hash code of the value
+     * @param capacity the number of slots, a power of two for a POWER_OF_TWO table
+     * @return int, a slot between 0 and capacity - 1
+     */
+    private int slot(int h, int capacity) {
+        if (this.sizing == Sizing.POWER_OF_TWO) {
+            return TableSizes.mix(h) & (capacity - 1);
         }
+        return Math.abs(h % capacity); //Math.abs(h) % capacity, but also right for Integer.MIN_VALUE
+    }
+
+    /**
+     * @return int, the size the table grows to from capacity slots, capacity itself if it cannot grow any more
+     */
+    private int grownSize(int capacity) {
+        // O(1)
+        return (this.sizing == Sizing.POWER_OF_TWO) ? TableSizes.growPowerOfTwo(capacity)
+                : TableSizes.growPrime(capacity);
+    }
+
+    /**
+     * @return Bucket[], a table of capacity chains, a chain is only created when a value is added to it
+     * so that growing the table does not create a list for every slot at once
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Bucket<T>[] newChains(int capacity) {
+        return new Bucket[capacity];
+    }
+
+    /**
+     * @return Bucket, the chain at hash, created if the slot has none yet
+     */
+    private Bucket<T> chainAt(int hash) {
+        Bucket<T> chain = this.table[hash];
+        if (chain == null) {
+            chain = (this.chains == Chains.ARRAY) ? new ArrayChain<>() : new SimpleList<>();
+            this.table[hash] = chain;
+        }
+        return chain;
+    }
+
+    /**
+     * @return boolean, true if the chain exists and holds value
+     */
+    private static <T> boolean holds(Bucket<T> chain, T value, int h) {
+        return chain != null && chain.contains(value, h);
+    }
+
+    /**
+     * Put a value which is known not to be in the table into its chain, size is not changed
+     */
+    private void place(T value) {
+        int h = value.hashCode();
+        Bucket<T> chain = chainAt(slot(h, this.tbSize));
+        if (chain.size() == 0) {
+            this.numChain++;
+        }
+        chain.add(value, h);
+    }
+
+    /**
+     * Return the chain of the old table which still holds value, if the table is growing incrementally
+     * @return Bucket, the old chain or null if there is none (no growth going on, or the chain was moved)
+     */
+    private Bucket<T> oldChain(int h) {
+        if (this.oldTable == null) {
+            return null;
+        }
+        int hash = slot(h, this.oldTbSize);
+        return (hash >= this.migrated) ? this.oldTable[hash] : null;
+    }
+
+    /**
+     * Start growing into a table of newCapacity chains, the chains are moved by migrate()
+     */
+    private void startGrowing(int newCapacity) {
+        this.oldTable = this.table;
+        this.oldTbSize = this.tbSize;
+        this.migrated = 0;
+        this.table = newChains(newCapacity);
+        this.tbSize = newCapacity;
+        if (this.metrics != null) { //the time is added by migrate()
+            this.metrics.rehashed(0);
+        }
+        // numChain counts the non-empty chains of both tables, the old ones are taken off as they are moved
+    }
+
+    /**
+     * Move up to steps chains of the old table into the new one
+     * @param steps the largest number of chains to move
+     */
+    private void migrate(int steps) {
+        // O(steps) on average
+        if (this.oldTable == null) {
+            return;
+        }
+        long start = (this.metrics != null) ? System.nanoTime() : 0;
+        for (int i = 0; i < steps && this.oldTable != null; i++) {
+            Bucket<T> chain = this.oldTable[this.migrated];
+            if (chain != null && chain.size() > 0) {
+                this.numChain--;
+                for (T value : chain) {
+                    place(value);
+                }
+            }
+            this.oldTable[this.migrated] = null; //let the old chain be collected
+            this.migrated++;
+            if (this.migrated == this.oldTbSize) {
+                this.oldTable = null;
+            }
+        }
+        if (this.metrics != null) {
+            this.metrics.rehashTime(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return boolean, true while an incremental table is moving its chains into a grown table
+     */
+    public boolean isResizing() {
+        return this.oldTable != null;
     }
 
     /**
      * Calculate the hash code for the incoming value and mod it against the current table size.
-     * If the linked list at that hash value already contains that value, do not add.
-     * If the linked list at that hash value is empty, add 1 to the numChain attribute.
-     * Add the value to the linked list at the hash value using the add() method in SimpleList
+     * If the chain at that hash value already contains that value, do not add.
+     * If the chain at that hash value is empty, add 1 to the numChain attribute.
+     * Add the value to the chain at the hash value using the add() method of Bucket
      * Now check if the avgChainLength is greater than 1.2, if so rehash.
-     * Find the next prime number greater than 2 * current table size.
-     * Rehash to a table of the size returned by nextPrime().
+     * Take the next size from TableSizes: the first prime greater than 2 * current table size,
+     * or twice the size for a POWER_OF_TWO table.
+     * Rehash to a table of that size.
      * @param value value that needs to be added.
      * @return boolean, true if successfully added, false otherwise.
      */
@@ -64,41 +306,77 @@ class HashTable<T> {
         // O(1) or O(M/N) average case (where M/N is the load)
         // the average case can be amortized Big-O
 
-        int hash = Math.abs(value.hashCode()) % this.tbSize; //positive number less than the table size.
-        if (table[hash].contains(value)) {
-            return false;
+        if (this.open != null) {
+            return this.open.add(value);
         }
-        else {
-            if (this.table[hash].size() == 0) { //if size at a hash value is 0, we are adding a new chain
-                this.numChain++;
+        return addOrFind(value) == null;
+    }
+
+    /**
+     * Return the value in the table which is equal to value, or add value if there is none.
+     * The chain of the value is searched once, where get() followed by add() would search it twice.
+     * @param value value that needs to be added
+     * @return T, the value FROM THE TABLE if there was one, value itself if it was added
+     */
+    public T getOrAdd(T value) {
+        // O(M) worst case, where M =  size returned by size()
+        // O(1) or O(M/N) average case (where M/N is the load), amortized like add()
+        if (this.open != null) {
+            return this.open.getOrAdd(value);
+        }
+        T found = addOrFind(value);
+        return (found == null) ? value : found;
+    }
+
+    /**
+     * Add the value to its chain unless an equal value is already in the table, grow the table if
+     * the average chain length passes 1.2
+     * @return T, the value FROM THE TABLE which is equal to value, null if value was added
+     */
+    private T addOrFind(T value) {
+        migrate(MIGRATE_STEP);
+        int h = value.hashCode(); //computed once, the chains compare it before calling equals()
+        int hash = slot(h, this.tbSize); //positive number less than the table size.
+        Bucket<T> old = oldChain(h);
+        T found = (this.table[hash] == null) ? null : this.table[hash].get(value, h);
+        int probes = probesOf(this.table[hash]);
+        if (found == null && old != null) { //not moved into the grown table yet
+            found = old.get(value, h);
+            probes += old.probes();
+        }
+        if (this.metrics != null) {
+            this.metrics.lookup(probes);
+        }
+        if (found != null) {
+            return found;
+        }
+        Bucket<T> chain = chainAt(hash);
+        if (chain.size() == 0) { //if size at a hash value is 0, we are adding a new chain
+            this.numChain++;
+        }
+        chain.add(value, h); //add value to the chain at hash value
+        this.size++; //add 1 to size
+        if (this.oldTable == null && getAvgChainLength() > 1.2) { //if avgChainLength is greater than 1.2 rehash
+            int newSize = grownSize(this.tbSize); //O(1), no prime search
+            if (newSize == this.tbSize) { //already as large as a table gets
+                return null;
             }
-            this.table[hash].add(value); //add value to the linked list at hash value
-            this.size++; //add 1 to size
-            if (getAvgChainLength() > 1.2) { //if avgChainLength is greater than 1.2 rehash
-                boolean done = false;
-                int tempSize = 2 * this.tbSize;
-                int newSize = 0;
-                while (!done) {
-                    newSize = nextPrime(tempSize);
-                    if((newSize  > (2*this.tbSize))){ //keep getting the next prime until the prime number is > 2*tbSize
-                        done = rehash(newSize); //rehash once newSize is > 2*tbSize.
-                    }
-                    tempSize = newSize+1;
-                }
-                if (done) {
-                    this.tbSize = newSize; //if successfully rehashed changed the table size
-                }
+            if (this.incremental) { //move the chains over the next calls
+                startGrowing(newSize);
+                return null;
+            }
+            while (!rehash(newSize) && grownSize(newSize) != newSize) { //only if the load would still be > maxLoad
+                newSize = grownSize(newSize);
             }
-
-            return true;
         }
+        return null;
     }
 
     /**
      * Remove the value from the hash table.
      * Start by finding the hash value for the value.
-     * Remove the node from the linked list located at hash value  using the remove() method from SimpleList
-     * If successfully removed decrement the size (number of elements)
+     * Remove the node from the chain located at hash value  using the remove() method of Bucket
+     * If successfully removed decrement the size (number of elements), and the number of chains if the chain is empty now
      * @param value value to be removed
      * @return boolean, true if successfully removed item, false otherwise.
      */
@@ -109,8 +387,28 @@ class HashTable<T> {
 
         // O(M) worst case, where M =  size returned by size()
         // O(1) or O(M/N) average case (where M/N is the load)
-        int hash = Math.abs(value.hashCode()) % this.tbSize;
-        if (this.table[hash].remove(value)) {
+        if (this.open != null) {
+            return this.open.remove(value);
+        }
+        migrate(MIGRATE_STEP);
+        int h = value.hashCode();
+        int hash = slot(h, this.tbSize);
+        Bucket<T> old = oldChain(h);
+        Bucket<T> chain = this.table[hash];
+        boolean removed = (chain != null && chain.remove(value, h));
+        int probes = probesOf(chain);
+        if (!removed && old != null) { //not moved into the grown table yet
+            chain = old;
+            removed = old.remove(value, h);
+            probes += old.probes();
+        }
+        if (this.metrics != null) {
+            this.metrics.lookup(probes);
+        }
+        if (removed) {
+            if (chain.size() == 0) { //the chain is empty now
+                this.numChain--;
+            }
             this.size--;
             return true;
         }
@@ -122,8 +420,8 @@ class HashTable<T> {
     /**
      * Returns a boolean specifying whether the value is contained in the table
      * Calculate the positive hash code for the value
-     * Check if the value is contained in the linked list at the hash value using the contains() method in SimpleList
-     * If the value is contained in the linked list at the hash value return true, false otherwise.
+     * Check if the value is contained in the chain at the hash value using the contains() method of Bucket
+     * If the value is contained in the chain at the hash value return true, false otherwise.
      * @param value value that is being checked
      * @return boolean, true if the value is in the hash table, false otherwise
      */
@@ -132,8 +430,23 @@ class HashTable<T> {
 
         // O(M) worst case, where M = size returned by size()
         // O(1) or O(M/N) average case (where M/N is the load)
-        int hash  = Math.abs(value.hashCode()) % this.tbSize;
-        if (this.table[hash].contains(value)) {
+        if (this.open != null) {
+            return this.open.contains(value);
+        }
+        migrate(MIGRATE_STEP);
+        int h = value.hashCode();
+        int hash  = slot(h, this.tbSize);
+        Bucket<T> old = oldChain(h);
+        boolean found = holds(this.table[hash], value, h);
+        int probes = probesOf(this.table[hash]);
+        if (!found && old != null) { //not moved into the grown table yet
+            found = old.contains(value, h);
+            probes += old.probes();
+        }
+        if (this.metrics != null) {
+            this.metrics.lookup(probes);
+        }
+        if (found) {
             return true;
         }
         else {
@@ -144,8 +457,8 @@ class HashTable<T> {
     /**
      * Return the content of the node that has value.
      * Calculate the positive hash code.
-     * Check if the linked list at the hash value contains that value and then return it using the get() method in
-     * SimpleList
+     * Check if the chain at the hash value contains that value and then return it using the get() method in
+     * Bucket
      * Return the contents of that node.
      * @param value value that is being checked
      * @return T, return the value
@@ -160,18 +473,32 @@ class HashTable<T> {
 
         // O(M) worst case, where M = size returned by size()
         // O(1) or O(M/N) average case (where M/N is the load)
-        int hash = Math.abs(value.hashCode()) % this.tbSize;
-        T retValue = this.table[hash].get(value);
+        if (this.open != null) {
+            return this.open.get(value);
+        }
+        int h = value.hashCode();
+        int hash = slot(h, this.tbSize);
+        Bucket<T> old = oldChain(h);
+        T retValue = (this.table[hash] == null) ? null : this.table[hash].get(value, h);
+        int probes = probesOf(this.table[hash]);
+        if (retValue == null && old != null) { //not moved into the grown table yet
+            retValue = old.get(value, h);
+            probes += old.probes();
+        }
+        if (this.metrics != null) {
+            this.metrics.lookup(probes);
+        }
         return retValue;
 
     }
 
     /**
      * Rehash the current table to a table of a size 2 times greater
-     * If the load with the new size is > 0.7 dont rehash
+     * If the load with the new size is > 0.7 (or the maxLoad given to the constructor) dont rehash
      * Otherwise, create a temporary array to hold current values, create a new array of size newCapacity
-     * and rehash all of the nodes
-     * @param newCapacity the size of the new table
+     * and rehash all of the nodes. The values are put straight into their new chains, they are known to be different.
+     * An incremental growth which is still going on is finished first.
+     * @param newCapacity the size of the new table, rounded up to a power of two for a POWER_OF_TWO table
      * @return boolean, true if successfully rehashed, false otherwise
      */
     @SuppressWarnings("unchecked")
@@ -183,34 +510,33 @@ class HashTable<T> {
         // - return true if table gets resized
         // - if the newCapacity will make the load to be more than 0.7, do not resize
         //   and return false
-        int curSize = this.size; //temp variable
-        int curChain = this.numChain; //temp variable
-        this.size = 0; //change fields to 0
-        this.numChain = 0;
-        boolean ret = false; //status of rehashing
-        if (((double)curSize / newCapacity) > 0.7) { //if the load of the newCapacity is > 0.7 dont rehash
-            ret = false;
+        if (this.open != null) {
+            return this.open.rehash(newCapacity);
         }
-        else {
-            this.tbSize = newCapacity; //change tbSize to newCapacity
-            SimpleList<T> [] temp = this.table; //temporary array to hold previous array
-            this.table = new SimpleList[newCapacity]; //table is a new table with new capacity
-            for (int i = 0; i < newCapacity; i++) { //initialize all of the indices of table
-                this.table[i] = new SimpleList<>();
+        if (this.sizing == Sizing.POWER_OF_TWO && newCapacity > 0) { //the slot of a value is a mask of its bits
+            newCapacity = TableSizes.powerOfTwoAtLeast(newCapacity);
+        }
+        if (newCapacity <= 0 || ((double)this.size / newCapacity) > this.maxLoad) { //if the load of the newCapacity is > 0.7 dont rehash
+            return false;
+        }
+        migrate(Integer.MAX_VALUE); //finish an incremental growth first
+        long start = (this.metrics != null) ? System.nanoTime() : 0;
+        this.tbSize = newCapacity; //change tbSize to newCapacity
+        this.numChain = 0;
+        Bucket<T>[] temp = this.table; //temporary array to hold previous array
+        this.table = newChains(newCapacity); //table is a new table with new capacity
+        for (Bucket<T> node : temp) { //for each node in temp
+            if (node == null) { //no value was ever added to this slot
+                continue;
             }
-            for (SimpleList<T> node : temp) { //for each node in temp
-                Iterator i = node.iterator(); //iterator to make traversing simpler
-                while (i.hasNext()) { //if there is a next node add
-                    add((T)i.next());
-                }
+            for (T value : node) { //no need to check for duplicates or to grow while moving
+                place(value);
             }
-            ret = true;
         }
-        if (!ret) { //if false return all fields to original values
-            this.size = curSize;
-            this.numChain = curChain;
+        if (this.metrics != null) {
+            this.metrics.rehashed(System.nanoTime() - start);
         }
-        return ret;
+        return true;
     }
 
     /**
@@ -220,6 +546,9 @@ class HashTable<T> {
     public int size() {
         // return the number of items in the table
         // O(1)
+        if (this.open != null) {
+            return this.open.size();
+        }
         return this.size;
     }
 
@@ -231,6 +560,9 @@ class HashTable<T> {
     public double getLoad() {
         // return the load on the table
         // O(1)
+        if (this.open != null) {
+            return (double)this.open.size() / this.open.capacity();
+        }
         this.load = (double)this.size/this.tbSize;
         return this.load;
     }
@@ -238,18 +570,22 @@ class HashTable<T> {
     /**
      * Return the average chain length of the hash table
      * Calculation: # of elements (size) divided by # of chains (num chains)
+     * A ROBIN_HOOD table has no chains, it returns the average number of slots a successful search looks at
      * @return this.avgChain;
      */
     public double getAvgChainLength(){
         // return the average length of non-empty chains in the hash table
-        // O(1)
+        // O(1), O(N) for a ROBIN_HOOD table
+        if (this.open != null) {
+            return this.open.getAvgProbeLength();
+        }
         this.avgChain = this.size/this.numChain;
         return this.avgChain;
     }
 
     /**
      * Convert the hashtable to a 1D array.
-     * Go through all of the linked lists in each of the hashValues and add them to the array that will be returned.
+     * Go through all of the chains in each of the hashValues and add them to the array that will be returned.
      * The arrays size will be size (number of elements) to ensure no empty spaces.
      * @return the object array
      */
@@ -261,32 +597,110 @@ class HashTable<T> {
         // returned in, this is a set rather than a list.
 
         // O(M) where M = size returned by size()
+        if (this.open != null) {
+            return this.open.valuesToArray();
+        }
         Object [] retValue = new Object [size()];
         int j = 0;
         for (int i = 0; i < this.table.length; i++) {
+            if (this.table[i] == null) { //no value was ever added to this slot
+                continue;
+            }
             Iterator it = this.table[i].iterator();
             while(it.hasNext()) {
                 retValue[j] = it.next();
                 j++;
             }
         }
+        for (int i = this.migrated; this.oldTable != null && i < this.oldTbSize; i++) { //chains not moved yet
+            if (this.oldTable[i] == null) {
+                continue;
+            }
+            for (T value : this.oldTable[i]) {
+                retValue[j++] = value;
+            }
+        }
         return retValue;
     }
 
-    // inefficiently finds the next prime number >= x
-    // this is written for you
-    public int nextPrime(int x) {
-        while(true) {
-            boolean isPrime = true;
-            for(int i = 2; i <= Math.sqrt(x); i++) {
-                if(x % i == 0) {
-                    isPrime = false;
-                    break;
-                }
+    /**
+     * @return int, the values the last lookup of the chain compared with its value, 0 if there is no chain
+     */
+    private static int probesOf(Bucket<?> chain) {
+        return (chain == null) ? 0 : chain.probes();
+    }
+
+    /**
+     * Start counting the lookups, probes and rehashes of the table
+     * @return HashTableMetrics, the counters, the same object until disableMetrics() is called
+     */
+    public HashTableMetrics enableMetrics() {
+        if (this.metrics == null) {
+            this.metrics = new HashTableMetrics(this);
+            if (this.open != null) {
+                this.open.setMetrics(this.metrics);
             }
-            if(isPrime) return x;
-            x++;
         }
+        return this.metrics;
+    }
+
+    /**
+     * Stop counting, the table goes back to its speed without metrics
+     */
+    public void disableMetrics() {
+        this.metrics = null;
+        if (this.open != null) {
+            this.open.setMetrics(null);
+        }
+    }
+
+    /**
+     * @return HashTableMetrics, the counters of the table or null if they are not kept
+     */
+    public HashTableMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Count the chains by their length: histogram[i] = number of slots holding i values, the last entry also
+     * counts every longer chain. A ROBIN_HOOD table counts its values by probe length instead, with its free slots in [0]
+     * @param buckets the length of the histogram
+     * @return long[], the histogram
+     */
+    long[] chainHistogram(int buckets) {
+        // O(M) where M = the number of slots
+        if (this.open != null) {
+            return this.open.probeHistogram(buckets);
+        }
+        long[] histogram = new long[buckets];
+        Bucket<T>[] t = this.table;
+        for (Bucket<T> chain : t) {
+            histogram[Math.min((chain == null) ? 0 : chain.size(), buckets - 1)]++;
+        }
+        Bucket<T>[] old = this.oldTable;
+        for (int i = this.migrated; old != null && i < old.length; i++) { //chains not moved yet
+            histogram[Math.min((old[i] == null) ? 0 : old[i].size(), buckets - 1)]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * @return Kind, how the table resolves collisions
+     */
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * @return Sizing, how the table picks its number of slots
+     */
+    public Sizing getSizing() {
+        return this.sizing;
+    }
+
+    // finds the next prime number >= x, growing the table no longer needs it (see TableSizes)
+    public int nextPrime(int x) {
+        return TableSizes.nextPrime(x);
     }
 
     //------------------------------------
@@ -330,5 +744,122 @@ class HashTable<T> {
             System.out.println("Yay 4");
         }
 
+        // the open addressing table behind the same methods
+        HashTable<String> open = new HashTable<>(Kind.ROBIN_HOOD);
+        boolean openOk = open.getKind() == Kind.ROBIN_HOOD && open.add("Alice") && open.add("Bob")
+                && !open.add("Alice") && open.size() == 2 && open.remove("Bob") && !open.contains("Bob")
+                && open.get("Alice").equals("Alice") && open.valuesToArray()[0].equals("Alice")
+                && open.getLoad() == 1/11.0 && open.rehash(10) && open.getLoad() == 1/10.0 && !open.rehash(1);
+        HashTable<Integer> openNums = new HashTable<>(Kind.ROBIN_HOOD, 0.9);
+        for (int i = 1; i <= 1000; i++) {
+            openOk &= openNums.add(i) && openNums.getLoad() <= 0.9;
+        }
+        for (int i = 1; i <= 1000; i += 2) {
+            openOk &= openNums.remove(i);
+        }
+        for (int i = 1; i <= 1000; i++) {
+            openOk &= openNums.contains(i) == (i % 2 == 0);
+        }
+        if (openOk && openNums.size() == 500 && openNums.valuesToArray().length == 500) {
+            System.out.println("Yay 5");
+        }
+
+        // an incremental table finds every value while it is growing
+        HashTable<Integer> inc = new HashTable<>(Kind.CHAINED, MAX_LOAD, true);
+        boolean incOk = true, sawResize = false;
+        for (int i = 0; i < 100000 && incOk; i++) {
+            incOk = inc.add(i) && !inc.add(i) && inc.contains(i) && inc.get(i) == i && inc.size() == i + 1;
+            sawResize |= inc.isResizing();
+            if (inc.isResizing() && i % 7 == 0) { //remove a value which may still be in the old table
+                incOk &= inc.remove(i / 2) && !inc.contains(i / 2) && inc.add(i / 2);
+            }
+        }
+        incOk &= sawResize && inc.valuesToArray().length == 100000 && inc.getAvgChainLength() <= 1.2;
+        for (int i = 0; i < 100000 && incOk; i++) {
+            incOk = inc.contains(i);
+        }
+        if (incOk && inc.rehash(inc.nextPrime(300000)) && !inc.isResizing() && inc.contains(99999)
+                && inc.remove(5) && inc.size() == 99999) {
+            System.out.println("Yay 6");
+        }
+
+        // metrics count lookups and probes only while they are enabled
+        HashTable<Integer> counted = new HashTable<>();
+        counted.add(1); counted.add(2); counted.add(3);
+        HashTableMetrics metrics = counted.enableMetrics();
+        counted.add(12); counted.contains(1); counted.contains(23); counted.get(12); //1, 12 and 23 share a slot
+        HashTableMetrics.Snapshot snap = metrics.snapshot();
+        counted.disableMetrics();
+        counted.contains(1);
+        long[] histogram = snap.getChainHistogram();
+        if (snap.getLookups() == 4 && snap.getProbes() == 1 + 1 + 2 + 2 && snap.getMaxProbes() == 2
+                && histogram[0] == 8 && histogram[1] == 2 && histogram[2] == 1 && metrics.getLookups() == 4
+                && counted.getMetrics() == null
+                && snap.toString().startsWith("size 4, load 0.364, 4 lookups, 1.500 probes/lookup (max 2), 0 rehashes")) {
+            System.out.println("Yay 7");
+        }
+
+        HashTable<Integer> grown = new HashTable<>(Kind.ROBIN_HOOD);
+        HashTableMetrics openMetrics = grown.enableMetrics();
+        for (int i = 0; i < 1000; i++) {
+            grown.add(i);
+        }
+        long[] probeCounts = openMetrics.getChainHistogram();
+        long values = 0;
+        for (int i = 1; i < probeCounts.length; i++) {
+            values += probeCounts[i];
+        }
+        // getOrAdd() is one lookup, whether the value was there or not
+        boolean once = grown.getOrAdd(5) == 5 && grown.getOrAdd(1000) == 1000 && grown.size() == 1001;
+        if (once && openMetrics.getLookups() == 1002 && openMetrics.getRehashes() > 0 && openMetrics.getRehashMillis() > 0
+                && openMetrics.getAvgProbesPerLookup() >= 1 && values == 1000) {
+            System.out.println("Yay 8");
+        }
+
+        // a power of two table spreads keys which only differ in their high bits, and keeps 0.7 / 1.2
+        HashTable<Integer> pow = new HashTable<>(Kind.CHAINED, Sizing.POWER_OF_TWO, MAX_LOAD, false);
+        boolean powOk = pow.getSizing() == Sizing.POWER_OF_TWO;
+        for (int i = 0; i < 50000; i++) {
+            powOk &= pow.add(i << 16) && pow.contains(i << 16);
+        }
+        powOk &= pow.size() == 50000 && Long.bitCount(Math.round(pow.size() / pow.getLoad())) == 1
+                && pow.getAvgChainLength() <= 1.2 && pow.rehash(100000) && pow.getLoad() == 50000.0 / 131072
+                && !pow.rehash(1000) && pow.remove(7 << 16) && !pow.contains(7 << 16);
+        HashTable<Integer> min = new HashTable<>(); //Math.abs(Integer.MIN_VALUE) is negative
+        if (powOk && min.add(Integer.MIN_VALUE) && min.contains(Integer.MIN_VALUE) && min.nextPrime(24) == 29) {
+            System.out.println("Yay 9");
+        }
+
+        // array and linked chains hold the same values in the same order, also when hash codes collide
+        HashTable<String> arrays = new HashTable<>();
+        HashTable<String> linked = new HashTable<>(Kind.CHAINED, Sizing.PRIME, Chains.LINKED, MAX_LOAD, false);
+        java.util.Random random = new java.util.Random(16);
+        boolean same = true;
+        for (int i = 0; i < 20000 && same; i++) {
+            String word = (random.nextBoolean() ? "Aa" : "BB") + random.nextInt(500); //"Aa" and "BB" share a hash code
+            same = (random.nextInt(3) > 0) ? arrays.add(word) == linked.add(word)
+                    : arrays.remove(word) == linked.remove(word);
+            same &= arrays.contains(word) == linked.contains(word) && arrays.size() == linked.size();
+        }
+        if (same && java.util.Arrays.equals(arrays.valuesToArray(), linked.valuesToArray())
+                && arrays.getAvgChainLength() == linked.getAvgChainLength()) {
+            System.out.println("Yay 10");
+        }
+
+        // getOrAdd() returns the value already in the table, also one which was not moved into the grown table yet
+        HashTable<String> words = new HashTable<>(Kind.CHAINED, MAX_LOAD, true);
+        String tent = new String("tent");
+        boolean kept = words.getOrAdd(tent) == tent;
+        for (int i = 0; i < 40 && !words.isResizing(); i++) {
+            words.add("w" + i);
+        }
+        kept &= words.isResizing() && words.getOrAdd(new String("tent")) == tent
+                && words.size() == words.valuesToArray().length;
+        HashTable<String> openWords = new HashTable<>(Kind.ROBIN_HOOD);
+        if (kept && openWords.getOrAdd(tent) == tent && openWords.getOrAdd(new String("tent")) == tent
+                && openWords.size() == 1) {
+            System.out.println("Yay 11");
+        }
+
     }
 }
\ No newline at end of file
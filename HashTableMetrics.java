@@ -0,0 +1,185 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * HashTableMetrics.java
+ * Counters of one HashTable: lookups and the probes they took, rehashes and the time spent in them, and a histogram
+ * of the chain lengths. A table only keeps them after HashTable.enableMetrics(), without them the only cost
+ * is one null check per call. The counters are plain fields written by the thread using the table, so another
+ * thread (like JMX) may read slightly old values; the histogram is computed when it is asked for.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class HashTableMetrics implements HashTableMetricsMXBean {
+
+    static final int HISTOGRAM_SIZE = 16; //chains of 15 or more values share the last entry
+
+    private final HashTable<?> table;
+    private long lookups, probes, maxProbes;
+    private long rehashes, rehashNanos;
+
+    /**
+     * The counters of a table at one moment
+     */
+    static final class Snapshot {
+        private final long lookups, probes, maxProbes, rehashes, rehashNanos;
+        private final int size;
+        private final double load;
+        private final long[] chainHistogram;
+
+        Snapshot(HashTableMetrics m) {
+            this.lookups = m.lookups; this.probes = m.probes; this.maxProbes = m.maxProbes;
+            this.rehashes = m.rehashes; this.rehashNanos = m.rehashNanos;
+            this.size = m.table.size();
+            this.load = m.table.getLoad();
+            this.chainHistogram = m.getChainHistogram();
+        }
+
+        public long getLookups() { return this.lookups; }
+
+        public long getProbes() { return this.probes; }
+
+        public long getMaxProbes() { return this.maxProbes; }
+
+        public double getAvgProbesPerLookup() { return (this.lookups == 0) ? 0 : (double)this.probes / this.lookups; }
+
+        public long getRehashes() { return this.rehashes; }
+
+        public long getRehashNanos() { return this.rehashNanos; }
+
+        public int getSize() { return this.size; }
+
+        public double getLoad() { return this.load; }
+
+        public long[] getChainHistogram() { return this.chainHistogram.clone(); }
+
+        @Override
+        public String toString() {
+            StringBuilder s = new StringBuilder();
+            s.append(String.format("size %d, load %.3f, %d lookups, %.3f probes/lookup (max %d), %d rehashes in %.3f ms",
+                    this.size, this.load, this.lookups, getAvgProbesPerLookup(), this.maxProbes, this.rehashes,
+                    this.rehashNanos / 1e6));
+            s.append(", chains:");
+            for (int i = 0; i < this.chainHistogram.length; i++) {
+                if (this.chainHistogram[i] > 0) {
+                    s.append(' ').append(i).append(i == HISTOGRAM_SIZE - 1 ? "+=" : "=").append(this.chainHistogram[i]);
+                }
+            }
+            return s.toString();
+        }
+    }
+
+    /**
+     * Create the metrics of a table, use HashTable.enableMetrics()
+     */
+    HashTableMetrics(HashTable<?> table) {
+        this.table = table;
+    }
+
+    // called by the table
+
+    void lookup(int probes) {
+        this.lookups++;
+        this.probes += probes;
+        if (probes > this.maxProbes) {
+            this.maxProbes = probes;
+        }
+    }
+
+    void rehashed(long nanos) {
+        this.rehashes++;
+        this.rehashNanos += nanos;
+    }
+
+    void rehashTime(long nanos) { //more time of a rehash which is already counted (incremental growth)
+        this.rehashNanos += nanos;
+    }
+
+    /**
+     * @return Snapshot, the counters of the table now
+     */
+    public Snapshot snapshot() {
+        // O(M) where M = the number of slots, for the histogram
+        return new Snapshot(this);
+    }
+
+    /**
+     * Set every counter back to 0
+     */
+    public void reset() {
+        this.lookups = this.probes = this.maxProbes = this.rehashes = this.rehashNanos = 0;
+    }
+
+    /**
+     * Show the metrics over JMX as cs310:type=HashTable,name=NAME
+     * @param name the name of the table
+     * @return ObjectName, the name it was registered with
+     * @throws JMException if the name is invalid or already taken
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("cs310:type=HashTable,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    // HashTableMetricsMXBean
+
+    public long getLookups() { return this.lookups; }
+
+    public long getProbes() { return this.probes; }
+
+    public double getAvgProbesPerLookup() { return (this.lookups == 0) ? 0 : (double)this.probes / this.lookups; }
+
+    public long getMaxProbes() { return this.maxProbes; }
+
+    public long getRehashes() { return this.rehashes; }
+
+    public double getRehashMillis() { return this.rehashNanos / 1e6; }
+
+    public int getSize() { return this.table.size(); }
+
+    public double getLoad() { return this.table.getLoad(); }
+
+    public long[] getChainHistogram() {
+        // read from another thread the table may change while it is counted, count again if it did
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return this.table.chainHistogram(HISTOGRAM_SIZE);
+            }
+            catch (RuntimeException e) {
+                if (attempt == 2) {
+                    return new long[HISTOGRAM_SIZE];
+                }
+            }
+        }
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) throws Exception {
+        HashTable<Position> cells = new HashTable<>();
+        HashTableMetrics metrics = cells.enableMetrics();
+        for (int i = 0; i < 100; i++) {
+            cells.add(new Position(i / 10, i % 10));
+        }
+        ObjectName name = metrics.register("cells");
+        javax.management.MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        long lookups = (Long)server.getAttribute(name, "Lookups");
+        long[] histogram = (long[])server.getAttribute(name, "ChainHistogram");
+        if (lookups == 100 && (Integer)server.getAttribute(name, "Size") == 100 && histogram.length == HISTOGRAM_SIZE
+                && (Long)server.getAttribute(name, "Rehashes") == metrics.snapshot().getRehashes()) {
+            System.out.println("Yay 1");
+        }
+        server.unregisterMBean(name);
+
+        metrics.reset();
+        if (metrics.getLookups() == 0 && metrics.getRehashMillis() == 0 && metrics.snapshot().getSize() == 100) {
+            System.out.println("Yay 2");
+        }
+    }
+}
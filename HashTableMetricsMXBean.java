@@ -0,0 +1,38 @@
+/**
+ * HashTableMetricsMXBean.java
+ * The attributes of HashTableMetrics shown over JMX (jconsole, VisualVM...) once HashTableMetrics.register() was called.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+public interface HashTableMetricsMXBean {
+
+    // number of contains(), get(), add() and remove() calls
+    long getLookups();
+
+    // number of chain nodes (or slots) looked at by those calls
+    long getProbes();
+
+    // probes per lookup, 1 is perfect, growing values mean the hash codes collide
+    double getAvgProbesPerLookup();
+
+    // largest number of probes of a single lookup
+    long getMaxProbes();
+
+    // number of times the table was rebuilt (rehash() or growing)
+    long getRehashes();
+
+    // time spent rebuilding the table
+    double getRehashMillis();
+
+    // number of values and load of the table
+    int getSize();
+
+    double getLoad();
+
+    // histogram[i] = number of chains with i values (probe lengths for a ROBIN_HOOD table), the last entry counts
+    // every longer chain too
+    long[] getChainHistogram();
+}
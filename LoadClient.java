@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * LoadClient.java
+ * Generates load on a GameServer: opens many sessions at once and plays random moves on every one of them,
+ * used by "java PA2 --load PORT SESSIONS COMMANDS".
+ * Every session first asks the size of its board and then sends one "add" or "remove" of a random cell at a time,
+ * sending the next command as soon as the answer of the last one has arrived. The time between sending a command
+ * and reading its answer is its latency, and the report gives the throughput and the latency percentiles.
+ * All the sessions are non-blocking channels of a single Selector on one thread, so 10^4 sessions cost no more
+ * than their sockets and a few small buffers, and the client never competes with the server for threads.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class LoadClient {
+
+    private static final int ANSWER_SIZE = 128; //longest answer of a move, with room to spare
+
+    private final InetSocketAddress address;
+    private final int numSessions;
+    private final int numCommands; //moves per session
+    private final long seed;
+
+    /**
+     * The state of one session
+     */
+    private static class Session {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(ANSWER_SIZE);
+        ByteBuffer out;   //the part of the last command not written yet
+        int rows, cols;   //size of the board, 0 until the answer of "size"
+        int sent;         //moves sent
+        long sentAt;      //System.nanoTime() when the last command was sent
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * The outcome of a run
+     */
+    static class Report {
+        private final long[] latencies; //of every move in nanoseconds, sorted
+        private final long nanos;       //time from the first command sent to the last answer read
+        private final long ok;          //moves answered "ok"
+        private final int sessions;
+
+        Report(long[] latencies, long nanos, long ok, int sessions) {
+            this.latencies = latencies;
+            this.nanos = nanos;
+            this.ok = ok;
+            this.sessions = sessions;
+        }
+
+        public long getCommands() { return this.latencies.length; }
+        public long getOk() { return this.ok; }
+        public double getThroughput() { return this.latencies.length / (this.nanos / 1e9); }
+
+        // the q-th quantile of the latencies in nanoseconds, O(1)
+        public long latency(double q) { return PuzzleBatch.percentile(this.latencies, q); }
+
+        @Override
+        public String toString() {
+            return String.format("%d sessions, %d moves (%d ok) in %.3f s: %.0f moves/sec%n"
+                    + "latency: p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                    this.sessions, this.latencies.length, this.ok, this.nanos / 1e9, getThroughput(),
+                    latency(0.5) / 1e6, latency(0.99) / 1e6, latency(0.999) / 1e6, latency(1) / 1e6);
+        }
+    }
+
+    /**
+     * Create a load client, nothing is sent until run() is called
+     * @param address the address of the server
+     * @param numSessions the number of sessions to play at once
+     * @param numCommands the number of moves of every session
+     * @param seed the seed of the random moves
+     */
+    public LoadClient(InetSocketAddress address, int numSessions, int numCommands, long seed) {
+        if (numSessions <= 0 || numCommands <= 0) {
+            throw new IllegalArgumentException("at least one session and one command are needed");
+        }
+        this.address = address;
+        this.numSessions = numSessions;
+        this.numCommands = numCommands;
+        this.seed = seed;
+    }
+
+    /**
+     * Open the sessions, play every move and close them
+     * @return Report, the latencies and throughput of the moves
+     * @throws IOException if a session cannot connect or the server closes one early
+     */
+    public Report run() throws IOException {
+        // O(S * N) for S sessions of N moves, plus O(S * N log(S * N)) to sort the latencies
+        Random random = new Random(this.seed);
+        long[] latencies = new long[Math.multiplyExact(this.numSessions, this.numCommands)];
+        int measured = 0;
+        long ok = 0;
+        Session[] sessions = new Session[this.numSessions];
+        try (Selector selector = Selector.open()) {
+            try {
+                for (int i = 0; i < this.numSessions; i++) { //all the sessions are open before the first move
+                    SocketChannel channel = SocketChannel.open(this.address);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    channel.configureBlocking(false);
+                    sessions[i] = new Session(channel);
+                    channel.register(selector, SelectionKey.OP_READ, sessions[i]);
+                }
+                long start = System.nanoTime();
+                for (Session session : sessions) {
+                    send(session, "size\n", selector);
+                }
+                int done = 0;
+                while (done < this.numSessions) {
+                    selector.select();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        Session session = (Session)key.attachment();
+                        if (key.isWritable()) {
+                            send(session, null, selector);
+                        }
+                        if (!key.isReadable()) {
+                            continue;
+                        }
+                        if (session.channel.read(session.in) < 0) {
+                            throw new IOException("the server closed a session");
+                        }
+                        String answer = nextLine(session.in);
+                        if (answer == null) { //the rest of the answer is still on its way
+                            continue;
+                        }
+                        if (answer.startsWith("Session closed")) { //evicted, the server closes it next
+                            throw new IOException("the server closed a session: " + answer);
+                        }
+                        long now = System.nanoTime();
+                        if (session.rows == 0) {
+                            String[] size = answer.split(" ");
+                            session.rows = Integer.parseInt(size[1]);
+                            session.cols = Integer.parseInt(size[2]);
+                        }
+                        else {
+                            latencies[measured++] = now - session.sentAt;
+                            ok += answer.equals("ok") ? 1 : 0;
+                        }
+                        if (session.sent == this.numCommands) {
+                            send(session, "quit\n", selector);
+                            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                            done++;
+                            continue;
+                        }
+                        session.sent++;
+                        send(session, (random.nextBoolean() ? "add " : "remove ") + random.nextInt(session.rows)
+                                + " " + random.nextInt(session.cols) + "\n", selector);
+                    }
+                    selector.selectedKeys().clear();
+                }
+                long nanos = System.nanoTime() - start;
+                Arrays.sort(latencies);
+                return new Report(latencies, nanos, ok, this.numSessions);
+            }
+            finally {
+                for (Session session : sessions) {
+                    if (session != null) {
+                        session.channel.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Send a command, or the rest of the last one if command is null, waiting for the channel to be writable
+     * if the command does not fit in its socket buffer
+     */
+    private static void send(Session session, String command, Selector selector) throws IOException {
+        if (command != null) {
+            session.out = ByteBuffer.wrap(command.getBytes(StandardCharsets.US_ASCII));
+            session.sentAt = System.nanoTime();
+        }
+        session.channel.write(session.out);
+        SelectionKey key = session.channel.keyFor(selector);
+        key.interestOps(session.out.hasRemaining() ? key.interestOps() | SelectionKey.OP_WRITE
+                : key.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Take the first complete line out of a buffer being filled
+     * @return String, the line without its new line, null if the buffer holds no complete line yet
+     */
+    private static String nextLine(ByteBuffer in) throws IOException {
+        for (int i = 0; i < in.position(); i++) {
+            if (in.get(i) == '\n') {
+                String line = new String(in.array(), 0, i, StandardCharsets.US_ASCII);
+                in.flip().position(i + 1);
+                in.compact();
+                return line;
+            }
+        }
+        if (!in.hasRemaining()) {
+            throw new IOException("an answer longer than " + ANSWER_SIZE + " bytes");
+        }
+        return null;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) throws IOException {
+        // run from the project directory so that puzzles/ can be found
+        TentTree p4 = PuzzleLoader.load("puzzles/puzzle4.txt");
+        try (GameServer server = new GameServer(p4, 0, 0)) {
+            LoadClient client = new LoadClient(server.getAddress(), 200, 50, 1);
+            Report report = client.run();
+            if (report.getCommands() == 200 * 50 && report.getOk() > 0 && report.getOk() < report.getCommands()
+                    && report.latency(0.5) <= report.latency(0.99) && report.getThroughput() > 0
+                    && report.toString().startsWith("200 sessions, 10000 moves")) {
+                System.out.println("Yay 1");
+            }
+        }
+
+        // the server is gone: the client says so instead of waiting for ever
+        InetSocketAddress address;
+        try (GameServer server = new GameServer(p4, 0, 0)) {
+            address = server.getAddress();
+        }
+        try {
+            new LoadClient(address, 1, 1, 1).run();
+        }
+        catch (IOException e) {
+            System.out.println("Yay 2");
+        }
+
+        // the server evicts sessions idle for 1 ms, before most of them even ask for the size:
+        // the client gives up on the closed session instead of waiting for its answers
+        try (GameServer server = new GameServer(p4, 0, 1)) {
+            long start = System.nanoTime();
+            try {
+                new LoadClient(server.getAddress(), 200, 50, 1).run();
+            }
+            catch (IOException e) {
+                if (System.nanoTime() - start < 10_000_000_000L && server.getEvicted() > 0) {
+                    System.out.println("Yay 3");
+                }
+            }
+        }
+    }
+}
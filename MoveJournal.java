@@ -0,0 +1,144 @@
+/**
+ * MoveJournal.java
+ * The history of the moves made on a TentTree, kept so that they can be undone and redone.
+ * A move is packed into a single long (row, column and what was done), so the journal is one array of longs
+ * and recording a move never creates an object. The moves before top have been done, the moves from top to end
+ * have been undone and can be redone until a new move is recorded.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class MoveJournal {
+
+    // what a move did, the codes of a placed symbol are the BoardStorage codes
+    static final int PLACED_TREE = BoardStorage.TREE;
+    static final int PLACED_TENT = BoardStorage.TENT;
+    static final int REMOVED_TENT = 3;
+
+    // returned by undo() and redo() when there is no move, no move is packed into 0 because what is never 0
+    static final long NONE = 0;
+
+    private long[] moves; //<row, col, what> of every move, see pack()
+    private int top;      //number of moves done
+    private int end;      //number of moves done or undone (undone moves can be redone)
+
+    /**
+     * Create an empty journal
+     */
+    public MoveJournal() {
+        this.moves = new long[16];
+        this.top = 0;
+        this.end = 0;
+    }
+
+    /**
+     * Pack a move into a long: the row in the upper 31 bits, the column in the next 31 bits and
+     * what was done in the lowest 2 bits
+     * @param what PLACED_TREE, PLACED_TENT or REMOVED_TENT
+     * @param row row of the cell, not negative
+     * @param col column of the cell, not negative
+     * @return long, the packed move
+     */
+    static long pack(int what, int row, int col) {
+        return ((long)row << 33) | ((long)col << 2) | what;
+    }
+
+    static int row(long move) {
+        return (int)(move >>> 33);
+    }
+
+    static int col(long move) {
+        return (int)((move >>> 2) & 0x7fffffff);
+    }
+
+    static int what(long move) {
+        return (int)(move & 3);
+    }
+
+    /**
+     * Record a move which was just made, the moves which could be redone are forgotten
+     * @param what PLACED_TREE, PLACED_TENT or REMOVED_TENT
+     * @param row row of the cell
+     * @param col column of the cell
+     */
+    public void record(int what, int row, int col) {
+        // O(1) amortized
+        if (this.top == this.moves.length) {
+            this.moves = java.util.Arrays.copyOf(this.moves, 2 * this.top);
+        }
+        this.moves[this.top++] = pack(what, row, col);
+        this.end = this.top;
+    }
+
+    /**
+     * Take back the last move done, the caller reverts it on the board
+     * @return long, the packed move, NONE if there is nothing to undo
+     */
+    public long undo() {
+        // O(1)
+        return (this.top == 0) ? NONE : this.moves[--this.top];
+    }
+
+    /**
+     * Take the last move undone, the caller makes it again on the board
+     * @return long, the packed move, NONE if there is nothing to redo
+     */
+    public long redo() {
+        // O(1)
+        return (this.top == this.end) ? NONE : this.moves[this.top++];
+    }
+
+    /**
+     * @return int, the number of moves done, which is also a mark to roll back to
+     */
+    public int size() {
+        return this.top;
+    }
+
+    /**
+     * @return int, the number of moves which can be redone
+     */
+    public int redoable() {
+        return this.end - this.top;
+    }
+
+    /**
+     * Forget every move, the board keeps its cells
+     */
+    public void clear() {
+        this.top = 0;
+        this.end = 0;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        long move = pack(REMOVED_TENT, Integer.MAX_VALUE, 123456789);
+        if (move != NONE && row(move) == Integer.MAX_VALUE && col(move) == 123456789 && what(move) == REMOVED_TENT
+                && what(pack(PLACED_TREE, 0, Integer.MAX_VALUE)) == PLACED_TREE
+                && col(pack(PLACED_TENT, 5, Integer.MAX_VALUE)) == Integer.MAX_VALUE) {
+            System.out.println("Yay 1");
+        }
+
+        MoveJournal journal = new MoveJournal();
+        for (int i = 0; i < 40; i++) {
+            journal.record(PLACED_TENT, i, i + 1);
+        }
+        long last = journal.undo();
+        long before = journal.undo();
+        boolean redone = journal.redo() == before && journal.redoable() == 1;
+        journal.record(PLACED_TREE, 7, 7); //forgets the move which could still be redone
+        if (row(last) == 39 && col(before) == 39 && redone && journal.redo() == NONE && journal.size() == 40
+                && what(journal.undo()) == PLACED_TREE) {
+            System.out.println("Yay 2");
+        }
+
+        journal.clear();
+        if (journal.undo() == NONE && journal.redo() == NONE && journal.size() == 0) {
+            System.out.println("Yay 3");
+        }
+    }
+}
@@ -1,18 +1,73 @@
 import java.util.*;
 import java.io.*;
+import java.net.*;
 
 // this is a simple interface to play the tent-tree game interactively
 // TO RUN: java PA2 PUZZLE_FILE
 // For example, java PA2 puzzles/puzzle1.txt
+// or check every puzzle of a directory without playing: java PA2 --batch PUZZLE_DIR [THREADS]
+// or convert a puzzle into the binary format: java PA2 --convert PUZZLE_FILE BINARY_FILE
+// or generate a random puzzle: java PA2 --generate ROWS COLS TREE_DENSITY SEED PUZZLE_FILE [unique]
+// or play commands from a file or stdin without the menu: java PA2 --script PUZZLE_FILE [COMMAND_FILE]
+// (see CommandSession for the commands)
+// or serve the puzzle to many players over a local socket: java PA2 --serve PUZZLE_FILE PORT [IDLE_SECONDS]
+// and load such a server with random moves: java PA2 --load PORT SESSIONS COMMANDS
+// (a PUZZLE_FILE ending with .bin is written in the binary format)
+// (binary puzzle files can be played and checked just like text files)
 
 class PA2{
 
     static TentTree game;
 
+    // the board is written through this buffer by a BoardRenderer, flushed once per board
+    static final Writer screen = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+
     public static void main(String[] args){
 
+        if (args.length >= 2 && args.length <= 3 && args[0].equals("--batch")){
+            try {
+                int threads = (args.length == 3) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+                PuzzleBatch.run(new File(args[1]), threads, System.out);
+            }
+            catch (IllegalArgumentException e) { //also a NumberFormatException
+                System.out.println("Invalid batch settings: " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length == 3 && args[0].equals("--convert")){
+            convert(args[1], args[2]);
+            return;
+        }
+
+        if (args.length >= 6 && args.length <= 7 && args[0].equals("--generate")){
+            generate(args);
+            return;
+        }
+
+        if (args.length >= 2 && args.length <= 3 && args[0].equals("--script")){
+            script(args[1], args.length == 3 ? args[2] : null);
+            return;
+        }
+
+        if (args.length >= 3 && args.length <= 4 && args[0].equals("--serve")){
+            serve(args);
+            return;
+        }
+
+        if (args.length == 4 && args[0].equals("--load")){
+            load(args);
+            return;
+        }
+
         if (args.length !=1){
             System.out.println("Run the file as: java PA2 PUZZLE_FILE_NAME");
+            System.out.println("or as: java PA2 --batch PUZZLE_DIR [THREADS]");
+            System.out.println("or as: java PA2 --convert PUZZLE_FILE BINARY_FILE");
+            System.out.println("or as: java PA2 --generate ROWS COLS TREE_DENSITY SEED PUZZLE_FILE [unique]");
+            System.out.println("or as: java PA2 --script PUZZLE_FILE [COMMAND_FILE]");
+            System.out.println("or as: java PA2 --serve PUZZLE_FILE PORT [IDLE_SECONDS]");
+            System.out.println("or as: java PA2 --load PORT SESSIONS COMMANDS");
             return;
         }
 
@@ -34,7 +89,7 @@ class PA2{
 
         // puzzle already solved
         if (check ==1){
-            System.out.println(game);
+            printBoard();
             System.out.println("Puzzle solved! Congratulations!!!");
             return;
         }
@@ -43,13 +98,13 @@ class PA2{
         Scanner in = new Scanner(System.in);
         int choice = 0;
         while (choice != 1){
-            System.out.println(game);
+            printBoard();
             choice = doMenu(in);
 
             switch (choice){
                 case 1: break;
-                case 2: addTent(); break;
-                case 3: removeTent(); break;
+                case 2: addTent(in); break;
+                case 3: removeTent(in); break;
                 case 4: int status = game.checkStatus();
                     if (status==3){
                         System.out.println("Invalid puzzle! Double check your tent numbers and locations!");
@@ -68,24 +123,32 @@ class PA2{
                         System.out.println("Invalid puzzle! No tree or invalid symbol!");
                     }
                     break;
+                case 5: if (!game.undo()){
+                        System.out.println("Nothing to undo!");
+                    }
+                    break;
+                case 6: if (!game.redo()){
+                        System.out.println("Nothing to redo!");
+                    }
+                    break;
             }
         }
 
     }
 
-    // method that returns the next line not starting with '#' from the scanner
-    // any line starts with '#' will be considered as comments and skipped
-    // if no more line from the scanner, return an empty string
-    public static String nextLine(Scanner scanner){
-        while (scanner.hasNextLine()){
-            String line = scanner.nextLine();
-            if (line.startsWith("#"))
-                continue;
-            return line;
-        }
-        return "";
-    }
+    // print the board followed by an empty line, like System.out.println(game) but without
+    // building the whole board in a String first
 
+    public static void printBoard(){
+        try {
+            new BoardRenderer(game).render(screen);
+            screen.write('\n');
+            screen.flush();
+        }
+        catch(IOException e) {
+            System.out.println(game);
+        }
+    }
 
     // method that accept a file name, open/read from the file
     // and initialize a tent-tree puzzle based on file contents
@@ -93,66 +156,7 @@ class PA2{
     public static void initGame(String fileName){
 
         try {
-
-            String tentSymbol = "X", treeSymbol = "O"; //default value of tent is "X", default value of tree is "O"
-
-            // open the file
-            Scanner fileReader = new Scanner(new File(fileName));
-
-            // first two lines specify the size of the puzzle
-            String line = nextLine(fileReader);
-            int numRows = Integer.parseInt(line);
-            line = nextLine(fileReader);
-            int numCols = Integer.parseInt(line);
-
-            // the next two lines specify the tent and tree symbol (optional)
-            // if not specified, use default values: "O" for tree and "X" for tent
-
-            line = nextLine(fileReader);
-            int numCommas = line.split(",").length;
-            if (numCommas!=3){
-                tentSymbol = line;
-
-                line = nextLine(fileReader);
-                numCommas = line.split(",").length;
-                if (numCommas!=3){
-                    treeSymbol = line;
-                    line = nextLine(fileReader);
-                }
-            }
-
-            // init a 2D grid
-            game = new TentTree(numRows, numCols, tentSymbol, treeSymbol);
-
-            // rest of lines specify initial positions of trees and tents
-            // one cell per line in this format: "row,col,symbol"
-            while (!line.equals("")){
-                String[] oneCellString = line.split(",");
-                if (oneCellString.length!=3)
-                    throw new RuntimeException("invalid file format!");
-
-                Position pos = new Position(Integer.parseInt(oneCellString[0]),
-                        Integer.parseInt(oneCellString[1]));
-
-                // exception (and abort) if row/col index not valid
-                if (!game.isValidPosition(pos))
-                    throw new RuntimeException("invalid index in file!");
-
-                // set a tree/tent at position <row, col>
-                if (treeSymbol.equals(oneCellString[2]))
-                    game.addTree(pos);
-                else
-                if (tentSymbol.equals(oneCellString[2]))
-                    game.addTent(pos);
-                    // exception (and abort) if symbol not recognized
-                else
-                    throw new RuntimeException("invalid symbol in file!");
-
-                // read next line
-                line = nextLine(fileReader);
-            }
-
-            fileReader.close();
+            game = readGame(fileName);
         }
         catch(IOException e) {
             System.out.println("Invalid file");
@@ -166,6 +170,58 @@ class PA2{
 
     }
 
+    // method that accept a file name, open/read from the file
+    // and return the tent-tree puzzle described by the file contents
+    // throws an IOException if the file cannot be read and a RuntimeException if its contents are invalid
+    // (it does not touch the static game, so several threads can read puzzles at the same time)
+    // the file is parsed by PuzzleLoader, straight from its bytes
+
+    public static TentTree readGame(String fileName) throws IOException{
+        return PuzzleLoader.load(fileName);
+    }
+
+    // method that reads a puzzle file (text or binary) and writes it into a binary file
+    // the binary encoding (bitplanes or sparse) is picked from the density of the puzzle
+
+    public static void convert(String fileName, String binaryName){
+        initGame(fileName);
+        if (game==null){
+            System.out.println("Cannot initialize the puzzle!");
+            return;
+        }
+        try {
+            byte encoding = PuzzleBinary.write(game, new File(binaryName).toPath());
+            System.out.println("wrote " + binaryName + " (" + new File(binaryName).length() + " bytes, "
+                    + (encoding == PuzzleBinary.PLANES ? "bitplanes" : "sparse") + ")");
+        }
+        catch(IOException e) {
+            System.out.println("Cannot write " + binaryName + "!");
+        }
+    }
+
+    // method that writes a random puzzle from the arguments of --generate (see PuzzleGenerator)
+    // the file is streamed, so huge puzzles never have their whole text in memory
+
+    public static void generate(String[] args){
+        PuzzleGenerator generator;
+        try {
+            generator = new PuzzleGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    Double.parseDouble(args[3]), Long.parseLong(args[4]), args.length == 7 && args[6].equals("unique"));
+        }
+        catch (IllegalArgumentException e) { //also a NumberFormatException
+            System.out.println("Invalid puzzle settings: " + e.getMessage());
+            return;
+        }
+        try {
+            generator.write(new File(args[5]).toPath());
+            System.out.println("wrote " + args[5] + " (" + generator.generate().numOccupied() + " cells, "
+                    + generator.getGiven() + " tents given)");
+        }
+        catch(IOException e) {
+            System.out.println("Cannot write " + args[5] + "!");
+        }
+    }
+
     public static int doMenu(Scanner in)
     {
         while(true) {
@@ -175,10 +231,12 @@ class PA2{
                 System.out.println("2) Add a tent");
                 System.out.println("3) Remove a tent");
                 System.out.println("4) Check whether the puzzle has been solved");
+                System.out.println("5) Undo the last move");
+                System.out.println("6) Redo the last undone move");
                 int choice = in.nextInt();
                 in.nextLine();
 
-                if(choice < 1 || choice > 4) {
+                if(choice < 1 || choice > 6) {
                     System.out.println("Invalid selection!");
                     continue;
                 }
@@ -193,9 +251,85 @@ class PA2{
 
     }
 
+    // method that plays the commands of a file (or of stdin if commandFile is null) on a puzzle
+    // the answers go through the screen buffer, which is only flushed when it is full and at the end
+
+    public static void script(String fileName, String commandFile){
+        initGame(fileName);
+        if (game==null){
+            System.out.println("Cannot initialize the puzzle!");
+            return;
+        }
+        try (BufferedReader in = (commandFile == null) ? new BufferedReader(new InputStreamReader(System.in), 1 << 16)
+                : new BufferedReader(new FileReader(commandFile), 1 << 16)) {
+            new CommandSession(game).run(in, screen);
+            screen.flush();
+        }
+        catch(IOException e) {
+            System.out.println("Cannot read " + (commandFile == null ? "the commands" : commandFile) + "!");
+        }
+    }
+
+    // method that serves a puzzle on a local port until the process is killed (see GameServer)
+    // every connection plays its own copy of the puzzle with the commands of --script
+
+    public static void serve(String[] args){
+        initGame(args[1]);
+        if (game==null){
+            System.out.println("Cannot initialize the puzzle!");
+            return;
+        }
+        GameServer server;
+        try {
+            int idleSeconds = (args.length == 4) ? Integer.parseInt(args[3]) : GameServer.DEFAULT_IDLE_SECONDS;
+            server = new GameServer(game, Integer.parseInt(args[2]), Math.multiplyExact(idleSeconds, 1000));
+        }
+        catch (IllegalArgumentException | ArithmeticException e) { //also a NumberFormatException
+            System.out.println("Invalid server settings: " + e.getMessage());
+            return;
+        }
+        catch (IOException e) {
+            System.out.println("Cannot listen to port " + args[2] + "!");
+            return;
+        }
+        System.out.println("serving " + args[1] + " on " + server.getAddress() + " with "
+                + (server.isVirtual() ? "virtual" : "platform") + " threads");
+        try {
+            while (true) {
+                Thread.sleep(10000);
+                System.out.println(server.getOpen() + " sessions open, " + server.getServed() + " ended ("
+                        + server.getEvicted() + " idle), " + server.getCommands() + " commands");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // method that plays random moves on many sessions of a local server at once and prints
+    // the throughput and latency percentiles (see LoadClient)
+
+    public static void load(String[] args){
+        LoadClient client;
+        try {
+            client = new LoadClient(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(args[1])), Integer.parseInt(args[2]), Integer.parseInt(args[3]), System.nanoTime());
+        }
+        catch (IllegalArgumentException e) { //also a NumberFormatException
+            System.out.println("Invalid load settings: " + e.getMessage());
+            return;
+        }
+        try {
+            System.out.println(client.run());
+        }
+        catch(IOException e) {
+            System.out.println("Load failed: " + e.getMessage());
+        }
+    }
+
     // attempt to add one tent to board
-    public static void addTent(){
-        Scanner in = new Scanner(System.in);
+    // (the menu's Scanner is shared, a new Scanner would lose the input the other one has buffered)
+    public static void addTent(Scanner in){
 
         // keep asking until a valid position <row, col> is received from user
         while (true){
@@ -232,8 +366,7 @@ class PA2{
     }
 
     // attempt to remove a tent
-    public static void removeTent(){
-        Scanner in = new Scanner(System.in);
+    public static void removeTent(Scanner in){
 
         // keep asking until a valid position <row, col> is received from user
         while (true){
@@ -0,0 +1,88 @@
+/**
+ * PositionCache.java
+ * A flyweight cache of the Positions of one board: at(row, col) always returns the same Position object
+ * for a cell, so code that probes many cells (and the hash tables keyed by those cells) stops
+ * creating a new Position for every probe. Rows are created the first time one of their cells is asked for.
+ * Boards with more than MAX_CELLS cells are not cached, a full cache of such a board would take more memory
+ * than the allocations it saves, so at() returns a new Position for them.
+ * Positions are immutable, so the cache may be shared by several threads: two threads asking for the same
+ * new cell at the same time may each create a Position, which is harmless because they are equal.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class PositionCache {
+
+    // largest board (in cells) whose Positions are kept, about 24 MB when every cell is asked for
+    static final long MAX_CELLS = 1L << 20;
+
+    private final int numRows, numCols;
+    private final Position[][] rows; // rows[r][c] is the Position of <r, c>, null until first asked for
+
+    /**
+     * Create an empty cache for a board
+     * @param numRows number of rows of the board
+     * @param numCols number of columns of the board
+     */
+    public PositionCache(int numRows, int numCols){
+        this.numRows = numRows;
+        this.numCols = numCols;
+        boolean cached = numRows > 0 && numCols > 0 && (long)numRows * numCols <= MAX_CELLS;
+        this.rows = cached ? new Position[numRows][] : null;
+    }
+
+    /**
+     * Return the Position of <row, col>
+     * @param row the row
+     * @param col the column
+     * @return Position, the shared Position of the cell if it is on a cached board, a new Position otherwise
+     */
+    public Position at(int row, int col){
+        // O(1), allocates only the first time a cell (or the first cell of a row) is asked for
+        if (this.rows == null || row < 0 || row >= this.numRows || col < 0 || col >= this.numCols) {
+            return new Position(row, col);
+        }
+        Position[] cells = this.rows[row];
+        if (cells == null) {
+            cells = new Position[this.numCols];
+            this.rows[row] = cells;
+        }
+        Position pos = cells[col];
+        if (pos == null) {
+            pos = new Position(row, col);
+            cells[col] = pos;
+        }
+        return pos;
+    }
+
+    /**
+     * @return boolean, true if the Positions of this board are kept
+     */
+    public boolean isCaching(){
+        return this.rows != null;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args){
+        PositionCache cache = new PositionCache(4, 5);
+        if (cache.isCaching() && cache.at(2, 3) == cache.at(2, 3) && cache.at(2, 3).equals(new Position(2, 3))
+                && cache.at(0, 4).toString().equals("<0,4>")) {
+            System.out.println("Yay 1");
+        }
+
+        // cells outside of the board are still answered, just not kept
+        if (cache.at(4, 0) != cache.at(4, 0) && cache.at(-1, 2).equals(new Position(-1, 2))
+                && cache.at(1, 5).getCol() == 5) {
+            System.out.println("Yay 2");
+        }
+
+        PositionCache huge = new PositionCache(1 << 12, 1 << 12);
+        if (!huge.isCaching() && huge.at(7, 7).equals(new Position(7, 7)) && !new PositionCache(0, 3).isCaching()) {
+            System.out.println("Yay 3");
+        }
+    }
+}
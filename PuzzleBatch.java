@@ -0,0 +1,212 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PuzzleBatch.java
+ * Checks every puzzle file of a directory without playing it, used by "java PA2 --batch PUZZLE_DIR [THREADS]".
+ * Every file is read with the same rules as PA2.initGame(), its status is checked with checkStatus() and,
+ * if the puzzle still needs tents (or has wrong ones), TentSolver decides whether it can be solved.
+ * The files are handled by a pool of threads, and one line per file is printed in file name order,
+ * followed by a summary with the throughput and the median (p50) and 99th percentile (p99) time per file.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class PuzzleBatch {
+
+    /**
+     * What checking one file gave: the line to print and how long it took
+     */
+    static class Outcome {
+        private final String line;
+        private final long nanos;
+        private final boolean valid;
+
+        Outcome(String line, long nanos, boolean valid) {
+            this.line = line;
+            this.nanos = nanos;
+            this.valid = valid;
+        }
+
+        // the result line of the file, O(1)
+        public String getLine() { return this.line; }
+
+        // the time it took to read, check and solve the file, O(1)
+        public long getNanos() { return this.nanos; }
+
+        // true if the file could be read into a puzzle, O(1)
+        public boolean isValid() { return this.valid; }
+    }
+
+    /**
+     * @param status a status returned by TentTree.checkStatus()
+     * @return String, what the status means
+     */
+    static String describe(int status) {
+        switch (status) {
+            case 0: return "not a valid initial setting";
+            case 1: return "solved";
+            case 2: return "unfinished";
+            default: return "invalid tents";
+        }
+    }
+
+    /**
+     * Read, check and (if needed) solve one puzzle file
+     * @param file the puzzle file
+     * @return Outcome, the result line of the file
+     */
+    static Outcome check(File file) {
+        long start = System.nanoTime();
+        StringBuilder line = new StringBuilder(file.getPath()).append(": ");
+        boolean valid = false;
+        try {
+            TentTree game = PA2.readGame(file.getPath());
+            int status = game.checkStatus();
+            line.append("status ").append(status).append(" (").append(describe(status)).append(")");
+            if (status == 2 || status == 3) {
+                TentSolver.Result result = TentSolver.solve(game);
+                line.append(", ").append(result.isSolved() ? "solvable" : result.toString());
+            }
+            valid = true;
+        }
+        catch (IOException e) {
+            line.append("Invalid file");
+        }
+        catch (RuntimeException e) { //the same messages PA2.initGame() prints
+            line.append(e.getMessage());
+        }
+        long nanos = System.nanoTime() - start;
+        line.append(String.format(" [%.3f ms]", nanos / 1e6));
+        return new Outcome(line.toString(), nanos, valid);
+    }
+
+    /**
+     * Check every file in the list with a pool of threads
+     * @param files the puzzle files
+     * @param threads the number of threads to use
+     * @return List, the outcome of every file in the same order as the files
+     */
+    static List<Outcome> checkAll(File[] files, int threads) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>(files.length);
+            for (File file : files) {
+                futures.add(pool.submit(() -> check(file)));
+            }
+            List<Outcome> outcomes = new ArrayList<>(files.length);
+            for (Future<Outcome> future : futures) {
+                outcomes.add(future.get());
+            }
+            return outcomes;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("batch interrupted!");
+        }
+        catch (ExecutionException e) { //check() handles every exception of a file itself
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Return the q-th quantile of sorted times with the nearest-rank method
+     * @param sorted times in ascending order, not empty
+     * @param q the quantile, between 0 and 1
+     * @return long, the time at that quantile
+     */
+    static long percentile(long[] sorted, double q) {
+        int rank = (int)Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Check every file of a directory and print one line per file and a summary
+     * @param dir the directory holding the puzzle files
+     * @param threads the number of threads to use
+     * @param out where to print the results
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public static void run(File dir, int threads, PrintStream out) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("the number of threads must be positive");
+        }
+        File[] files = dir.listFiles(File::isFile);
+        if (files == null) {
+            out.println("Cannot read the directory " + dir + "!");
+            return;
+        }
+        Arrays.sort(files); //print in file name order whichever thread finishes first
+
+        long start = System.nanoTime();
+        List<Outcome> outcomes = checkAll(files, threads);
+        long elapsed = System.nanoTime() - start;
+
+        long[] times = new long[outcomes.size()];
+        int valid = 0;
+        for (int i = 0; i < times.length; i++) {
+            out.println(outcomes.get(i).getLine());
+            times[i] = outcomes.get(i).getNanos();
+            valid += outcomes.get(i).isValid() ? 1 : 0;
+        }
+        Arrays.sort(times);
+        out.printf("%d files (%d valid, %d invalid) in %.3f s with %d threads: %.1f files/sec%n",
+                times.length, valid, times.length - valid, elapsed / 1e9, threads, times.length / (elapsed / 1e9));
+        if (times.length > 0) {
+            out.printf("per file: p50 %.3f ms, p99 %.3f ms%n", percentile(times, 0.5) / 1e6, percentile(times, 0.99) / 1e6);
+        }
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        // run from the project directory so that puzzles/ can be found
+        Outcome p1 = check(new File("puzzles/puzzle1.txt"));
+        Outcome p2 = check(new File("puzzles/puzzle2.txt"));
+        if (p1.isValid() && p1.getLine().contains("status 2 (unfinished), solvable")
+                && p2.isValid() && p2.getLine().contains("status 1 (solved)")) {
+            System.out.println("Yay 1");
+        }
+
+        Outcome i1 = check(new File("puzzles/invalid1.txt"));
+        Outcome i2 = check(new File("puzzles/invalid2.txt"));
+        Outcome none = check(new File("puzzles/no_such_file.txt"));
+        if (!i1.isValid() && i1.getLine().contains("invalid symbol in file!") && !i2.isValid()
+                && i2.getLine().contains("invalid index in file!") && none.getLine().contains("Invalid file")) {
+            System.out.println("Yay 2");
+        }
+
+        long[] times = {5, 1, 4, 2, 3};
+        Arrays.sort(times);
+        List<Outcome> all = checkAll(new File[]{new File("puzzles/puzzle2.txt"), new File("puzzles/invalid1.txt")}, 2);
+        if (percentile(times, 0.5) == 3 && percentile(times, 0.99) == 5 && percentile(times, 0.2) == 1
+                && all.size() == 2 && all.get(0).isValid() && !all.get(1).isValid()) {
+            System.out.println("Yay 3");
+        }
+
+        boolean rejected = false;
+        try {
+            run(new File("puzzles"), 0, System.out);
+        }
+        catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        if (rejected) {
+            System.out.println("Yay 4");
+        }
+    }
+}
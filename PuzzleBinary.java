@@ -0,0 +1,466 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * PuzzleBinary.java
+ * Reads and writes puzzles in a compact binary format, next to the text format of PA2.
+ * PuzzleLoader recognizes a binary file by its first 4 bytes, so PA2 can open either kind of file.
+ *
+ * Layout (little-endian):
+ *   "TTPZ"                 magic, no valid text puzzle starts with it
+ *   byte version           1
+ *   byte encoding          PLANES or SPARSE
+ *   byte flags             FLAG_CLUES if the puzzle has row and column clues
+ *   byte                   reserved, 0
+ *   int rows, int cols     size of the board
+ *   int length, bytes      the tent symbol in UTF-8
+ *   int length, bytes      the tree symbol in UTF-8
+ *   PLANES: the tree bitplane then the tent bitplane in the layout of BitBoard, rows*((cols+63)/64) longs each
+ *   SPARSE: for trees and then tents, the number of cells and the gap before every cell in row-major order,
+ *           all as unsigned varints (7 bits per byte, lowest bits first)
+ *   FLAG_CLUES: every row clue then every column clue plus one as unsigned varints (0 for no clue),
+ *           a reader that does not know the flag ignores them
+ * The writer picks the planes unless the gaps take less than half their size, so all but sparse boards load
+ * with a bulk copy of their planes, and sparse boards only store a couple of bytes per cell.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class PuzzleBinary {
+
+    private static final byte[] MAGIC = {'T', 'T', 'P', 'Z'};
+    private static final byte VERSION = 1;
+    static final byte PLANES = 0; //encoding with one bit per cell
+    static final byte SPARSE = 1; //encoding with delta-coded cells
+    static final byte FLAG_CLUES = 1; //the cells are followed by the clues
+    private static final int BUFFER_SIZE = 1 << 16; //bytes written to the channel at a time
+
+    /**
+     * Check whether the contents of a file start like a binary puzzle
+     * @param buf the contents of the file
+     * @return boolean, true if buf starts with the magic bytes
+     */
+    public static boolean isBinary(ByteBuffer buf) {
+        if (buf.limit() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buf.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //----------------------------------------------------
+    // writing
+
+    /**
+     * Write the puzzle into a binary file
+     * @param game the puzzle
+     * @param path the file to write
+     * @return byte, the encoding that was used, PLANES or SPARSE
+     * @throws IOException if the file cannot be written
+     */
+    public static byte write(TentTree game, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return write(game, channel);
+        }
+    }
+
+    /**
+     * Encode the puzzle into a buffer
+     * @param game the puzzle
+     * @return ByteBuffer, the encoded puzzle ready to be written
+     */
+    static ByteBuffer encode(TentTree game) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(game, Channels.newChannel(bytes));
+        }
+        catch (IOException e) { //a ByteArrayOutputStream does not throw
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Encode the puzzle into a channel, picking the encoding from the density of the board.
+     * The bytes go through a buffer of BUFFER_SIZE bytes and the planes are built one row at a time,
+     * so the encoded puzzle is never in memory as a whole.
+     * @param game the puzzle
+     * @param channel where to write it
+     * @return byte, the encoding that was used, PLANES or SPARSE
+     * @throws IOException if the channel cannot be written to
+     */
+    static byte write(TentTree game, WritableByteChannel channel) throws IOException {
+        // O(M log M + R*C/64) where M is the number of occupied cells
+        final int numRows = game.numRows(), numCols = game.numCols();
+        final long[][] cells = {new long[16], new long[16]}; //row-major index of every tree and every tent
+        final int[] counts = new int[2];
+        game.forEach((row, col, code) -> {
+            int k = (code == BoardStorage.TREE) ? 0 : 1;
+            if (counts[k] == cells[k].length) {
+                cells[k] = Arrays.copyOf(cells[k], 2 * counts[k]);
+            }
+            cells[k][counts[k]++] = (long)row * numCols + col;
+        });
+        long sparseSize = 0;
+        for (int k = 0; k < 2; k++) {
+            Arrays.sort(cells[k], 0, counts[k]);
+            sparseSize += varintSize(counts[k]);
+            for (int j = 0; j < counts[k]; j++) {
+                sparseSize += varintSize(gap(cells[k], j));
+            }
+        }
+        int words = (numCols + 63) >>> 6;
+        long planesSize = BitBoard.fits(numRows, numCols) ? 16L * numRows * words : Long.MAX_VALUE;
+        // the planes load with a bulk copy while the gaps are added cell by cell, so the gaps have to be
+        // less than half the size of the planes to be worth it
+        byte encoding = (planesSize <= 2 * sparseSize) ? PLANES : SPARSE;
+
+        byte[] tent = game.getTentSymbol().getBytes(StandardCharsets.UTF_8);
+        byte[] tree = game.getTreeSymbol().getBytes(StandardCharsets.UTF_8);
+        byte flags = game.hasClues() ? FLAG_CLUES : 0;
+        long cluesSize = 0;
+        if (flags == FLAG_CLUES) {
+            for (int row = 0; row < numRows; row++) {
+                cluesSize += varintSize(game.getRowClue(row) + 1);
+            }
+            for (int col = 0; col < numCols; col++) {
+                cluesSize += varintSize(game.getColClue(col) + 1);
+            }
+        }
+        long size = 24 + tent.length + tree.length + (encoding == PLANES ? planesSize : sparseSize) + cluesSize;
+        if (size > Integer.MAX_VALUE) { //PuzzleLoader could not read it back
+            throw new IllegalArgumentException("the puzzle is too large for a binary file");
+        }
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 24 + tent.length + tree.length))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(MAGIC).put(VERSION).put(encoding).put(flags).put((byte)0);
+        buf.putInt(numRows).putInt(numCols);
+        buf.putInt(tent.length).put(tent).putInt(tree.length).put(tree);
+        if (encoding == PLANES) {
+            long[] line = new long[words]; //one row of the plane
+            for (int k = 0; k < 2; k++) {
+                int j = 0;
+                for (int row = 0; row < numRows; row++) {
+                    Arrays.fill(line, 0);
+                    for (; j < counts[k] && cells[k][j] / numCols == row; j++) {
+                        int col = (int)(cells[k][j] % numCols);
+                        line[col >>> 6] |= 1L << col;
+                    }
+                    for (long word : line) {
+                        room(buf, channel, 8);
+                        buf.putLong(word);
+                    }
+                }
+            }
+        }
+        else {
+            for (int k = 0; k < 2; k++) {
+                room(buf, channel, 10);
+                putVarint(buf, counts[k]);
+                for (int j = 0; j < counts[k]; j++) {
+                    room(buf, channel, 10); //the longest varint of a long
+                    putVarint(buf, gap(cells[k], j));
+                }
+            }
+        }
+        if (flags == FLAG_CLUES) {
+            for (int row = 0; row < numRows; row++) {
+                room(buf, channel, 5); //the longest varint of an int
+                putVarint(buf, game.getRowClue(row) + 1);
+            }
+            for (int col = 0; col < numCols; col++) {
+                room(buf, channel, 5);
+                putVarint(buf, game.getColClue(col) + 1);
+            }
+        }
+        flush(buf, channel);
+        return encoding;
+    }
+
+    /**
+     * Make room for n more bytes in the buffer, writing it out if it is too full
+     */
+    private static void room(ByteBuffer buf, WritableByteChannel channel, int n) throws IOException {
+        if (buf.remaining() < n) {
+            flush(buf, channel);
+        }
+    }
+
+    private static void flush(ByteBuffer buf, WritableByteChannel channel) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * @return long, the number of cells between cell j and the cell before it (or the start of the board)
+     */
+    private static long gap(long[] cells, int j) {
+        return (j == 0) ? cells[0] : cells[j] - cells[j - 1] - 1;
+    }
+
+    /**
+     * @return int, the number of bytes of the varint of a non-negative value
+     */
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte)value);
+    }
+
+    //----------------------------------------------------
+    // reading
+
+    /**
+     * Build the puzzle held in the contents of a binary file
+     * @param contents the whole file, starting with the magic bytes
+     * @return TentTree, the puzzle with its storage already picked
+     * @throws RuntimeException if the file is not a valid binary puzzle, with the messages PA2 uses for text files
+     */
+    public static TentTree read(ByteBuffer contents) {
+        ByteBuffer buf = contents.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            buf.position(MAGIC.length);
+            byte version = buf.get();
+            if (version != VERSION) {
+                throw new RuntimeException("unsupported binary file version " + version + "!");
+            }
+            byte encoding = buf.get();
+            byte flags = buf.get();
+            buf.get(); //reserved
+            int numRows = buf.getInt();
+            int numCols = buf.getInt();
+            String tent = getString(buf);
+            String tree = getString(buf);
+            if (numRows < 0 || numCols < 0) {
+                throw new RuntimeException("invalid file format!");
+            }
+
+            TentTree game;
+            if (encoding == PLANES) {
+                long length = (long)numRows * ((numCols + 63) >>> 6);
+                if (length > buf.remaining() / 16) { //also keeps a corrupt size from allocating huge planes
+                    throw new RuntimeException("invalid file format!");
+                }
+                long[] trees = new long[(int)length];
+                long[] tents = new long[(int)length];
+                buf.asLongBuffer().get(trees).get(tents); //the bulk read
+                buf.position(buf.position() + (int)(16 * length));
+                try {
+                    game = TentTree.fromPlanes(numRows, numCols, tent, tree, trees, tents);
+                }
+                catch (IllegalArgumentException e) { //padding bits or cells holding both a tree and a tent
+                    throw new RuntimeException("invalid file format!");
+                }
+            }
+            else if (encoding == SPARSE) {
+                game = new TentTree(numRows, numCols, tent, tree);
+                long cells = (long)numRows * numCols;
+                for (byte code : new byte[]{BoardStorage.TREE, BoardStorage.TENT}) {
+                    long count = getVarint(buf);
+                    long cell = -1;
+                    for (long j = 0; j < count; j++) {
+                        cell += getVarint(buf) + 1;
+                        if (cell < 0 || cell >= cells) {
+                            throw new RuntimeException("invalid index in file!");
+                        }
+                        game.add((int)(cell / numCols), (int)(cell % numCols), code);
+                    }
+                }
+            }
+            else {
+                throw new RuntimeException("invalid file format!");
+            }
+            if ((flags & FLAG_CLUES) != 0) {
+                try {
+                    game.setClues(getClues(buf, numRows), getClues(buf, numCols));
+                }
+                catch (IllegalArgumentException e) { //a clue larger than its line
+                    throw new RuntimeException("invalid clue in file!");
+                }
+            }
+            // now that the density of the puzzle is known, let the board pick its storage
+            game.optimizeStorage();
+            return game;
+        }
+        catch (BufferUnderflowException e) { //the file ends too early
+            throw new RuntimeException("invalid file format!");
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0 || length > buf.remaining()) {
+            throw new RuntimeException("invalid file format!");
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return int[], the next n clues, TentTree.NO_CLUE for a 0
+     */
+    private static int[] getClues(ByteBuffer buf, int n) {
+        if (n > buf.remaining()) { //every clue takes a byte at least
+            throw new RuntimeException("invalid file format!");
+        }
+        int[] clues = new int[n];
+        for (int i = 0; i < n; i++) {
+            long value = getVarint(buf);
+            if (value > Integer.MAX_VALUE) {
+                throw new RuntimeException("invalid clue in file!");
+            }
+            clues[i] = (int)value - 1;
+        }
+        return clues;
+    }
+
+    private static long getVarint(ByteBuffer buf) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            value |= (long)(b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new RuntimeException("invalid file format!");
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    /**
+     * @return boolean, true if the two boards have the same size, symbols and cells
+     */
+    private static boolean same(TentTree a, TentTree b) {
+        final boolean[] same = {a.numRows() == b.numRows() && a.numCols() == b.numCols()
+                && a.getTentSymbol().equals(b.getTentSymbol()) && a.getTreeSymbol().equals(b.getTreeSymbol())};
+        final int[] count = {0};
+        a.forEach((row, col, code) -> {
+            count[0]++;
+            same[0] &= b.get(new Position(row, col)) != null
+                    && b.get(new Position(row, col)).equals(code == BoardStorage.TREE ? a.getTreeSymbol() : a.getTentSymbol());
+        });
+        b.forEach((row, col, code) -> count[0]--);
+        return same[0] && count[0] == 0;
+    }
+
+    /**
+     * @return TentTree, the board after a round trip through a binary file
+     */
+    private static TentTree roundTrip(TentTree game, byte[] encoding) throws IOException {
+        Path file = Files.createTempFile("puzzle", ".bin");
+        try {
+            encoding[0] = write(game, file);
+            return PuzzleLoader.load(file.toString());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // run from the project directory so that puzzles/ can be found
+        boolean ok = true;
+        byte[] encoding = new byte[1];
+        for (int i = 1; i <= 6; i++) {
+            TentTree text = PuzzleLoader.load("puzzles/puzzle" + i + ".txt");
+            TentTree binary = roundTrip(text, encoding);
+            ok &= same(text, binary) && binary.checkStatus() == text.checkStatus() && binary.rescanStatus() == text.checkStatus();
+        }
+        if (ok) {
+            System.out.println("Yay 1");
+        }
+
+        // a dense board is stored as bitplanes (across word boundaries), a sparse one as gaps
+        TentTree dense = new TentTree(70, 190, "Tent", "Tree");
+        for (int row = 0; row < 70; row += 2) {
+            for (int col = row % 4; col < 190; col += 3) {
+                dense.addTree(new Position(row, col));
+                dense.addTent(new Position(row + 1, col));
+            }
+        }
+        dense.addTent(new Position(0, 129));
+        dense.addTent(new Position(1, 64));
+        TentTree denseCopy = roundTrip(dense, encoding);
+        boolean denseOk = encoding[0] == PLANES && same(dense, denseCopy) && denseCopy.rescanStatus() == dense.checkStatus();
+        TentTree sparse = new TentTree(100000, 100000);
+        sparse.addTree(new Position(99999, 99999)); sparse.addTent(new Position(99998, 99999)); sparse.addTree(new Position(0, 0));
+        TentTree sparseCopy = roundTrip(sparse, encoding);
+        if (denseOk && encoding[0] == SPARSE && same(sparse, sparseCopy) && sparseCopy.checkStatus() == 2) {
+            System.out.println("Yay 2");
+        }
+
+        // corrupt files are rejected with the messages of the text format
+        ByteBuffer good = encode(sparse);
+        ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(good.array(), good.limit() - 1));
+        ByteBuffer outside = encode(sparse);
+        outside.putInt(8, 5); //only 5 rows left
+        String[] errors = new String[2];
+        ByteBuffer[] bad = {truncated, outside};
+        for (int i = 0; i < 2; i++) {
+            try {
+                read(bad[i]);
+            }
+            catch (RuntimeException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+        if (isBinary(good) && !isBinary(ByteBuffer.wrap("5\n5\n".getBytes())) && "invalid file format!".equals(errors[0])
+                && "invalid index in file!".equals(errors[1])) {
+            System.out.println("Yay 3");
+        }
+
+        // the clues follow the cells in both encodings, and a reader skipping them still finds the cells
+        dense.setClues(new int[70], null);
+        int[] colClues = new int[100000];
+        Arrays.fill(colClues, TentTree.NO_CLUE);
+        colClues[0] = 1;
+        sparse.setClues(null, colClues);
+        ByteBuffer clued = encode(dense);
+        TentTree cluedCopy = roundTrip(dense, encoding);
+        boolean cluesOk = encoding[0] == PLANES && same(dense, cluedCopy) && cluedCopy.hasClues()
+                && cluedCopy.getRowClue(69) == 0 && cluedCopy.getColClue(3) == TentTree.NO_CLUE && cluedCopy.checkStatus() == 3;
+        TentTree sparseClued = roundTrip(sparse, encoding);
+        cluesOk &= encoding[0] == SPARSE && sparseClued.getColClue(0) == 1 && sparseClued.getColClue(1) == TentTree.NO_CLUE
+                && sparseClued.getRowClue(99999) == TentTree.NO_CLUE && sparseClued.checkStatus() == 2 && clued.get(6) == FLAG_CLUES;
+        clued.put(6, (byte)0); //an old file, or an old reader
+        TentTree unclued = read(clued);
+        if (cluesOk && !unclued.hasClues() && same(dense, unclued)) {
+            System.out.println("Yay 4");
+        }
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * PuzzleGenerator.java
+ * Builds random solvable puzzles of any size, to get puzzle files far larger than the ones in puzzles/.
+ * Tree/tent pairs are scattered over the board with the rules of the game: a tent goes on an empty cell which
+ * does not touch another tent (TentTree.posTouching()) and its tree on an empty orthogonal neighbor of the tent
+ * (TentTree.posHasNbr()), until the trees cover the asked density of the board. The tents are then taken away,
+ * and the number of tents of every row and column of the solution become the clues of the puzzle.
+ * A puzzle which must have a unique solution gets back some of its tents, until TentSolver can place every
+ * other tent by propagation alone, without ever guessing (see TentSolver.tentsToGive()). This never needs
+ * to count solutions, which could take exponential time on the large clusters of a dense board. Propagation
+ * also uses the clues, so a tree whose line needs every tent it can still take gets its tent without one
+ * being given.
+ * The puzzle is written in the text format of PA2 straight to a Writer, one line per cell, or in the binary
+ * format of PuzzleBinary through a small buffer, so a board of 10^7 cells only costs its board and its
+ * cells in memory, never the whole file.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class PuzzleGenerator {
+
+    // no more than 1 cell in 4 can hold a tent, so no more than 1 in 4 can hold a tree
+    static final double MAX_DENSITY = 0.25;
+    // random cells tried per tree before giving up on the density, a dense board runs out of free cells
+    private static final int ATTEMPTS_PER_TREE = 20;
+    private static final int BUFFER_SIZE = 1 << 16; //chars of the text written at a time
+
+    private final int numRows, numCols;
+    private final double density;
+    private final long seed;
+    private final boolean unique;
+    private TentTree solution; //the generated board with every tent, null until generate() is called
+    private TentTree puzzle;   //the trees and the tents given to make the solution unique
+    private int given;         //number of tents on the puzzle
+
+    /**
+     * Create a generator, nothing is generated until generate() or a write method is called
+     * @param numRows number of rows of the board
+     * @param numCols number of columns of the board
+     * @param density the fraction of the cells which should hold a tree, between 0 and MAX_DENSITY
+     * @param seed the seed of the random cells, the same arguments always give the same puzzle
+     * @param unique true if the puzzle must have a single solution
+     */
+    public PuzzleGenerator(int numRows, int numCols, double density, long seed, boolean unique) {
+        if (numRows <= 0 || numCols <= 0) {
+            throw new IllegalArgumentException("the board must have at least one row and one column");
+        }
+        if (!(density >= 0 && density <= MAX_DENSITY)) {
+            throw new IllegalArgumentException("the tree density must be between 0 and " + MAX_DENSITY);
+        }
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.density = density;
+        this.seed = seed;
+        this.unique = unique;
+    }
+
+    /**
+     * Generate the puzzle, once
+     * @return TentTree, the puzzle: its trees and the tents given to make it unique
+     */
+    public TentTree generate() {
+        // O(T * A + R + C) to place T trees with A attempts each, plus O(T log T) to make the puzzle unique
+        if (this.puzzle != null) {
+            return this.puzzle;
+        }
+        Random random = new Random(this.seed);
+        TentTree solved = new TentTree(this.numRows, this.numCols);
+        long target = Math.round(this.density * this.numRows * this.numCols);
+        long attempts = ATTEMPTS_PER_TREE * target;
+        for (long attempt = 0; attempt < attempts && solved.numOccupied() < 2 * target; attempt++) {
+            int row = random.nextInt(this.numRows), col = random.nextInt(this.numCols);
+            int k = random.nextInt(4);
+            int treeRow = row + TentTree.NBR_ROW[k], treeCol = col + TentTree.NBR_COL[k];
+            if (solved.codeAt(row, col) == BoardStorage.EMPTY && solved.isValidPosition(treeRow, treeCol)
+                    && solved.codeAt(treeRow, treeCol) == BoardStorage.EMPTY
+                    && !solved.posTouching(solved.positionAt(row, col), solved.getTentSymbol())) {
+                solved.add(row, col, BoardStorage.TENT);
+                solved.add(treeRow, treeCol, BoardStorage.TREE);
+            }
+        }
+        solved.optimizeStorage();
+
+        final TentTree trees = new TentTree(this.numRows, this.numCols);
+        solved.forEach((row, col, code) -> {
+            if (code == BoardStorage.TREE) {
+                trees.add(row, col, code);
+            }
+        });
+        trees.optimizeStorage();
+        int[] rowClues = new int[this.numRows], colClues = new int[this.numCols];
+        for (int row = 0; row < this.numRows; row++) {
+            rowClues[row] = solved.rowTents(row);
+        }
+        for (int col = 0; col < this.numCols; col++) {
+            colClues[col] = solved.colTents(col);
+        }
+        trees.setClues(rowClues, colClues);
+        if (this.unique && trees.numOccupied() > 0) {
+            long[] tents = TentSolver.tentsToGive(trees, solved);
+            if (tents == null) { //never happens, the generated tents are a solution
+                throw new IllegalStateException("the generated puzzle has no solution");
+            }
+            for (long key : tents) {
+                trees.add((int)(key >> 32), (int)key, BoardStorage.TENT);
+            }
+            this.given = tents.length;
+        }
+        this.solution = solved;
+        this.puzzle = trees;
+        return trees;
+    }
+
+    /**
+     * @return TentTree, the generated board with all of its tents (a solution of the puzzle)
+     */
+    public TentTree getSolution() {
+        generate();
+        return this.solution;
+    }
+
+    /**
+     * @return int, the number of tents given on the puzzle to make its solution unique
+     */
+    public int getGiven() {
+        generate();
+        return this.given;
+    }
+
+    /**
+     * Write the puzzle in the text format read by PA2: a comment, the "#rows:" and "#cols:" clue lines
+     * (see PuzzleLoader), the size of the board and one "row,col,symbol" line per cell in row-major order. The cells are sorted from their packed positions and every line is
+     * built in a reused char buffer, so no String is created per cell.
+     * @param out where to write the puzzle, it is not closed
+     * @throws IOException if out cannot be written to
+     */
+    public void writeText(Writer out) throws IOException {
+        // O(M log M + N) where M is the number of cells on the puzzle and N the length of the text
+        TentTree board = generate();
+        final long[] keys = new long[board.numOccupied()];
+        final int[] n = {0};
+        board.forEach((row, col, code) -> keys[n[0]++] = BoardMap.key(row, col));
+        Arrays.sort(keys);
+        out.write("# " + this.numRows + " by " + this.numCols + " puzzle, tree density " + this.density
+                + ", seed " + this.seed + (this.unique ? ", unique solution" : "") + "\n");
+        char[] buf = new char[BUFFER_SIZE];
+        int len = 0;
+        for (int k = 0; k < 2 && board.hasClues(); k++) {
+            int lines = (k == 0) ? this.numRows : this.numCols;
+            out.write(buf, 0, len);
+            out.write((k == 0) ? "#rows:" : "#cols:");
+            len = 0;
+            for (int i = 0; i < lines; i++) {
+                if (len + 12 > buf.length) { //a space and an int
+                    out.write(buf, 0, len);
+                    len = 0;
+                }
+                buf[len++] = ' ';
+                len = putInt(buf, len, (k == 0) ? board.getRowClue(i) : board.getColClue(i));
+            }
+            buf[len++] = '\n';
+        }
+        out.write(buf, 0, len);
+        len = 0;
+        out.write(this.numRows + "\n" + this.numCols + "\n");
+        char[] tree = board.getTreeSymbol().toCharArray(), tent = board.getTentSymbol().toCharArray();
+        for (long key : keys) {
+            int row = (int)(key >> 32), col = (int)key;
+            char[] symbol = (board.codeAt(row, col) == BoardStorage.TREE) ? tree : tent;
+            if (len + 24 + symbol.length > buf.length) { //two ints, two commas and a new line take at most 24 chars
+                out.write(buf, 0, len);
+                len = 0;
+            }
+            len = putInt(buf, len, row);
+            buf[len++] = ',';
+            len = putInt(buf, len, col);
+            buf[len++] = ',';
+            System.arraycopy(symbol, 0, buf, len, symbol.length);
+            len += symbol.length;
+            buf[len++] = '\n';
+        }
+        out.write(buf, 0, len);
+        out.flush();
+    }
+
+    /**
+     * Write the puzzle into a file, in the binary format of PuzzleBinary if its name ends with ".bin"
+     * and in the text format otherwise
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        if (path.toString().endsWith(".bin")) {
+            PuzzleBinary.write(generate(), path);
+        }
+        else {
+            try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                writeText(out);
+            }
+        }
+    }
+
+    /**
+     * Write the digits of a non-negative int into buf at len
+     * @return int, the index just past the digits
+     */
+    private static int putInt(char[] buf, int len, int value) {
+        int end = len + ((value == 0) ? 1 : (int)Math.log10(value) + 1);
+        for (int i = end - 1; i >= len; i--) {
+            buf[i] = (char)('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) throws IOException {
+        PuzzleGenerator small = new PuzzleGenerator(30, 40, 0.12, 7, false);
+        TentTree solution = small.getSolution();
+        TentTree puzzle = small.generate();
+        if (puzzle == small.generate() && solution.checkStatus() == 1 && puzzle.checkStatus() == 2
+                && small.getGiven() == 0 && TentSolver.solve(puzzle).getBoard().checkStatus() == 1
+                && puzzle.numOccupied() == solution.numOccupied() / 2 && puzzle.numOccupied() > 0.1 * 30 * 40
+                && puzzle.hasClues() && puzzle.getRowClue(29) == solution.rowTents(29)
+                && puzzle.getColClue(0) == solution.colTents(0) && TentSolver.solve(puzzle).getBoard().hasClues()) {
+            System.out.println("Yay 1");
+        }
+
+        // a unique puzzle is solved into the generated solution, and needs no more tents; without its clues
+        // propagation could not place all of the other tents
+        boolean unique = true;
+        int withoutClues = 0;
+        for (long seed = 0; seed < 20; seed++) {
+            PuzzleGenerator generator = new PuzzleGenerator(12, 12, 0.2, seed, true);
+            TentTree p = generator.generate();
+            TentSolver.Result result = TentSolver.solve(p);
+            unique &= TentSolver.tentsToGive(p, generator.getSolution()).length == 0
+                    && result.getBoard().toString().equals(generator.getSolution().toString());
+            TentTree bare = p.copy();
+            bare.setClues(null, null);
+            withoutClues += TentSolver.tentsToGive(bare, generator.getSolution()).length;
+        }
+        if (unique && withoutClues > 0 && new PuzzleGenerator(12, 12, 0.2, 3, false).getGiven() == 0) {
+            System.out.println("Yay 2");
+        }
+
+        // the text and binary files load back into the same puzzle, the text file the same as writeText()
+        PuzzleGenerator large = new PuzzleGenerator(300, 1000, 0.15, 21, true);
+        Path text = Files.createTempFile("puzzle", ".txt");
+        Path binary = Files.createTempFile("puzzle", ".bin");
+        try {
+            large.write(text);
+            large.write(binary);
+            TentTree fromText = PuzzleLoader.load(text.toString());
+            TentTree fromBinary = PuzzleLoader.load(binary.toString());
+            StringWriter copy = new StringWriter();
+            large.writeText(copy);
+            String expected = large.generate().toString();
+            if (fromText.toString().equals(expected) && fromBinary.toString().equals(expected)
+                    && copy.toString().equals(new String(Files.readAllBytes(text), StandardCharsets.UTF_8))
+                    && fromText.checkStatus() == 2 && TentSolver.solve(fromText).getBoard().checkStatus() == 1
+                    && fromText.getColClue(999) == large.generate().getColClue(999)
+                    && fromBinary.getRowClue(299) == large.generate().getRowClue(299)) {
+                System.out.println("Yay 3");
+            }
+        }
+        finally {
+            Files.delete(text);
+            Files.delete(binary);
+        }
+
+        boolean rejected = false;
+        try {
+            new PuzzleGenerator(10, 10, 0.3, 1, false);
+        }
+        catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        if (rejected && new PuzzleGenerator(10, 10, 0, 1, true).generate().numOccupied() == 0) {
+            System.out.println("Yay 4");
+        }
+    }
+}
@@ -0,0 +1,435 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PuzzleLoader.java
+ * Reads a puzzle file into a TentTree by scanning its bytes, used by PA2.readGame().
+ * Small files are read into a single buffer and large files are memory-mapped. The "row,col,symbol" lines are
+ * parsed in place: no String, String[] or Position is created for a cell, so loading a board with millions of
+ * cells only costs the work of adding them to the board.
+ *
+ * The file format and its errors are exactly those of the Scanner and String.split(",") parser PA2 used before:
+ * lines starting with '#' are comments, lines end with "\n", "\r\n" or "\r", the first empty line ends the file,
+ * the tent and tree symbol lines are optional (a line which does not split into 3 fields is a symbol line),
+ * trailing empty fields of a line are ignored like split() does, and an invalid file throws a RuntimeException
+ * with the same message ("invalid file format!", "invalid index in file!", "invalid symbol in file!" or the
+ * message of Integer.parseInt()). Anything unusual, like a "+" sign or non-ASCII digits, is handed
+ * to Integer.parseInt() itself so that it is accepted or rejected just like before.
+ * A file starting with the header of a binary puzzle is handed to PuzzleBinary instead.
+ *
+ * A puzzle may also give the number of tents of every row and every column (see TentTree.setClues()) in two
+ * comment lines, which anything reading the old format skips: "#rows: " and "#cols: " followed by one clue
+ * per line of the board, separated by spaces or commas, "-" for a line without a clue. They may appear
+ * anywhere before the end of the cells, a wrong clue line throws "invalid clue in file!".
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class PuzzleLoader {
+
+    private static final long MAP_THRESHOLD = 1 << 16; //files larger than this are memory-mapped
+    static final byte[] ROW_CLUES = "#rows:".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] COL_CLUES = "#cols:".getBytes(StandardCharsets.US_ASCII);
+
+    private final ByteBuffer buf; //the whole file
+    private final int limit;      //length of the file
+    private final Charset charset; //the charset Scanner would decode the file with
+    private final boolean byteSymbols; //true if equal symbols always have equal bytes in the charset
+    private int pos;              //start of the next line
+    private int start, end;       //bounds of the current line, start == end for an empty line
+    private int rowClues = -1, colClues = -1; //start of the "#rows:" and "#cols:" lines, -1 if there is none
+
+    /**
+     * @param buf the contents of the file, from position 0 to its limit
+     */
+    private PuzzleLoader(ByteBuffer buf) {
+        this.buf = buf;
+        this.limit = buf.limit();
+        this.charset = Charset.defaultCharset();
+        this.byteSymbols = this.charset.equals(StandardCharsets.UTF_8) || this.charset.equals(StandardCharsets.ISO_8859_1)
+                || this.charset.equals(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Read the puzzle file, in the text format or the binary format of PuzzleBinary
+     * @param fileName name of the puzzle file
+     * @return TentTree, the puzzle with its storage already picked
+     * @throws IOException if the file cannot be read
+     * @throws RuntimeException if the contents of the file are invalid, with the same messages as PA2
+     */
+    public static TentTree load(String fileName) throws IOException {
+        ByteBuffer contents = read(Paths.get(fileName));
+        if (PuzzleBinary.isBinary(contents)) {
+            return PuzzleBinary.read(contents);
+        }
+        return new PuzzleLoader(contents).parse();
+    }
+
+    /**
+     * Read a whole file into a buffer, memory-mapping it if it is large
+     * @param path the file
+     * @return ByteBuffer, the contents of the file
+     * @throws IOException if the file cannot be read or is larger than 2GB
+     */
+    static ByteBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("file is too large: " + path);
+            }
+            if (size > MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size); //stays valid after closing the channel
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int)size);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // read until the buffer is full or the file ends
+            }
+            buf.flip();
+            return buf;
+        }
+    }
+
+    /**
+     * Move to the next line which does not start with '#' (a comment)
+     * @return boolean, false if the line is empty (or there are no more lines)
+     */
+    private boolean nextLine() {
+        // O(L) where L is the length of the lines skipped
+        while (this.pos < this.limit) {
+            int i = this.pos;
+            while (i < this.limit && this.buf.get(i) != '\n' && this.buf.get(i) != '\r') {
+                i++;
+            }
+            this.start = this.pos;
+            this.end = i;
+            if (i < this.limit && this.buf.get(i) == '\r' && i + 1 < this.limit && this.buf.get(i + 1) == '\n') {
+                i++; //"\r\n" ends a single line
+            }
+            this.pos = i + 1;
+            if (this.end > this.start && this.buf.get(this.start) == '#') {
+                if (startsWith(ROW_CLUES)) {
+                    this.rowClues = this.start;
+                }
+                else if (startsWith(COL_CLUES)) {
+                    this.colClues = this.start;
+                }
+                continue;
+            }
+            return this.end > this.start;
+        }
+        this.start = this.end = this.limit;
+        return false;
+    }
+
+    /**
+     * @return boolean, true if the current line starts with the prefix
+     */
+    private boolean startsWith(byte[] prefix) {
+        if (this.end - this.start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (this.buf.get(this.start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse the clues of a "#rows:" or "#cols:" line
+     * @param from start of the line
+     * @param lines the number of clues the line must have
+     * @return int[], the clues, TentTree.NO_CLUE for "-"
+     * @throws RuntimeException if the line does not hold exactly that many clues
+     */
+    private int[] clues(int from, int lines) {
+        // O(L) where L is the length of the line
+        int i = from + ROW_CLUES.length; //both prefixes have the same length
+        int[] clues = new int[lines];
+        int n = 0;
+        while (true) {
+            while (i < this.limit && (this.buf.get(i) == ' ' || this.buf.get(i) == ',')) {
+                i++;
+            }
+            if (i == this.limit || this.buf.get(i) == '\n' || this.buf.get(i) == '\r') {
+                break;
+            }
+            int j = i;
+            while (j < this.limit && " ,\n\r".indexOf(this.buf.get(j)) < 0) {
+                j++;
+            }
+            if (n == lines) {
+                throw new RuntimeException("invalid clue in file!");
+            }
+            if (j == i + 1 && this.buf.get(i) == '-') {
+                clues[n++] = TentTree.NO_CLUE;
+            }
+            else {
+                try {
+                    clues[n++] = parseInt(i, j);
+                }
+                catch (NumberFormatException e) {
+                    throw new RuntimeException("invalid clue in file!");
+                }
+            }
+            i = j;
+        }
+        if (n != lines) {
+            throw new RuntimeException("invalid clue in file!");
+        }
+        return clues;
+    }
+
+    /**
+     * @return String, the bytes from..to-1 decoded like Scanner would
+     */
+    private String string(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = this.buf.get(i);
+        }
+        return new String(bytes, this.charset);
+    }
+
+    /**
+     * Return the index just past field 3 of the current line split at its commas, or -1 if the line
+     * does not split into exactly 3 fields (after dropping trailing empty fields, like String.split())
+     * @return int, the end of the third field or -1
+     */
+    private int thirdFieldEnd() {
+        int last = this.end - 1;
+        while (last >= this.start && this.buf.get(last) == ',') { //trailing empty fields do not count
+            last--;
+        }
+        if (last < this.start) { //nothing but commas (split() gives 0 fields), or an empty line (1 field)
+            return -1;
+        }
+        int commas = 0, third = -1;
+        for (int i = this.start; i <= last; i++) {
+            if (this.buf.get(i) == ',' && ++commas == 3) {
+                return -1;
+            }
+        }
+        if (commas != 2) {
+            return -1;
+        }
+        for (third = last; third < this.end && this.buf.get(third) != ','; third++) {
+            // find the comma (or end of line) after the last non-empty field
+        }
+        return third;
+    }
+
+    /**
+     * Parse the bytes from..to-1 as an int, handing anything but plain ASCII digits to Integer.parseInt()
+     * @return int, the number
+     * @throws NumberFormatException like Integer.parseInt()
+     */
+    private int parseInt(int from, int to) {
+        int i = from;
+        boolean negative = i < to && this.buf.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == to || to - i > 9) { //empty, or might not fit into an int
+            return Integer.parseInt(string(from, to));
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            int digit = this.buf.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(string(from, to));
+            }
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return boolean, true if the bytes from..to-1 are the symbol
+     */
+    private boolean matches(int from, int to, byte[] symbol, String text) {
+        if (!this.byteSymbols) {
+            return text.equals(string(from, to));
+        }
+        if (to - from != symbol.length) {
+            return false;
+        }
+        for (int i = 0; i < symbol.length; i++) {
+            if (this.buf.get(from + i) != symbol[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse the whole file, following the same steps as PA2 did
+     * @return TentTree, the puzzle
+     */
+    private TentTree parse() {
+        // O(N) where N is the length of the file
+        String tentSymbol = "X", treeSymbol = "O"; //default value of tent is "X", default value of tree is "O"
+
+        // first two lines specify the size of the puzzle
+        nextLine();
+        int numRows = parseInt(this.start, this.end);
+        nextLine();
+        int numCols = parseInt(this.start, this.end);
+
+        // the next two lines specify the tent and tree symbol (optional)
+        boolean more = nextLine();
+        if (thirdFieldEnd() < 0) {
+            tentSymbol = string(this.start, this.end);
+            more = nextLine();
+            if (thirdFieldEnd() < 0) {
+                treeSymbol = string(this.start, this.end);
+                more = nextLine();
+            }
+        }
+
+        TentTree game = new TentTree(numRows, numCols, tentSymbol, treeSymbol);
+        byte[] tent = tentSymbol.getBytes(this.charset);
+        byte[] tree = treeSymbol.getBytes(this.charset);
+
+        // rest of lines specify initial positions of trees and tents, "row,col,symbol" up to the first empty line
+        while (more) {
+            int third = thirdFieldEnd();
+            if (third < 0) {
+                throw new RuntimeException("invalid file format!");
+            }
+            int comma1 = this.start;
+            while (this.buf.get(comma1) != ',') {
+                comma1++;
+            }
+            int comma2 = comma1 + 1;
+            while (this.buf.get(comma2) != ',') {
+                comma2++;
+            }
+            int row = parseInt(this.start, comma1);
+            int col = parseInt(comma1 + 1, comma2);
+
+            // exception (and abort) if row/col index not valid
+            if (!game.isValidPosition(row, col)) {
+                throw new RuntimeException("invalid index in file!");
+            }
+
+            // set a tree/tent at position <row, col>, exception (and abort) if symbol not recognized
+            if (matches(comma2 + 1, third, tree, treeSymbol)) {
+                game.add(row, col, BoardStorage.TREE);
+            }
+            else if (matches(comma2 + 1, third, tent, tentSymbol)) {
+                game.add(row, col, BoardStorage.TENT);
+            }
+            else {
+                throw new RuntimeException("invalid symbol in file!");
+            }
+            more = nextLine();
+        }
+
+        if (this.rowClues >= 0 || this.colClues >= 0) {
+            try {
+                game.setClues(this.rowClues >= 0 ? clues(this.rowClues, numRows) : null,
+                        this.colClues >= 0 ? clues(this.colClues, numCols) : null);
+            }
+            catch (IllegalArgumentException e) { //a clue larger than its line or negative
+                throw new RuntimeException("invalid clue in file!");
+            }
+        }
+
+        // now that the density of the puzzle is known, let the board pick its storage
+        game.optimizeStorage();
+        return game;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    /**
+     * Load a puzzle from text through a temporary file
+     * @return TentTree, the puzzle
+     */
+    private static TentTree loadText(String text) throws IOException {
+        Path file = Files.createTempFile("puzzle", ".txt");
+        try {
+            Files.write(file, text.getBytes(Charset.defaultCharset()));
+            return load(file.toString());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * @return String, the message of the exception loading the text throws, null if it loads
+     */
+    private static String errorOf(String text) throws IOException {
+        try {
+            loadText(text);
+            return null;
+        }
+        catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // run from the project directory so that puzzles/ can be found
+        TentTree p4 = load("puzzles/puzzle4.txt");
+        if (p4.numRows() == 5 && p4.numCols() == 5 && p4.checkStatus() == 2 && p4.get(new Position(3, 0)).equals("O")) {
+            System.out.println("Yay 1");
+        }
+
+        boolean ok = true;
+        for (String name : new String[]{"invalid1", "invalid2"}) {
+            try {
+                load("puzzles/" + name + ".txt");
+                ok = false;
+            }
+            catch (RuntimeException e) {
+                ok &= e.getMessage().equals(name.equals("invalid1") ? "invalid symbol in file!" : "invalid index in file!");
+            }
+        }
+        if (ok) {
+            System.out.println("Yay 2");
+        }
+
+        // comments, CRLF and CR line ends, symbol lines, trailing empty fields and the empty line ending the cells
+        TentTree custom = loadText("# c\r\n2\r\n3\r\n# symbols\r\nTent\r\nTree\r\n0,0,Tree\r\n0,1,Tent,,\r\n\r\n1,2,junk\r\n");
+        TentTree oneSymbol = loadText("2\r2\rT\r0,0,O\r1,1,T");
+        TentTree signs = loadText("2\n2\n+1,-0,O\n");
+        if (custom.getTentSymbol().equals("Tent") && custom.get(new Position(0, 0)).equals("Tree") && custom.hasTent(new Position(0, 1))
+                && custom.get(new Position(1, 2)) == null && oneSymbol.getTentSymbol().equals("T") && oneSymbol.hasTent(new Position(1, 1))
+                && oneSymbol.getTreeSymbol().equals("O") && signs.get(new Position(1, 0)).equals("O")) {
+            System.out.println("Yay 3");
+        }
+
+        // the errors are those of the old parser, Integer.parseInt() messages included
+        if ("invalid file format!".equals(errorOf("2\n2\nT\nO\n0,0\n")) && "invalid file format!".equals(errorOf("2\n2\nT\nO\n0,0,O,X\n"))
+                && "For input string: \"a\"".equals(errorOf("2\n2\n0,a,O\n")) && "For input string: \"\"".equals(errorOf(""))
+                && errorOf("2\n2\n0,99999999999,O\n").startsWith("For input") && errorOf("2\n2\n0,0\n") == null
+                && "invalid index in file!".equals(errorOf("2\n2\n2,0,O\n"))) {
+            System.out.println("Yay 4");
+        }
+
+        // clue lines are comments to an old reader, a clue too large for its line or a missing clue is an error
+        TentTree clued = loadText("#rows: 1, -\n2\n3\n#cols: 0 1 -\n0,0,O\n0,1,X\n");
+        TentTree plain = loadText("# rows: 1 -\n2\n2\n");
+        if (clued.hasClues() && clued.getRowClue(0) == 1 && clued.getRowClue(1) == TentTree.NO_CLUE
+                && clued.getColClue(1) == 1 && clued.getColClue(2) == TentTree.NO_CLUE && clued.checkStatus() == 1
+                && !plain.hasClues() && "invalid clue in file!".equals(errorOf("#rows: 1\n2\n2\n"))
+                && "invalid clue in file!".equals(errorOf("#cols: 3 0\n2\n2\n"))
+                && "invalid clue in file!".equals(errorOf("#cols: 1 a\n2\n2\n"))) {
+            System.out.println("Yay 5");
+        }
+    }
+}
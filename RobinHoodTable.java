@@ -0,0 +1,350 @@
+/**
+ * RobinHoodTable.java
+ * The open addressing version of HashTable, used by HashTable when it is created with HashTable.Kind.ROBIN_HOOD.
+ * The values are kept in one array next to their hash codes, so a lookup walks neighboring slots instead of
+ * following the nodes of a linked list. Collisions are resolved with linear probing and Robin Hood displacement:
+ * a value which is further away from its home slot takes the slot of a value which is closer to its own,
+ * which keeps every probe sequence short and lets an unsuccessful search stop early.
+ * Removal shifts the following values back, so the table never holds "deleted" markers.
+ * The table size is a prime from TableSizes like in the chained table, and the table grows once its load passes maxLoad.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class RobinHoodTable<T> {
+
+    private static final int FREE = -1; //distance of a free slot
+
+    private Object[] values; //the value in every slot, null if the slot is free
+    private int[] hashes;    //the hash of the value in every slot, so hashCode() is never called twice
+    private int[] dists;     //how far the value in every slot is from its home slot, FREE if the slot is free
+    private int tbSize;      //number of slots, a prime
+    private int size;        //number of values
+    private final double maxLoad; //the table grows once size / tbSize is larger than this
+    private HashTableMetrics metrics; //null unless the HashTable keeps metrics
+
+    /**
+     * Create an empty table
+     * @param capacity the initial number of slots, should be a prime
+     * @param maxLoad the largest load before the table grows, between 0 and 1
+     */
+    public RobinHoodTable(int capacity, double maxLoad) {
+        if (!(maxLoad > 0 && maxLoad < 1)) {
+            throw new IllegalArgumentException("the load of an open addressing table must be between 0 and 1");
+        }
+        this.maxLoad = maxLoad;
+        allocate(Math.max(2, capacity));
+    }
+
+    private void allocate(int capacity) {
+        this.tbSize = capacity;
+        this.values = new Object[capacity];
+        this.hashes = new int[capacity];
+        this.dists = new int[capacity];
+        java.util.Arrays.fill(this.dists, FREE);
+        this.size = 0;
+    }
+
+    /**
+     * @return int, the hash code of the value, never negative
+     */
+    private static int hash(Object value) {
+        return value.hashCode() & 0x7fffffff;
+    }
+
+    /**
+     * Find the slot which holds a value equal to value
+     * @return int, the slot, or -1 if no such value is in the table
+     */
+    private int find(Object value) {
+        // O(1) average case
+        int h = hash(value);
+        int i = h % this.tbSize;
+        int d = 0;
+        for (; this.dists[i] >= d; d++) { //stops at a free slot too, FREE is less than any distance
+            if (this.hashes[i] == h && this.values[i].equals(value)) {
+                if (this.metrics != null) {
+                    this.metrics.lookup(d + 1);
+                }
+                return i;
+            }
+            i = (i + 1 == this.tbSize) ? 0 : i + 1;
+        }
+        if (this.metrics != null) {
+            this.metrics.lookup(d + 1);
+        }
+        return -1; //the value would have displaced the value in slot i, so it is not in the table
+    }
+
+    /**
+     * Add the value unless an equal value is already in the table, grows the table if it gets too full
+     * @param value value that needs to be added
+     * @return boolean, true if successfully added, false otherwise
+     */
+    public boolean add(T value) {
+        // O(1) amortized
+        if (insert(value, hash(value), this.metrics) >= 0) {
+            return false;
+        }
+        grow();
+        return true;
+    }
+
+    /**
+     * Return the value in the table which is equal to value, or add value if there is none, in one probe sequence
+     * @param value value that needs to be added
+     * @return T, the value FROM THE TABLE if there was one, value itself if it was added
+     */
+    @SuppressWarnings("unchecked")
+    public T getOrAdd(T value) {
+        // O(1) amortized
+        int i = insert(value, hash(value), this.metrics);
+        if (i >= 0) {
+            return (T)this.values[i];
+        }
+        grow();
+        return value;
+    }
+
+    /**
+     * Grow the table if it got too full
+     */
+    private void grow() {
+        if (this.size > this.maxLoad * this.tbSize) {
+            int newSize = TableSizes.growPrime(this.tbSize); //O(1), the first prime > 2 * tbSize
+            while (!rehash(newSize) && TableSizes.growPrime(newSize) != newSize) {
+                newSize = TableSizes.growPrime(newSize);
+            }
+        }
+    }
+
+    /**
+     * Put the value into its slot with Robin Hood displacement
+     * @return int, the slot of the equal value already in the table, -1 if value was added
+     */
+    private int insert(Object value, int h, HashTableMetrics metrics) {
+        int i = h % this.tbSize;
+        int d = 0;
+        boolean displaced = false; //once a value was displaced the new value is known not to be in the table
+        int looked = 1; //slots looked at while the new value could still be in the table
+        while (this.dists[i] != FREE) {
+            if (!displaced && this.hashes[i] == h && this.values[i].equals(value)) {
+                if (metrics != null) {
+                    metrics.lookup(looked);
+                }
+                return i;
+            }
+            int other = this.dists[i];
+            if (other < d) { //take the slot and carry on with the value which was in it
+                Object v = this.values[i];
+                int oh = this.hashes[i];
+                this.values[i] = value;
+                this.hashes[i] = h;
+                this.dists[i] = d;
+                value = v;
+                h = oh;
+                d = other;
+                displaced = true;
+            }
+            i = (i + 1 == this.tbSize) ? 0 : i + 1;
+            d++;
+            looked += displaced ? 0 : 1;
+        }
+        if (metrics != null) {
+            metrics.lookup(looked);
+        }
+        this.values[i] = value;
+        this.hashes[i] = h;
+        this.dists[i] = d;
+        this.size++;
+        return -1;
+    }
+
+    /**
+     * Remove the value, the values after it are shifted back by one slot until one is found in its home slot
+     * @param value value to be removed
+     * @return boolean, true if successfully removed item, false otherwise
+     */
+    public boolean remove(T value) {
+        // O(1) average case
+        int hole = find(value);
+        if (hole < 0) {
+            return false;
+        }
+        int i = (hole + 1 == this.tbSize) ? 0 : hole + 1;
+        while (this.dists[i] > 0) { //stops at a free slot and at a value in its home slot
+            this.values[hole] = this.values[i];
+            this.hashes[hole] = this.hashes[i];
+            this.dists[hole] = this.dists[i] - 1;
+            hole = i;
+            i = (i + 1 == this.tbSize) ? 0 : i + 1;
+        }
+        this.values[hole] = null;
+        this.dists[hole] = FREE;
+        this.size--;
+        return true;
+    }
+
+    /**
+     * @param value value that is being checked
+     * @return boolean, true if the value is in the table, false otherwise
+     */
+    public boolean contains(T value) {
+        // O(1) average case
+        return find(value) >= 0;
+    }
+
+    /**
+     * @param value value that is being checked
+     * @return T, the value FROM THE TABLE which is equal to value, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(T value) {
+        // O(1) average case
+        int i = find(value);
+        return (i < 0) ? null : (T)this.values[i];
+    }
+
+    /**
+     * Move every value into a table with newCapacity slots
+     * @param newCapacity the size of the new table
+     * @return boolean, true if the table was resized, false if the new load would be more than maxLoad
+     */
+    public boolean rehash(int newCapacity) {
+        // O(M) where M = the number of slots
+        if (newCapacity <= 0 || (double)this.size / newCapacity > this.maxLoad) {
+            return false;
+        }
+        long start = (this.metrics != null) ? System.nanoTime() : 0;
+        Object[] oldValues = this.values;
+        int[] oldHashes = this.hashes;
+        int[] oldDists = this.dists;
+        allocate(newCapacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldDists[i] != FREE) {
+                insert(oldValues[i], oldHashes[i], null); //the stored hash saves calling hashCode() again
+            }
+        }
+        if (this.metrics != null) {
+            this.metrics.rehashed(System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    /**
+     * Count the lookups and rehashes of the table, null to stop counting
+     */
+    void setMetrics(HashTableMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Count the values by their probe length (distance from the home slot + 1), the free slots are counted in [0]
+     * and the last entry also counts every longer probe length
+     * @param buckets the length of the histogram
+     * @return long[], the histogram
+     */
+    long[] probeHistogram(int buckets) {
+        // O(M) where M = the number of slots
+        long[] histogram = new long[buckets];
+        int[] d = this.dists;
+        for (int dist : d) {
+            histogram[(dist == FREE) ? 0 : Math.min(dist + 1, buckets - 1)]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * @return int, the number of values in the table
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return int, the number of slots in the table
+     */
+    public int capacity() {
+        return this.tbSize;
+    }
+
+    /**
+     * Return the average number of slots a successful search looks at, the counterpart of
+     * the average chain length of the chained table
+     * @return double, 1 + the average distance of a value from its home slot, 0 if the table is empty
+     */
+    public double getAvgProbeLength() {
+        // O(M) where M = the number of slots
+        if (this.size == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < this.tbSize; i++) {
+            if (this.dists[i] != FREE) {
+                total += this.dists[i] + 1;
+            }
+        }
+        return (double)total / this.size;
+    }
+
+    /**
+     * @return Object[], every value in the table, the array has exactly size() elements
+     */
+    public Object[] valuesToArray() {
+        // O(M) where M = the number of slots
+        Object[] ret = new Object[this.size];
+        int j = 0;
+        for (int i = 0; i < this.tbSize; i++) {
+            if (this.dists[i] != FREE) {
+                ret[j++] = this.values[i];
+            }
+        }
+        return ret;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        RobinHoodTable<String> names = new RobinHoodTable<>(11, 0.7);
+        if (names.add("Alice") && names.add("Bob") && !names.add("Alice") && names.size() == 2
+                && names.get("Alice").equals("Alice") && names.get("Carol") == null) {
+            System.out.println("Yay 1");
+        }
+
+        // removing from a cluster of colliding values keeps the rest of the cluster reachable
+        RobinHoodTable<Integer> nums = new RobinHoodTable<>(13, 0.9);
+        for (int i = 0; i < 10; i++) {
+            nums.add(i * 13); //every value has the same home slot
+        }
+        boolean reachable = nums.remove(0) && nums.remove(52) && !nums.remove(52) && nums.size() == 8;
+        for (int i = 1; i < 10; i++) {
+            reachable &= nums.contains(i * 13) == (i != 4);
+        }
+        if (reachable) {
+            System.out.println("Yay 2");
+        }
+
+        // random adds and removes, checked against java.util.HashSet
+        java.util.Random random = new java.util.Random(5);
+        java.util.HashSet<Integer> set = new java.util.HashSet<>();
+        RobinHoodTable<Integer> table = new RobinHoodTable<>(11, 0.9);
+        boolean ok = true;
+        for (int i = 0; i < 200000 && ok; i++) {
+            Integer x = random.nextInt(3000) * 11;
+            ok = (random.nextInt(3) > 0) ? table.add(x) == set.add(x) : table.remove(x) == set.remove(x);
+            ok &= table.contains(x) == set.contains(x) && table.size() == set.size();
+        }
+        ok &= table.valuesToArray().length == set.size() && (double)table.size() / table.capacity() <= 0.9
+                && !table.rehash(table.size()) && table.rehash(TableSizes.nextPrime(4 * table.size()))
+                && table.getAvgProbeLength() < 1.5;
+        for (Integer x : set) {
+            ok &= table.contains(x);
+        }
+        if (ok) {
+            System.out.println("Yay 3");
+        }
+    }
+}
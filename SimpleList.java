@@ -6,13 +6,14 @@ import java.util.NoSuchElementException;
  * A program which mimics a linked list data structure.
  * Allows for the addition, removal, existence, and retrieval of values.
  * This class uses a dummy head node at the beginning of every linked list.
+ * As a Bucket of a HashTable it ignores the hash codes it is given (see ArrayChain for a chain which keeps them).
  *
  * @author Ali Malik
  * Professor Zhong CS 310-001
  * @since 03-18-2018
  */
 
-class SimpleList<T> implements Iterable<T> {
+class SimpleList<T> implements Bucket<T> {
 
     /**
      * A simple node class with values "content" which contains the content of the node
@@ -42,6 +43,7 @@ class SimpleList<T> implements Iterable<T> {
     private int size;
     private Node<T> current; //the current node, most recently added node.
     private Node<T> head; //dummy head node, always null
+    private int probes; //nodes the last remove(), contains() or get() compared with the value
 
     /**
      * A constructor to initialize all the attributes of the class
@@ -93,6 +95,7 @@ class SimpleList<T> implements Iterable<T> {
         boolean loop = true, removed = false; //conditions for the loop and boolean to make sure node was removed
         Node<T> temp = this.head.next; //since head is always null, temp == this.head.next
         Node<T> prev = this.head; //prev will no longer point to prev.next but rather temp.next
+        this.probes = 0;
 
         while (loop) { //while loop is true keep doing this
             if (prev.next == null) { //if the temp (prev.next) is null stop everything
@@ -103,8 +106,12 @@ class SimpleList<T> implements Iterable<T> {
             if (temp.next == null) { //if temp.next is null, stop the loop
                 loop = false;
             }
+            this.probes++;
             if (temp.content.equals(value)) { //if the nodes content matches value, point prev.next to temp.next
                 prev.next = temp.next; //skipping temp
+                if (temp == this.current) { //removed the last node, add() must append after prev from now on
+                    this.current = prev;
+                }
                 this.size--; //reduce the size
                 removed = true; //node was successfully removed
                 loop = false; //no longer need the loop
@@ -161,6 +168,7 @@ class SimpleList<T> implements Iterable<T> {
         // return true if value is present
         // false otherwise
         // O(N) where N is the number of nodes returned by size()
+        this.probes = 0;
         if (this.head.next == null) { //head points to null there are no other nodes, so return false
             return false;
         }
@@ -174,6 +182,7 @@ class SimpleList<T> implements Iterable<T> {
             if (temp == null) { //if temp is null break
                 break;
             }
+            this.probes++;
             if (temp.content.equals(value)) { //if the nodes content is equal to the value
                 found = true; //node is found
                 loop = false; // no need for more looping
@@ -199,6 +208,10 @@ class SimpleList<T> implements Iterable<T> {
         // Note: two values might be considered "equal" but not identical
         //       example: Pair <k,v1> and <k,v2> "equal" for different v1 and v2
         // O(N) where N is the number of nodes returned by size()
+        this.probes = 0;
+        if (this.head.next == null) { //no nodes, nothing to find
+            return null;
+        }
         Node<T> temp = this.head.next;
         boolean loop = true;
         boolean found = false;
@@ -206,6 +219,7 @@ class SimpleList<T> implements Iterable<T> {
             if (temp.next == null) {
                 loop = false;
             }
+            this.probes++;
             if (temp.content.equals(value)) {
                 found = true;
                 loop = false;
@@ -221,6 +235,27 @@ class SimpleList<T> implements Iterable<T> {
         }
     }
 
+    // the Bucket methods, a linked list does not keep the hash codes
+    public void add(T value, int hash) {
+        add(value);
+    }
+
+    public boolean remove(T value, int hash) {
+        return remove(value);
+    }
+
+    public boolean contains(T value, int hash) {
+        return contains(value);
+    }
+
+    public T get(T value, int hash) {
+        return get(value);
+    }
+
+    public int probes() {
+        return this.probes;
+    }
+
     /**
      * Return the number of nodes excluding the dummy node
      * @param nothing
@@ -300,6 +335,18 @@ class SimpleList<T> implements Iterable<T> {
         if (ilist.remove(new Integer(100)) && ilist.contains(new Integer(99))) {
             System.out.println("Yay 4");
         }
+
+        // removing the last node, then adding again
+        if (ilist.remove(95) && !ilist.contains(95)) {
+            ilist.add(7);
+            if (ilist.contains(7) && ilist.size() == 4 && ilist.indexOf(7) == 3) {
+                System.out.println("Yay 5");
+            }
+        }
+
+        if (new SimpleList<Integer>().get(1) == null && ilist.get(42) == null) {
+            System.out.println("Yay 6");
+        }
     }
 }
 
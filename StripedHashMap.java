@@ -0,0 +1,134 @@
+/**
+ * StripedHashMap.java
+ * A thread-safe dictionary with the methods of HashMap, stored in a StripedHashTable of <key, value> pairs.
+ * Lookups never take a lock, update() replaces the pair of a key in one step instead of removing and adding it,
+ * so another thread never sees the key missing while it is updated.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class StripedHashMap<K,V> {
+
+    private final StripedHashTable<Pair<K,V>> hashTable = new StripedHashTable<>();
+
+    /**
+     * The <key, value> pair, two pairs are equal if their keys are equal
+     */
+    private static final class Pair<K,V> {
+        private final K key;
+        private final V value;
+
+        Pair(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Pair) && ((Pair<?,?>)o).key.equals(this.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.key.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "<" + this.key + "," + this.value + ">";
+        }
+    }
+
+    /**
+     * @return boolean, true if the pair was added, false if the key is already there
+     */
+    public boolean add(K key, V value) {
+        return this.hashTable.add(new Pair<>(key, value));
+    }
+
+    /**
+     * @return boolean, true if the key was there and now maps to value, false if the key is not there
+     */
+    public boolean update(K key, V value) {
+        return this.hashTable.replace(new Pair<>(key, value));
+    }
+
+    /**
+     * @return boolean, true if the pair of the key was removed, false if the key is not there
+     */
+    public boolean remove(K key) {
+        return this.hashTable.remove(new Pair<>(key, null));
+    }
+
+    /**
+     * @return int, the number of pairs
+     */
+    public int size() {
+        return this.hashTable.size();
+    }
+
+    /**
+     * @return boolean, true if the key is there
+     */
+    public boolean contains(K key) {
+        return this.hashTable.contains(new Pair<>(key, null));
+    }
+
+    /**
+     * @return boolean, true if the key is there and maps to value
+     */
+    public boolean has(K key, V value) {
+        V current = getValue(key);
+        return current != null && current.equals(value);
+    }
+
+    /**
+     * @return V, the value of the key, or null if the key is not there
+     */
+    public V getValue(K key) {
+        Pair<K,V> pair = this.hashTable.get(new Pair<>(key, null)); //one lookup, the pair cannot vanish in between
+        return (pair == null) ? null : pair.value;
+    }
+
+    /**
+     * @return Object[], every <key, value> pair
+     */
+    public Object[] pairsToArray() {
+        return this.hashTable.valuesToArray();
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) throws InterruptedException {
+        StripedHashMap<String,Integer> nameDict = new StripedHashMap<>();
+        if (nameDict.add("Alice", 1) && !nameDict.add("Alice", 2) && nameDict.has("Alice", 1)
+                && nameDict.update("Alice", 10) && !nameDict.update("Bob", 2) && nameDict.getValue("Alice") == 10
+                && nameDict.remove("Alice") && !nameDict.contains("Alice") && nameDict.getValue("Alice") == null) {
+            System.out.println("Yay 1");
+        }
+
+        // a reader never sees a key without a value while a writer keeps updating it
+        StripedHashMap<Position,Integer> counts = new StripedHashMap<>();
+        Position cell = new Position(3, 4);
+        counts.add(cell, 0);
+        boolean[] gone = {false};
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 200000; i++) {
+                counts.update(cell, i);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < 200000; i++) {
+                gone[0] |= counts.getValue(new Position(3, 4)) == null;
+            }
+        });
+        writer.start(); reader.start();
+        writer.join(); reader.join();
+        if (!gone[0] && counts.getValue(cell) == 200000 && counts.pairsToArray().length == 1) {
+            System.out.println("Yay 2");
+        }
+    }
+}
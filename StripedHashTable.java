@@ -0,0 +1,404 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * StripedHashTable.java
+ * A thread-safe version of HashTable which several threads may use at the same time.
+ * Like HashTable it uses separate chaining, but the chains are made of nodes whose value never changes and whose
+ * links are volatile, so contains() and get() never take a lock. Writers lock one stripe out of STRIPES,
+ * the stripe of the slot whose chain they change, so writers of different stripes do not wait for each other
+ * and a chain is only ever changed under one lock.
+ * Growing the table takes every stripe lock, so writers wait for it, and copies the chains into a new table which is
+ * published when it is complete: readers keep using the old table, which does not change, until then.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class StripedHashTable<T> {
+
+    static final int STRIPES = 64; //number of locks, a power of two
+    private static final double MAX_LOAD = 0.75; //grow once there are more values than this times the table size
+
+    /**
+     * A node of a chain, the value is final so a reader which found the node sees the whole value
+     */
+    private static final class Node<T> {
+        final T value;
+        final int hash;
+        volatile Node<T> next;
+
+        Node(T value, int hash, Node<T> next) {
+            this.value = value;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Node<T>> table; //head of the chain of every slot
+    private final ReentrantLock[] locks;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Create an empty table
+     */
+    public StripedHashTable() {
+        this(11);
+    }
+
+    /**
+     * Create an empty table with capacity slots
+     * @param capacity the initial number of slots
+     */
+    public StripedHashTable(int capacity) {
+        this.table = new AtomicReferenceArray<>(Math.max(2, capacity));
+        this.locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return int, the hash code of the value, never negative
+     */
+    private static int hash(Object value) {
+        return value.hashCode() & 0x7fffffff;
+    }
+
+    /**
+     * Lock the stripe of the slot of a hash code in the current table. The table cannot grow while the lock
+     * is held, so this.table read after locking is the table whose slot is locked.
+     * @return ReentrantLock, the lock taken
+     */
+    private ReentrantLock lockSlot(int hash) {
+        while (true) {
+            AtomicReferenceArray<Node<T>> t = this.table;
+            ReentrantLock lock = this.locks[(hash % t.length()) & (STRIPES - 1)];
+            lock.lock();
+            if (this.table == t) { //a table is only replaced under every lock
+                return lock;
+            }
+            lock.unlock(); //the table grew in between and the slot moved
+        }
+    }
+
+    /**
+     * Find the node holding a value equal to value in a table
+     * @return Node, the node or null if there is none
+     */
+    private static <T> Node<T> find(AtomicReferenceArray<Node<T>> table, Object value, int hash) {
+        for (Node<T> n = table.get(hash % table.length()); n != null; n = n.next) {
+            if (n.hash == hash && n.value.equals(value)) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add the value unless an equal value is already in the table
+     * @param value value that needs to be added
+     * @return boolean, true if successfully added, false otherwise
+     */
+    public boolean add(T value) {
+        // O(1) average case, waits for other writers of the same stripe and for a growing table
+        int h = hash(value);
+        ReentrantLock lock = lockSlot(h);
+        try {
+            AtomicReferenceArray<Node<T>> t = this.table; //read under the lock, a grown table is complete by now
+            if (find(t, value, h) != null) {
+                return false;
+            }
+            int slot = h % t.length();
+            t.set(slot, new Node<>(value, h, t.get(slot))); //a reader sees the new head or the old one
+        }
+        finally {
+            lock.unlock();
+        }
+        if (this.size.incrementAndGet() > MAX_LOAD * this.table.length()) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Replace the value in the table which is equal to value by value, used to update the value of a key
+     * @param value the new value
+     * @return boolean, true if an equal value was replaced, false if there was none
+     */
+    public boolean replace(T value) {
+        // O(1) average case
+        int h = hash(value);
+        ReentrantLock lock = lockSlot(h);
+        try {
+            AtomicReferenceArray<Node<T>> t = this.table;
+            int slot = h % t.length();
+            Node<T> head = t.get(slot);
+            for (Node<T> prev = null, n = head; n != null; prev = n, n = n.next) {
+                if (n.hash == h && n.value.equals(value)) {
+                    Node<T> copy = new Node<>(value, h, n.next); //take the place of n in one write
+                    if (prev == null) {
+                        t.set(slot, copy);
+                    }
+                    else {
+                        prev.next = copy;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the value from the table
+     * @param value value to be removed
+     * @return boolean, true if successfully removed item, false otherwise
+     */
+    public boolean remove(T value) {
+        // O(1) average case, a reader standing on the removed node can still walk on from it
+        int h = hash(value);
+        ReentrantLock lock = lockSlot(h);
+        try {
+            AtomicReferenceArray<Node<T>> t = this.table;
+            int slot = h % t.length();
+            for (Node<T> prev = null, n = t.get(slot); n != null; prev = n, n = n.next) {
+                if (n.hash == h && n.value.equals(value)) {
+                    if (prev == null) {
+                        t.set(slot, n.next);
+                    }
+                    else {
+                        prev.next = n.next;
+                    }
+                    this.size.decrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param value value that is being checked
+     * @return boolean, true if the value is in the table, false otherwise
+     */
+    public boolean contains(T value) {
+        // O(1) average case, no lock
+        return find(this.table, value, hash(value)) != null;
+    }
+
+    /**
+     * @param value value that is being checked
+     * @return T, the value FROM THE TABLE which is equal to value, or null if there is none
+     */
+    public T get(T value) {
+        // O(1) average case, no lock
+        Node<T> n = find(this.table, value, hash(value));
+        return (n == null) ? null : n.value;
+    }
+
+    /**
+     * Grow the table to the first prime larger than twice its size (from TableSizes), unless another thread already did
+     */
+    private void grow() {
+        int seen = this.table.length();
+        lockAll();
+        try {
+            if (this.table.length() == seen && this.size.get() > MAX_LOAD * seen) {
+                copyInto(TableSizes.growPrime(seen));
+            }
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Move every value into a table with newCapacity slots
+     * @param newCapacity the size of the new table
+     * @return boolean, true if the table was resized, false if its load would be more than 0.75
+     */
+    public boolean rehash(int newCapacity) {
+        // O(M) where M = size returned by size(), writers wait until it is done, readers do not
+        lockAll();
+        try {
+            if (newCapacity <= 0 || (double)this.size.get() / newCapacity > MAX_LOAD) {
+                return false;
+            }
+            copyInto(newCapacity);
+            return true;
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Copy every chain into a new table and publish it, the old nodes are not changed so readers
+     * of the old table still find every value. Every lock must be held.
+     */
+    private void copyInto(int newCapacity) {
+        AtomicReferenceArray<Node<T>> old = this.table;
+        AtomicReferenceArray<Node<T>> t = new AtomicReferenceArray<>(newCapacity);
+        for (int i = 0; i < old.length(); i++) {
+            for (Node<T> n = old.get(i); n != null; n = n.next) {
+                int slot = n.hash % newCapacity;
+                t.set(slot, new Node<>(n.value, n.hash, t.get(slot)));
+            }
+        }
+        this.table = t; //volatile write, publishes the complete table
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : this.locks) { //always in the same order, so two threads cannot deadlock
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (ReentrantLock lock : this.locks) {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return int, the number of values in the table
+     */
+    public int size() {
+        return this.size.get();
+    }
+
+    /**
+     * @return double, the number of values divided by the number of slots
+     */
+    public double getLoad() {
+        return (double)this.size.get() / this.table.length();
+    }
+
+    /**
+     * Return every value in the table. Values added or removed while the array is being filled may be
+     * missing or present, every other value is there once.
+     * @return Object[], the values
+     */
+    public Object[] valuesToArray() {
+        // O(M) where M = the number of slots
+        AtomicReferenceArray<Node<T>> t = this.table;
+        List<Object> values = new ArrayList<>(size());
+        for (int i = 0; i < t.length(); i++) {
+            for (Node<T> n = t.get(i); n != null; n = n.next) {
+                values.add(n.value);
+            }
+        }
+        return values.toArray();
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) throws InterruptedException {
+        StripedHashTable<String> names = new StripedHashTable<>();
+        if (names.add("Alice") && names.add("Bob") && !names.add("Alice") && names.size() == 2
+                && names.remove("Bob") && !names.contains("Bob") && names.get("Alice").equals("Alice")
+                && names.valuesToArray().length == 1 && names.rehash(5) && !names.rehash(1)) {
+            System.out.println("Yay 1");
+        }
+
+        // 4 threads add and remove their own values while a reader checks values nobody touches
+        final int threads = 4, perThread = 50000;
+        StripedHashTable<Integer> nums = new StripedHashTable<>();
+        for (int i = 0; i < 1000; i++) {
+            nums.add(-1 - i); //the values the reader checks
+        }
+        AtomicInteger missing = new AtomicInteger();
+        Thread[] workers = new Thread[threads + 1];
+        for (int w = 0; w < threads; w++) {
+            final int first = w * perThread;
+            workers[w] = new Thread(() -> {
+                for (int i = first; i < first + perThread; i++) {
+                    if (!nums.add(i) || !nums.contains(i)) {
+                        missing.incrementAndGet();
+                    }
+                    if (i % 3 == 0 && !nums.remove(i)) {
+                        missing.incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers[threads] = new Thread(() -> {
+            for (int r = 0; r < 200; r++) {
+                for (int i = 0; i < 1000; i++) {
+                    if (!nums.contains(-1 - i)) { //must stay visible while the table grows
+                        missing.incrementAndGet();
+                    }
+                }
+            }
+        });
+        for (Thread t : workers) {
+            t.start();
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        int expected = 1000;
+        for (int i = 0; i < threads * perThread; i++) {
+            expected += (i % 3 == 0) ? 0 : 1;
+        }
+        if (missing.get() == 0 && nums.size() == expected && nums.valuesToArray().length == expected
+                && nums.getLoad() <= MAX_LOAD && nums.contains(1) && !nums.contains(3)) {
+            System.out.println("Yay 2");
+        }
+
+        StripedHashTable<String> words = new StripedHashTable<>();
+        words.add("tent");
+        if (words.replace("tent") && !words.replace("tree") && words.size() == 1) {
+            System.out.println("Yay 3");
+        }
+
+        // 4 writers share one chain: every value is a multiple of the table size and the table never grows,
+        // the hash codes differ so the values spread over the stripes if the stripe ignored the slot
+        final int slots = 1009, perWriter = 160;
+        StripedHashTable<Integer> chain = new StripedHashTable<>(slots);
+        Thread[] writers = new Thread[threads];
+        for (int w = 0; w < threads; w++) {
+            final int first = w * perWriter;
+            writers[w] = new Thread(() -> {
+                for (int round = 0; round < 300; round++) {
+                    for (int i = first; i < first + perWriter; i++) {
+                        if (!chain.add(i * slots)) {
+                            missing.incrementAndGet();
+                        }
+                    }
+                    for (int i = first; i < first + perWriter; i += (round < 299) ? 1 : 2) {
+                        if (!chain.remove(i * slots)) {
+                            missing.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread t : writers) {
+            t.start();
+        }
+        for (Thread t : writers) {
+            t.join();
+        }
+        boolean all = true;
+        for (int i = 0; i < threads * perWriter; i++) {
+            all &= chain.contains(i * slots) == (i % 2 == 1);
+        }
+        if (missing.get() == 0 && all && chain.size() == threads * perWriter / 2
+                && chain.valuesToArray().length == threads * perWriter / 2) {
+            System.out.println("Yay 4");
+        }
+    }
+}
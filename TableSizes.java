@@ -0,0 +1,140 @@
+/**
+ * TableSizes.java
+ * Picks the number of slots of a growing hash table (HashTable, RobinHoodTable and StripedHashTable).
+ * Prime sizes come from a table computed in advance: every entry is the first prime larger than twice the
+ * entry before it, which is the size HashTable always grew to (11, 23, 47, 97, ...), so growing no longer
+ * runs nextPrime() by trial division. Power of two sizes need a hash code whose low bits are well mixed,
+ * mix() spreads every bit of the hash code over them.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+final class TableSizes {
+
+    // PRIMES[i + 1] = the first prime > 2 * PRIMES[i], up to the largest below 2^31
+    static final int[] PRIMES = {
+        2, 5, 11, 23, 47, 97, 197, 397, 797, 1597, 3203, 6421, 12853, 25717, 51437, 102877, 205759, 411527,
+        823117, 1646237, 3292489, 6584983, 13169977, 26339969, 52679969, 105359939, 210719881, 421439783,
+        842879579, 1685759167
+    };
+
+    static final int MAX_POWER_OF_TWO = 1 << 30;
+
+    private TableSizes() {
+    }
+
+    /**
+     * Return the prime a table of capacity slots grows to: the first prime > 2 * capacity in PRIMES
+     * @param capacity the current number of slots
+     * @return int, the new number of slots, capacity itself if the table cannot grow any more
+     */
+    static int growPrime(int capacity) {
+        // O(1), a binary search over the 30 entries of PRIMES
+        long wanted = 2L * capacity;
+        int lo = 0, hi = PRIMES.length;
+        while (lo < hi) { //first entry > wanted
+            int mid = (lo + hi) >>> 1;
+            if (PRIMES[mid] > wanted) {
+                hi = mid;
+            }
+            else {
+                lo = mid + 1;
+            }
+        }
+        return (lo < PRIMES.length) ? PRIMES[lo] : Math.max(capacity, PRIMES[PRIMES.length - 1]);
+    }
+
+    /**
+     * Return the power of two a table of capacity slots grows to
+     * @param capacity the current number of slots, a power of two
+     * @return int, 2 * capacity, or capacity itself if the table cannot grow any more
+     */
+    static int growPowerOfTwo(int capacity) {
+        return (capacity < MAX_POWER_OF_TWO) ? capacity << 1 : capacity;
+    }
+
+    /**
+     * @param x a number of slots
+     * @return int, the smallest power of two >= x (at least 2, at most 2^30)
+     */
+    static int powerOfTwoAtLeast(int x) {
+        if (x >= MAX_POWER_OF_TWO) {
+            return MAX_POWER_OF_TWO;
+        }
+        return Math.max(2, Integer.highestOneBit(Math.max(1, x - 1)) << 1);
+    }
+
+    /**
+     * Find the first prime >= x by trial division with odd numbers only
+     * @param x where to start
+     * @return int, the prime
+     */
+    static int nextPrime(int x) {
+        // O(sqrt(x)) per candidate
+        if (x <= 2) {
+            return 2;
+        }
+        for (int n = x | 1; ; n += 2) { //even numbers above 2 are never prime
+            boolean isPrime = true;
+            for (int i = 3; (long)i * i <= n; i += 2) {
+                if (n % i == 0) {
+                    isPrime = false;
+                    break;
+                }
+            }
+            if (isPrime) {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Spread every bit of a hash code over the low bits (the finalizer of MurmurHash3), so that
+     * hash & (powerOfTwo - 1) does not only depend on the lowest bits of the hash code
+     * @param h a hash code
+     * @return int, the mixed hash code
+     */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        boolean chain = true; //every entry is the prime HashTable used to grow to
+        for (int i = 1; i < PRIMES.length; i++) {
+            chain &= PRIMES[i] == nextPrime(2 * PRIMES[i - 1] + 1) && growPrime(PRIMES[i - 1]) == PRIMES[i];
+        }
+        if (chain && growPrime(10) == 23 && growPrime(1) == 5 && growPrime(PRIMES[PRIMES.length - 1]) == 1685759167) {
+            System.out.println("Yay 1");
+        }
+
+        if (nextPrime(0) == 2 && nextPrime(3) == 3 && nextPrime(24) == 29 && nextPrime(2147483549) == 2147483549
+                && powerOfTwoAtLeast(16) == 16 && powerOfTwoAtLeast(17) == 32 && powerOfTwoAtLeast(0) == 2
+                && growPowerOfTwo(16) == 32 && growPowerOfTwo(1 << 30) == 1 << 30) {
+            System.out.println("Yay 2");
+        }
+
+        // consecutive keys spread over every slot of a power of two table
+        int[] slots = new int[64];
+        for (int i = 0; i < 64 * 1000; i++) {
+            slots[mix(i << 6) & 63]++; //without mix() every key would land in slot 0
+        }
+        int min = Integer.MAX_VALUE, max = 0;
+        for (int n : slots) {
+            min = Math.min(min, n);
+            max = Math.max(max, n);
+        }
+        if (min > 800 && max < 1200) {
+            System.out.println("Yay 3");
+        }
+    }
+}
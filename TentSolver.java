@@ -0,0 +1,2220 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TentSolver.java
+ * Solves tent-tree puzzles: every tree gets its own tent in one of its 4 orthogonal neighbors
+ * (the same rule as TentTree.posHasNbr()) and no two tents touch each other, diagonals included
+ * (the same rule as TentTree.posTouching()). Tents already on the board are kept.
+ *
+ * The solver only looks at "spots": the tents already on the board and the empty cells next to a tree,
+ * since no other cell can ever hold a tent. Forced moves are propagated before and during the search:
+ * a spot touching a tent can never become a tent, a tree with a single free spot left must use it,
+ * and a tent with a single tree left must belong to it. The trees are split into clusters which cannot
+ * affect each other and every cluster is searched on its own, so a failure in one part of the board never
+ * backtracks over decisions made in an unrelated part. The search branches on a tree with few free spots
+ * and undoes its moves from a trail when a branch fails. Every failure is traced back to the decisions
+ * which caused it and learned as a nogood, a combination of tents which can never stand, so that
+ * the search never walks into the same failure twice.
+ *
+ * On a puzzle with row and column clues (see TentTree.setClues()) every line must end up with exactly its clue:
+ * a line which has all of its tents takes no more, so its empty spots are out, and a line which needs as many
+ * more tents as it still has room for (counting that tents of a line cannot touch and that two spots of
+ * one tree take one tent) gets the tents it cannot do without. The trees of a clued line are in the same
+ * cluster, so the clues tie most of a board together: there the search branches first on the trees which
+ * took part in the latest failures and starts over now and then, keeping what it learned.
+ *
+ * solveParallel() runs the same search on a ForkJoinPool: groups of clusters are searched by different
+ * threads, and a large cluster is split further on its first branching decisions. Idle threads steal
+ * the waiting groups and branches, and once one branch solves a cluster all of its siblings stop.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class TentSolver {
+
+    private final TentTree board; //the puzzle, never changed by the solver
+    private int numTrees, numSpots;
+    private int[] treeRow, treeCol; //position of every tree
+    private int[] spotRow, spotCol; //position of every spot
+    private boolean[] given;        //true if the spot holds a tent which is already on the board
+    private int[] treeSpots; //the (up to) 4 spots next to tree i are in treeSpots[4i .. 4i+3], -1 if none
+    private int[] spotTrees; //the (up to) 4 trees next to spot s are in spotTrees[4s .. 4s+3], -1 if none
+    private int[] spotTouch; //the (up to) 8 spots touching spot s are in spotTouch[8s .. 8s+7], -1 if none
+    private int numClusters;   //number of groups of trees which can be solved independently
+    private int[] treeCluster; //cluster of tree i
+    private int[] clusterStart, clusterTrees; //trees of cluster c in clusterTrees[clusterStart[c] .. clusterStart[c+1]-1]
+    private String contradiction; //why the puzzle is unsolvable, if that is already clear from the board
+    // line l is row l if l < numRows, column l - numRows otherwise; all null if the puzzle has no clues
+    private int[] lineSlack; //tents line l needs besides the ones on the board, NO_CLUE if it has no clue
+    private int[] lineStart, lineSpots; //the spots of line l are in lineSpots[lineStart[l] .. lineStart[l+1]-1]
+
+    private static final int MIN_GRAIN = 256; //never hand fewer trees than this to a thread of a parallel search
+    private static final int NO_CLUE = Integer.MAX_VALUE; //the slack of a line without a clue, see TentTree.rowSlack()
+
+    /**
+     * The outcome of solving a puzzle: either a solved copy of the board,
+     * or the reason why no solution exists.
+     */
+    static class Result {
+        private final TentTree solution;
+        private final String reason;
+        private final long decisions;
+
+        private Result(TentTree solution, String reason, long decisions) {
+            this.solution = solution;
+            this.reason = reason;
+            this.decisions = decisions;
+        }
+
+        // true if a solution was found, O(1)
+        public boolean isSolved() { return this.solution != null; }
+
+        // the solved board (a copy of the puzzle with all tents added), null if unsolvable, O(1)
+        public TentTree getBoard() { return this.solution; }
+
+        // why the puzzle has no solution, null if it was solved, O(1)
+        public String getReason() { return this.reason; }
+
+        // the number of branching decisions made by the search, 0 if propagation alone decided the puzzle, O(1)
+        public long getDecisions() { return this.decisions; }
+
+        public String toString() {
+            return isSolved() ? "solved after " + this.decisions + " decisions" : "unsolvable: " + this.reason;
+        }
+    }
+
+    /**
+     * Solve the puzzle on the board. The board itself is not changed.
+     * @param board the puzzle, may already contain some tents
+     * @return Result, the solved board or the reason why the puzzle cannot be solved
+     */
+    public static Result solve(TentTree board) {
+        return new TentSolver(board).search();
+    }
+
+    /**
+     * Solve the puzzle on the board with the threads of the common ForkJoinPool. The board itself is not changed.
+     * @param board the puzzle, may already contain some tents
+     * @return Result, a solved board or the reason why the puzzle cannot be solved
+     */
+    public static Result solveParallel(TentTree board) {
+        return solveParallel(board, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solve the puzzle on the board with the threads of a ForkJoinPool. The board itself is not changed.
+     * If the puzzle has several solutions, which one is returned depends on which thread finds one first.
+     * @param board the puzzle, may already contain some tents
+     * @param pool the pool to run the search in
+     * @return Result, a solved board or the reason why the puzzle cannot be solved
+     */
+    public static Result solveParallel(TentTree board, ForkJoinPool pool) {
+        return new TentSolver(board).searchParallel(pool);
+    }
+
+    /**
+     * Build the spots of the board and the tree/spot relations between them
+     * @param board the puzzle
+     */
+    private TentSolver(TentTree board) {
+        // O(M log M) where M is the number of occupied cells
+        this.board = board;
+        final long[][] keys = {new long[16], new long[16]}; //packed <row, col> of the trees and the tents
+        final int[] counts = new int[2];
+        board.forEach((row, col, code) -> {
+            int k = (code == BoardStorage.TREE) ? 0 : 1;
+            if (counts[k] == keys[k].length) {
+                keys[k] = Arrays.copyOf(keys[k], 2 * counts[k]);
+            }
+            keys[k][counts[k]++] = BoardMap.key(row, col);
+        });
+        long[] trees = Arrays.copyOf(keys[0], counts[0]);
+        long[] tents = Arrays.copyOf(keys[1], counts[1]);
+        Arrays.sort(trees); //sorted keys are in row-major order and can be binary searched
+        Arrays.sort(tents);
+        this.numTrees = trees.length;
+
+        if (board.checkStatus() == 0) {
+            this.contradiction = "the board has no trees or its symbols cannot be told apart";
+            return;
+        }
+        if (tents.length > trees.length) {
+            this.contradiction = "there are more tents (" + tents.length + ") than trees (" + trees.length + ")";
+            return;
+        }
+
+        // the spots: the tents on the board and every empty cell next to a tree
+        long[] spots = Arrays.copyOf(tents, tents.length + 4 * trees.length);
+        int n = tents.length;
+        for (long tree : trees) {
+            for (int k = 0; k < 4; k++) {
+                int row = rowOf(tree) + TentTree.NBR_ROW[k], col = colOf(tree) + TentTree.NBR_COL[k];
+                long key = BoardMap.key(row, col);
+                if (row >= 0 && col >= 0 && row < board.numRows() && col < board.numCols()
+                        && Arrays.binarySearch(trees, key) < 0 && Arrays.binarySearch(tents, key) < 0) {
+                    spots[n++] = key;
+                }
+            }
+        }
+        Arrays.sort(spots, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || spots[unique - 1] != spots[i]) {
+                spots[unique++] = spots[i];
+            }
+        }
+        spots = Arrays.copyOf(spots, unique);
+        this.numSpots = unique;
+
+        this.treeRow = new int[this.numTrees];
+        this.treeCol = new int[this.numTrees];
+        this.treeSpots = new int[4 * this.numTrees];
+        this.spotTrees = new int[4 * this.numSpots];
+        Arrays.fill(this.spotTrees, -1);
+        for (int i = 0; i < this.numTrees; i++) {
+            this.treeRow[i] = rowOf(trees[i]);
+            this.treeCol[i] = colOf(trees[i]);
+            for (int k = 0; k < 4; k++) {
+                int s = indexOf(spots, this.treeRow[i] + TentTree.NBR_ROW[k], this.treeCol[i] + TentTree.NBR_COL[k]);
+                this.treeSpots[4 * i + k] = s;
+                if (s >= 0) {
+                    int j = 4 * s;
+                    while (this.spotTrees[j] >= 0) {
+                        j++;
+                    }
+                    this.spotTrees[j] = i;
+                }
+            }
+        }
+
+        this.spotRow = new int[this.numSpots];
+        this.spotCol = new int[this.numSpots];
+        this.given = new boolean[this.numSpots];
+        this.spotTouch = new int[8 * this.numSpots];
+        for (int s = 0; s < this.numSpots; s++) {
+            this.spotRow[s] = rowOf(spots[s]);
+            this.spotCol[s] = colOf(spots[s]);
+            this.given[s] = Arrays.binarySearch(tents, spots[s]) >= 0;
+            // the spots are in row-major order: one binary search finds the 3 cells above (or below),
+            // and the cells to the left and right are the spots right before and after this one
+            int k = 8 * s;
+            for (int row = this.spotRow[s] - 1; row <= this.spotRow[s] + 1; row += 2) {
+                int j = Arrays.binarySearch(spots, BoardMap.key(row, Math.max(0, this.spotCol[s] - 1)));
+                j = (j >= 0) ? j : -j - 1;
+                for (int col = this.spotCol[s] - 1; col <= this.spotCol[s] + 1; col++) {
+                    boolean found = row >= 0 && col >= 0 && j < unique && spots[j] == BoardMap.key(row, col);
+                    this.spotTouch[k++] = found ? j++ : -1;
+                }
+            }
+            boolean left = s > 0 && spots[s - 1] == BoardMap.key(this.spotRow[s], this.spotCol[s] - 1);
+            boolean right = s + 1 < unique && spots[s + 1] == BoardMap.key(this.spotRow[s], this.spotCol[s] + 1);
+            this.spotTouch[k++] = left ? s - 1 : -1;
+            this.spotTouch[k] = right ? s + 1 : -1;
+        }
+
+        // the tents already on the board must be next to a tree and must not touch each other
+        for (int s = 0; s < this.numSpots && this.contradiction == null; s++) {
+            if (!this.given[s]) {
+                continue;
+            }
+            if (this.spotTrees[4 * s] < 0) {
+                this.contradiction = "tent " + cell(this.spotRow[s], this.spotCol[s]) + " is not next to any tree";
+            }
+            for (int k = 0; k < 8 && this.contradiction == null; k++) {
+                int t = this.spotTouch[8 * s + k];
+                if (t >= 0 && this.given[t]) {
+                    this.contradiction = "tents " + cell(this.spotRow[s], this.spotCol[s]) + " and "
+                            + cell(this.spotRow[t], this.spotCol[t]) + " touch each other";
+                }
+            }
+        }
+        if (this.contradiction == null && board.hasClues()) {
+            findLines();
+        }
+        if (this.contradiction == null) {
+            findClusters();
+        }
+    }
+
+    /**
+     * Take the slack of every row and column from the board and list the spots of every clued line
+     */
+    private void findLines() {
+        // O(R + C + S) where R and C are the numbers of rows and columns
+        int rows = this.board.numRows(), lines = rows + this.board.numCols();
+        this.lineSlack = new int[lines];
+        for (int l = 0; l < lines && this.contradiction == null; l++) {
+            this.lineSlack[l] = (l < rows) ? this.board.rowSlack(l) : this.board.colSlack(l - rows);
+            if (this.lineSlack[l] < 0) {
+                this.contradiction = line(l) + " has more tents than its clue";
+            }
+        }
+        this.lineStart = new int[lines + 1];
+        for (int s = 0; s < this.numSpots; s++) {
+            this.lineStart[this.spotRow[s] + 1]++;
+            this.lineStart[rows + this.spotCol[s] + 1]++;
+        }
+        for (int l = 0; l < lines; l++) {
+            this.lineStart[l + 1] += this.lineStart[l];
+        }
+        this.lineSpots = new int[2 * this.numSpots];
+        int[] next = Arrays.copyOf(this.lineStart, lines);
+        for (int s = 0; s < this.numSpots; s++) {
+            this.lineSpots[next[this.spotRow[s]]++] = s;
+            this.lineSpots[next[rows + this.spotCol[s]]++] = s;
+        }
+    }
+
+    /**
+     * @return String, "row r" or "column c" for line l
+     */
+    private String line(int l) {
+        int rows = this.board.numRows();
+        return (l < rows) ? "row " + l : "column " + (l - rows);
+    }
+
+    private static int rowOf(long key) { return (int)(key >> 32); }
+    private static int colOf(long key) { return (int)key; }
+
+    /**
+     * @return String, the cell in the <row,col> format of Position.toString()
+     */
+    private static String cell(int row, int col) {
+        return "<" + row + "," + col + ">";
+    }
+
+    /**
+     * @return int, the index of the spot at <row, col>, -1 if that cell is not a spot
+     */
+    private static int indexOf(long[] spots, int row, int col) {
+        if (row < 0 || col < 0) {
+            return -1;
+        }
+        int s = Arrays.binarySearch(spots, BoardMap.key(row, col));
+        return s >= 0 ? s : -1;
+    }
+
+    /**
+     * Search every cluster on its own, if one cluster has no solution the puzzle has none
+     * @return Result, the first solution found or the reason why there is none
+     */
+    private Result search() {
+        if (this.contradiction != null) {
+            return new Result(null, this.contradiction, 0);
+        }
+        State state = new State();
+        if (!state.propagate()) {
+            return new Result(null, state.failure, 0);
+        }
+        for (int c = 0; c < this.numClusters; c++) {
+            if (!state.searchCluster(c)) {
+                return new Result(null, unsolvable(c, state.decisions), state.decisions);
+            }
+        }
+        return new Result(state.toBoard(), null, state.decisions);
+    }
+
+    /**
+     * Pick tents of a solution to put on the board so that the puzzle has no other solution: propagation alone,
+     * without a single decision, must give every tree its tent. The trees are walked in order and every tree
+     * which propagation left open gets the tents of the solution next to it, followed by a new propagation.
+     * In the end every open tree has all of its tents of the solution on the board, and those tents are as many
+     * as the open trees, so no other tent can ever be placed. This is how PuzzleGenerator makes its puzzles unique.
+     * The tents picked are not the fewest possible, but the search never branches, so huge puzzles take O(M).
+     * @param board the puzzle, may already contain some tents
+     * @param solution a solution of the puzzle
+     * @return long[], the packed <row, col> (see BoardMap.key()) of the tents to put on the board, empty if the
+     * puzzle is already decided by propagation, null if the solution is not one of the puzzle
+     */
+    static long[] tentsToGive(TentTree board, TentTree solution) {
+        // O(M log M) where M is the number of occupied cells, like solve() without its search
+        TentSolver solver = new TentSolver(board);
+        if (solver.contradiction != null) {
+            return null;
+        }
+        State state = solver.new State();
+        if (!state.propagate()) {
+            return null;
+        }
+        long[] tents = new long[16];
+        int count = 0;
+        for (int i = 0; i < solver.numTrees; i++) {
+            for (int k = 0; k < 4 && state.assigned[i] < 0; k++) {
+                int s = solver.treeSpots[4 * i + k];
+                if (s < 0 || state.tent[s] || solution.codeAt(solver.spotRow[s], solver.spotCol[s]) != BoardStorage.TENT) {
+                    continue;
+                }
+                solver.given[s] = true;
+                state.give(s);
+                state.countTent(s, -1); //the board's clues did not count it
+                if (!state.propagate()) {
+                    return null;
+                }
+                if (count == tents.length) {
+                    tents = Arrays.copyOf(tents, 2 * count);
+                }
+                tents[count++] = BoardMap.key(solver.spotRow[s], solver.spotCol[s]);
+            }
+        }
+        return Arrays.copyOf(tents, count);
+    }
+
+    /**
+     * Search the clusters in parallel, stopping as soon as one of them turns out to have no solution
+     * @param pool the pool to run the search in
+     * @return Result, a solution or the reason why there is none
+     */
+    private Result searchParallel(ForkJoinPool pool) {
+        if (this.contradiction != null) {
+            return new Result(null, this.contradiction, 0);
+        }
+        State root = new State();
+        if (!root.propagate()) {
+            return new Result(null, root.failure, 0);
+        }
+        Parallel job = new Parallel(pool.getParallelism());
+        pool.invoke(new ClusterRange(job, root, 0, this.numClusters));
+        long decisions = job.decisions.sum();
+        if (job.failure.get() != null) {
+            return new Result(null, job.failure.get(), decisions);
+        }
+        return new Result(job.toBoard(), null, decisions);
+    }
+
+    /**
+     * @return String, the reason given when cluster c has no solution
+     */
+    private String unsolvable(int c, long decisions) {
+        int first = this.clusterTrees[this.clusterStart[c]];
+        return "no placement of tents works for the trees around " + cell(this.treeRow[first], this.treeCol[first])
+                + " (search exhausted after " + decisions + " decisions)";
+    }
+
+    /**
+     * Split the trees into clusters which cannot affect each other: two trees are in the same cluster
+     * if they share a spot, if one of their spots touches one of the other's spots, or if they have spots
+     * in the same clued line.
+     * The trees of cluster c end up in clusterTrees[clusterStart[c] .. clusterStart[c+1]-1] in row-major order.
+     */
+    private void findClusters() {
+        // O(T + S) (almost) where T is the number of trees and S the number of spots, with union-find
+        int[] parent = new int[this.numTrees];
+        for (int i = 0; i < this.numTrees; i++) {
+            parent[i] = i;
+        }
+        for (int s = 0; s < this.numSpots; s++) {
+            int first = this.spotTrees[4 * s];
+            for (int k = 1; k < 4 && this.spotTrees[4 * s + k] >= 0; k++) {
+                union(parent, first, this.spotTrees[4 * s + k]);
+            }
+            for (int k = 0; k < 8; k++) {
+                int t = this.spotTouch[8 * s + k];
+                if (t > s) {
+                    union(parent, first, this.spotTrees[4 * t]);
+                }
+            }
+        }
+        for (int l = 0; this.lineSlack != null && l < this.lineSlack.length; l++) { //a clue ties its line together
+            if (this.lineSlack[l] == NO_CLUE) {
+                continue;
+            }
+            for (int j = this.lineStart[l] + 1; j < this.lineStart[l + 1]; j++) {
+                union(parent, this.spotTrees[4 * this.lineSpots[this.lineStart[l]]], this.spotTrees[4 * this.lineSpots[j]]);
+            }
+        }
+        this.treeCluster = new int[this.numTrees];
+        int[] clusterOfRoot = new int[this.numTrees];
+        Arrays.fill(clusterOfRoot, -1);
+        int[] sizes = new int[this.numTrees + 1];
+        for (int i = 0; i < this.numTrees; i++) {
+            int root = find(parent, i);
+            if (clusterOfRoot[root] < 0) {
+                clusterOfRoot[root] = this.numClusters++;
+            }
+            this.treeCluster[i] = clusterOfRoot[root];
+            sizes[this.treeCluster[i] + 1]++;
+        }
+        this.clusterStart = new int[this.numClusters + 1];
+        for (int c = 0; c < this.numClusters; c++) {
+            this.clusterStart[c + 1] = this.clusterStart[c] + sizes[c + 1];
+        }
+        this.clusterTrees = new int[this.numTrees];
+        int[] next = Arrays.copyOf(this.clusterStart, this.numClusters);
+        for (int i = 0; i < this.numTrees; i++) { //trees are numbered in row-major order
+            this.clusterTrees[next[this.treeCluster[i]]++] = i;
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]]; //path halving
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int i, int j) {
+        parent[find(parent, i)] = find(parent, j);
+    }
+
+    /**
+     * @return int, term i of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+     */
+    private static int luby(int i) {
+        // O(log i)
+        int size = 1, seq = 0; //the smallest complete subsequence holding term i, and its largest term
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            seq--;
+            i = i % size;
+        }
+        return 1 << seq;
+    }
+
+    /**
+     * The changing part of a search: which spots hold a tent and which tree each tent belongs to.
+     * Every assignment is recorded on a trail so that it can be undone when the search backtracks,
+     * together with the decision level it was made at and why it was made. When a branch fails, those reasons
+     * lead back to the decisions which caused the failure; the nogood learned from them rules out a literal
+     * in every later branch where the rest of it holds, and is checked by watching two of its literals.
+     */
+    private final class State {
+        // why an assignment on the trail was made
+        static final byte DECIDED = 0;        //a branch of the search
+        static final byte FORCED_BY_TREE = 1; //the tree had no other free spot
+        static final byte FORCED_BY_TENT = 2; //the tent had no other tree left
+        static final byte FORCED_BY_LINE = 3; //the line needed a tent on every spot it had left
+        static final byte LEARNED = 4;        //every other literal of a learned nogood held
+
+        // the states of a spot along a line for lineMax(), and how a spot can take a tent
+        static final int BARE = 0, TENTED = 1, CLAIMED = 2; //empty, a tent, a tent with the tree after the spot
+        static final int NONE = Integer.MIN_VALUE / 2; //the count of a state which cannot happen
+        static final int OPEN = 1, NEXT = 2, SHARED = 4, OTHER = 8, LEFT = 16, RIGHT = 32;
+
+        static final double DECAY = 0.99;   //every failure makes the activity of the earlier ones count this much
+        static final int RESTART_UNIT = 100; //failures between restarts, times the terms of the Luby sequence
+
+        final boolean[] tent;  //true if the spot holds a tent
+        final int[] owner;     //tree the tent on the spot belongs to, -1 if none
+        final int[] blocked;   //number of tents touching the spot and of learned entries keeping a tent off it,
+                               //a blocked spot can never hold a tent
+        final int[] assigned;  //spot holding the tent of tree i, -1 if the tree has no tent yet
+        final int[] assignedAt; //trail index of the assignment of tree i
+        final int[] unfreeBy;  //trail index of the assignment which first made spot s not free
+        final int[] tentAt;    //trail index of the entry which put the tent on spot s, -1 for a tent of the board
+        final int[] forcedBy;  //line which put the tent on spot s, for a tent put there by its lines
+        final int[] banned;    //number of learned entries keeping tree i off its k-th spot, at 4i+k
+        final int[] bannedAt;  //trail index of the entry which first kept tree i off its k-th spot
+        int[] trail = new int[64]; //assigned trees, (tree << 1) | 1 if the assignment put a new tent on its spot,
+                                   //~s for a tent its lines put on spot s before any tree took it,
+                                   //the literal a LEARNED entry ruled out
+        int[] trailLevel = new int[64]; //decision level of every assignment, 0 before the first decision
+        byte[] trailKind = new byte[64]; //DECIDED, FORCED_BY_TREE, FORCED_BY_TENT, FORCED_BY_LINE or LEARNED
+        int[] trailWhy = new int[64]; //the offset of the nogood behind a LEARNED entry
+        // a literal is 4i+k for "tree i has its tent on its k-th spot" or 4T+s for "spot s holds a tent";
+        // a learned nogood is a set of literals which can never all hold
+        int[] nogoods = new int[256]; //every nogood is its size followed by its literals, the first two watched
+        int nogoodSize;
+        int[][] watches; //offsets of the nogoods watching literal x in watches[x], null until one is learned
+        int[] watchCount;
+        int[] litQueue = new int[64]; //literals which just started to hold
+        int litCount;
+        int[] learnt = new int[64]; //trail entries of the nogood being learned
+        int learned; //offset of the last nogood learned
+        int learnedLevel; //the level at which every literal of it but the first held
+        int[] lateNogood = new int[16]; //nogoods whose missing literal was ruled out above the level it holds at
+        int[] lateLevel = new int[16];  //the level it was ruled out at
+        int lateCount;
+        boolean[] lineOpen; //spots of the line being looked at which could take a new tent
+        int[] lineForced; //spots the line being looked at cannot do without
+        int[] lineBest; //best counts of lineMax() after every spot of the line, with it empty, tented or claimed
+        final boolean[] treeTaken; //trees next to the line being looked at which had their tent
+        // branching on clued puzzles, whose clues link their trees into one large cluster; null without clues
+        double[] activity; //how much tree i took part in recent failures
+        double bump = 1;   //what a tree gains for taking part in a failure, it grows so that older failures fade
+        int[] phase;       //index of the spot tree i last had its tent on, -1 if none yet
+        int[] heap;        //the open trees of the cluster being searched, by activity, most active first
+        int[] heapAt;      //index of tree i in heap, -1 if it is not there
+        int heapSize;
+        int[] seen = new int[64]; //stamps of the trail entries visited while explaining a failure
+        int stamp;
+        int trailSize;
+        int level; //current decision level
+        int[] levelStart = new int[16]; //trail size before decision d of the cluster being searched
+        int[] levelCursor = new int[16]; //cursor before decision d
+        int[] treeQueue = new int[64], spotQueue = new int[64]; //trees and tents to re-examine
+        int treeCount, spotCount;
+        final int[] need;  //tents clued line l still needs, NO_CLUE if it has no clue, null if the puzzle has none
+        final boolean[] lineQueued; //true while line l is in lineQueue
+        int[] lineQueue = new int[64]; //clued lines to re-examine
+        int lineCount;
+        int[] pairs = new int[64]; //trees seen with exactly 2 free spots, the best trees to branch on
+        int pairCount;
+        int cursor; //trees of the cluster being searched before this index all have their tent
+        int failedTree = -1, failedTent = -1, failedLine = -1; //the tree, tent or line the last propagation failed on
+        int failedNogood = -1; //or the nogood
+        long decisions;
+        String failure; //why the last propagation failed
+        Parallel job; //the parallel search this state is part of, null for a sequential search
+
+        /**
+         * The state of the puzzle itself: only the tents already on the board, every tree and tent queued
+         */
+        State() {
+            this.tent = new boolean[numSpots];
+            this.owner = new int[numSpots];
+            this.blocked = new int[numSpots];
+            this.unfreeBy = new int[numSpots];
+            this.tentAt = new int[numSpots];
+            this.forcedBy = new int[numSpots];
+            this.assigned = new int[numTrees];
+            this.assignedAt = new int[numTrees];
+            this.banned = new int[4 * numTrees];
+            this.bannedAt = new int[4 * numTrees];
+            this.treeTaken = new boolean[numTrees];
+            Arrays.fill(this.owner, -1);
+            Arrays.fill(this.assigned, -1);
+            this.need = (lineSlack == null) ? null : lineSlack.clone(); //the tents on the board are counted already
+            this.lineQueued = (lineSlack == null) ? null : new boolean[lineSlack.length];
+            for (int s = 0; s < numSpots; s++) {
+                if (given[s]) {
+                    give(s);
+                }
+            }
+            for (int i = 0; i < numTrees; i++) {
+                pushTree(i);
+            }
+            for (int l = 0; this.need != null && l < this.need.length; l++) {
+                pushLine(l);
+            }
+        }
+
+        /**
+         * Put a tent which is on the board on spot s: it blocks every spot it touches and waits for a tree
+         */
+        void give(int s) {
+            this.tent[s] = true;
+            this.tentAt[s] = -1;
+            for (int k = 0; k < 8; k++) {
+                int t = spotTouch[8 * s + k];
+                if (t >= 0 && this.blocked[t]++ == 0 && this.owner[t] < 0) {
+                    this.unfreeBy[t] = -1; //blocked by the board itself, no assignment to blame
+                    pushTreesOf(t);
+                    pushLinesOf(t);
+                }
+            }
+            pushSpot(s);
+        }
+
+        /**
+         * A copy of another state which has been propagated, so that another thread can search on from it.
+         * The trail is copied as well so that failures can still be explained; the copy starts at decision
+         * level 0, every assignment made before it counts as part of the puzzle.
+         * @param other the state to copy, nothing may be queued in it
+         */
+        State(State other) {
+            // O(T + S + K) where K is the size of the trail
+            this.tent = other.tent.clone();
+            this.owner = other.owner.clone();
+            this.blocked = other.blocked.clone();
+            this.assigned = other.assigned.clone();
+            this.assignedAt = other.assignedAt.clone();
+            this.unfreeBy = other.unfreeBy.clone();
+            this.tentAt = other.tentAt.clone();
+            this.forcedBy = other.forcedBy.clone();
+            this.banned = other.banned.clone(); //the nogoods are left behind, the entries they made stay
+            this.bannedAt = other.bannedAt.clone();
+            this.treeTaken = new boolean[numTrees];
+            this.trail = other.trail.clone();
+            this.trailLevel = new int[this.trail.length]; //all at level 0
+            this.trailKind = other.trailKind.clone();
+            this.trailWhy = other.trailWhy.clone();
+            this.seen = new int[this.trail.length];
+            this.trailSize = other.trailSize;
+            this.pairs = other.pairs.clone();
+            this.pairCount = other.pairCount;
+            this.cursor = other.cursor;
+            this.job = other.job;
+            this.need = (other.need == null) ? null : other.need.clone();
+            this.lineQueued = (other.need == null) ? null : new boolean[other.need.length];
+        }
+
+        /**
+         * @return boolean, true if the spot can still take the tent of one of its trees
+         */
+        boolean isFree(int s) {
+            return this.owner[s] < 0 && this.blocked[s] == 0 && (this.need == null || this.tent[s]
+                    || (this.need[spotRow[s]] > 0 && this.need[board.numRows() + spotCol[s]] > 0));
+        }
+
+        /**
+         * @return boolean, true if tree i can still put its tent on its k-th spot
+         */
+        boolean canTake(int i, int k) {
+            int s = treeSpots[4 * i + k];
+            return s >= 0 && isFree(s) && this.banned[4 * i + k] == 0;
+        }
+
+        /**
+         * @return boolean, true if literal x holds
+         */
+        boolean holds(int x) {
+            if (x < 4 * numTrees) {
+                return this.assigned[x >> 2] == treeSpots[x];
+            }
+            return this.tent[x - 4 * numTrees];
+        }
+
+        /**
+         * @return boolean, true if literal x does not hold and never can before the search backtracks
+         */
+        boolean ruledOut(int x) {
+            if (x < 4 * numTrees) {
+                return this.assigned[x >> 2] >= 0 ? !holds(x) : !canTake(x >> 2, x & 3);
+            }
+            return !this.tent[x - 4 * numTrees] && !isFree(x - 4 * numTrees);
+        }
+
+        /**
+         * @return int, the trail index of the entry which made literal x hold, -1 for a tent of the board
+         */
+        int holdsSince(int x) {
+            return (x < 4 * numTrees) ? this.assignedAt[x >> 2] : this.tentAt[x - 4 * numTrees];
+        }
+
+        /**
+         * @return int, the literal trail entry e made hold: its assignment, or its tent for a tent of a line
+         */
+        int literal(int e) {
+            if (this.trail[e] < 0) {
+                return 4 * numTrees + ~this.trail[e];
+            }
+            int i = this.trail[e] >>> 1;
+            int k = 0;
+            while (treeSpots[4 * i + k] != this.assigned[i]) {
+                k++;
+            }
+            return 4 * i + k;
+        }
+
+        /**
+         * @return boolean, true if spot s can still get a new tent: it is free, empty and one of its trees has no tent
+         */
+        boolean isOpen(int s) {
+            if (this.tent[s] || !isFree(s)) {
+                return false;
+            }
+            for (int k = 0; k < 4; k++) {
+                int i = spotTrees[4 * s + k];
+                if (i >= 0 && this.assigned[i] < 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void pushTree(int i) {
+            if (this.treeCount == this.treeQueue.length) {
+                this.treeQueue = Arrays.copyOf(this.treeQueue, 2 * this.treeCount);
+            }
+            this.treeQueue[this.treeCount++] = i;
+        }
+
+        void pushSpot(int s) {
+            if (this.spotCount == this.spotQueue.length) {
+                this.spotQueue = Arrays.copyOf(this.spotQueue, 2 * this.spotCount);
+            }
+            this.spotQueue[this.spotCount++] = s;
+        }
+
+        /**
+         * Queue literal x, which just started to hold, if a learned nogood watches it
+         */
+        void pushLiteral(int x) {
+            if (this.watches == null || this.watchCount[x] == 0) {
+                return;
+            }
+            if (this.litCount == this.litQueue.length) {
+                this.litQueue = Arrays.copyOf(this.litQueue, 2 * this.litCount);
+            }
+            this.litQueue[this.litCount++] = x;
+        }
+
+        void pushLine(int l) {
+            if (this.need == null || this.need[l] == NO_CLUE || this.lineQueued[l]) {
+                return;
+            }
+            if (this.lineCount == this.lineQueue.length) {
+                this.lineQueue = Arrays.copyOf(this.lineQueue, 2 * this.lineCount);
+            }
+            this.lineQueued[l] = true;
+            this.lineQueue[this.lineCount++] = l;
+        }
+
+        /**
+         * Queue the row and the column of spot s
+         */
+        void pushLinesOf(int s) {
+            if (this.need != null) {
+                pushLine(spotRow[s]);
+                pushLine(board.numRows() + spotCol[s]);
+            }
+        }
+
+        /**
+         * Count a tent put on (delta -1) or taken off (delta +1) spot s in the lines of the spot, and queue them.
+         * A line which gets all of its tents takes no more: its spots are not free any more, their trees and
+         * their other lines are queued.
+         */
+        void countTent(int s, int delta) {
+            // O(1), or O(L) when a line gets all of its tents, where L is the number of spots in the line
+            if (this.need == null) {
+                return;
+            }
+            for (int k = 0; k < 2; k++) {
+                int l = (k == 0) ? spotRow[s] : board.numRows() + spotCol[s];
+                if (this.need[l] == NO_CLUE) {
+                    continue;
+                }
+                this.need[l] += delta;
+                pushLine(l);
+                if (delta > 0 || this.need[l] != 0) {
+                    continue;
+                }
+                for (int j = lineStart[l]; j < lineStart[l + 1]; j++) {
+                    int t = lineSpots[j];
+                    if (!this.tent[t] && this.owner[t] < 0 && this.blocked[t] == 0) {
+                        pushTreesOf(t);
+                        pushLinesOf(t);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Queue every tree without a tent next to spot s, they just lost s as a candidate
+         */
+        void pushTreesOf(int s) {
+            for (int k = 0; k < 4; k++) {
+                int i = spotTrees[4 * s + k];
+                if (i >= 0 && this.assigned[i] < 0) {
+                    pushTree(i);
+                }
+            }
+        }
+
+        /**
+         * Give tree i the tent on spot s (putting a new tent there if needed) and queue what it affects
+         * @param i a tree without a tent
+         * @param s a free spot next to the tree
+         * @param kind why the assignment is made: DECIDED, FORCED_BY_TREE or FORCED_BY_TENT
+         */
+        void assign(int i, int s, byte kind) {
+            // O(1)
+            boolean created = !this.tent[s];
+            int e = record((i << 1) | (created ? 1 : 0), kind);
+            this.assigned[i] = s;
+            this.assignedAt[i] = e;
+            this.owner[s] = i;
+            this.unfreeBy[s] = e;
+            if (created) {
+                putTent(s, e);
+            }
+            pushTreesOf(s);
+            for (int k = 0; k < 4; k++) { //the tents next to tree i lost it as a possible owner
+                int t = treeSpots[4 * i + k];
+                if (t == s) {
+                    pushLiteral(4 * i + k);
+                    if (this.phase != null) {
+                        this.phase[i] = k;
+                    }
+                }
+                if (t >= 0 && this.tent[t] && this.owner[t] < 0) {
+                    pushSpot(t);
+                }
+                if (t >= 0) { //and the other spots of the tree may have lost their last tree without a tent
+                    pushLinesOf(t);
+                }
+            }
+        }
+
+        /**
+         * Put a tent on spot s for one of its lines, before any tree takes it, and queue what it affects
+         * @param s an open spot (see isOpen())
+         * @param l the line which needs the tent
+         */
+        void placeTent(int s, int l) {
+            // O(1)
+            this.forcedBy[s] = l;
+            putTent(s, record(~s, FORCED_BY_LINE));
+            pushSpot(s);
+        }
+
+        /**
+         * Put a new tent on spot s: it blocks every spot it touches and counts in its lines
+         * @param e the trail entry which put it there
+         */
+        void putTent(int s, int e) {
+            this.tent[s] = true;
+            this.tentAt[s] = e;
+            for (int k = 0; k < 8; k++) {
+                int t = spotTouch[8 * s + k];
+                if (t >= 0 && this.blocked[t]++ == 0 && this.owner[t] < 0) {
+                    this.unfreeBy[t] = e;
+                    pushTreesOf(t);
+                    pushLinesOf(t);
+                }
+            }
+            countTent(s, -1);
+            pushLiteral(4 * numTrees + s);
+        }
+
+        /**
+         * Rule literal x out for the rest of this branch, since every other literal of learned nogood n holds:
+         * tree i does not get its k-th spot, or spot s does not get a tent
+         * @param n offset of the nogood in nogoods
+         */
+        void ruleOut(int x, int n) {
+            // O(1)
+            int e = record(x, LEARNED);
+            this.trailWhy[e] = n;
+            if (x < 4 * numTrees) {
+                if (this.banned[x]++ == 0) {
+                    this.bannedAt[x] = e;
+                    pushTree(x >> 2);
+                }
+                return;
+            }
+            int s = x - 4 * numTrees;
+            if (this.blocked[s]++ == 0 && this.owner[s] < 0) {
+                this.unfreeBy[s] = e;
+                pushTreesOf(s);
+                pushLinesOf(s);
+            }
+        }
+
+        /**
+         * Add an entry at the current decision level to the trail
+         * @return int, the index of the entry
+         */
+        int record(int entry, byte kind) {
+            int e = this.trailSize;
+            if (e == this.trail.length) {
+                this.trail = Arrays.copyOf(this.trail, 2 * e);
+                this.trailLevel = Arrays.copyOf(this.trailLevel, 2 * e);
+                this.trailKind = Arrays.copyOf(this.trailKind, 2 * e);
+                this.trailWhy = Arrays.copyOf(this.trailWhy, 2 * e);
+                this.seen = Arrays.copyOf(this.seen, 2 * e);
+            }
+            this.trail[e] = entry;
+            this.trailLevel[e] = this.level;
+            this.trailKind[e] = kind;
+            this.trailSize++;
+            return e;
+        }
+
+        /**
+         * Undo the assignments on the trail until only mark of them are left
+         * @param mark the trail size to go back to
+         */
+        void undoTo(int mark) {
+            // O(K) where K is the number of undone assignments
+            while (this.trailSize > mark) {
+                int entry = this.trail[--this.trailSize];
+                int s;
+                if (this.trailKind[this.trailSize] == LEARNED) {
+                    if (entry < 4 * numTrees) {
+                        this.banned[entry]--;
+                    }
+                    else {
+                        this.blocked[entry - 4 * numTrees]--;
+                    }
+                    continue;
+                }
+                if (entry < 0) { //a tent put there by its lines
+                    s = ~entry;
+                }
+                else {
+                    int i = entry >>> 1;
+                    s = this.assigned[i];
+                    this.assigned[i] = -1;
+                    this.owner[s] = -1;
+                    if (this.heapAt != null && this.heapAt[i] < 0) {
+                        heapInsert(i);
+                    }
+                }
+                if (entry < 0 || (entry & 1) != 0) {
+                    this.tent[s] = false;
+                    for (int k = 0; k < 8; k++) {
+                        int t = spotTouch[8 * s + k];
+                        if (t >= 0) {
+                            this.blocked[t]--;
+                        }
+                    }
+                    countTent(s, 1);
+                }
+            }
+            clearQueues();
+        }
+
+        /**
+         * Forget everything queued
+         */
+        void clearQueues() {
+            this.treeCount = 0;
+            this.spotCount = 0;
+            this.litCount = 0;
+            while (this.lineCount > 0) {
+                this.lineQueued[this.lineQueue[--this.lineCount]] = false;
+            }
+        }
+
+        /**
+         * Apply forced moves until nothing is queued
+         * @return boolean, false if a tree or a tent was left without any possible partner
+         */
+        boolean propagate() {
+            while (this.litCount > 0 || this.treeCount > 0 || this.spotCount > 0 || this.lineCount > 0) {
+                if (this.litCount > 0) {
+                    if (!watch(this.litQueue[--this.litCount])) {
+                        return false;
+                    }
+                }
+                else if (this.treeCount > 0) {
+                    int i = this.treeQueue[--this.treeCount];
+                    if (this.assigned[i] >= 0) {
+                        continue;
+                    }
+                    int free = 0, only = -1;
+                    for (int k = 0; k < 4; k++) {
+                        if (canTake(i, k)) {
+                            free++;
+                            only = treeSpots[4 * i + k];
+                        }
+                    }
+                    if (free == 0) {
+                        this.failedTree = i;
+                        return fail("tree " + cell(treeRow[i], treeCol[i]) + " has no free cell left for its tent");
+                    }
+                    if (free == 1) {
+                        assign(i, only, FORCED_BY_TREE);
+                    }
+                    else if (free == 2) {
+                        if (this.pairCount == this.pairs.length) {
+                            this.pairs = Arrays.copyOf(this.pairs, 2 * this.pairCount);
+                        }
+                        this.pairs[this.pairCount++] = i;
+                    }
+                }
+                else if (this.spotCount > 0) {
+                    int s = this.spotQueue[--this.spotCount];
+                    if (!this.tent[s] || this.owner[s] >= 0) {
+                        continue;
+                    }
+                    int left = 0, only = -1;
+                    for (int k = 0; k < 4; k++) {
+                        int i = spotTrees[4 * s + k];
+                        if (i >= 0 && this.assigned[i] < 0) {
+                            left++;
+                            only = i;
+                        }
+                    }
+                    if (left == 0) {
+                        this.failedTent = s;
+                        return fail("tent " + cell(spotRow[s], spotCol[s]) + " has no tree left to belong to");
+                    }
+                    if (left == 1) {
+                        assign(only, s, FORCED_BY_TENT);
+                    }
+                }
+                else if (!propagateLine(this.lineQueue[--this.lineCount])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Check that clued line l still has room for the tents it needs, and put the tents it cannot do without
+         * @return boolean, false if the open spots of the line cannot take as many tents as it needs
+         */
+        boolean propagateLine(int l) {
+            // O(L) where L is the number of spots in the line, O(L^2) if it needs as many tents as it can take
+            this.lineQueued[l] = false;
+            int need = this.need[l];
+            if (need == 0) { //full, isFree() keeps its empty spots out
+                return true;
+            }
+            markLine(l, this.trailSize);
+            int room = lineMax(l, -1);
+            int forced = 0;
+            if (room == need) { //a spot is forced if every way to get the tents uses it, like the way just found
+                int tents = lineTents(l);
+                for (int j = 0; j < tents; j++) {
+                    int spot = this.lineForced[j];
+                    if (lineMax(l, spot) < need) {
+                        this.lineForced[forced++] = lineSpots[spot];
+                    }
+                }
+            }
+            unmarkTrees(l);
+            if (room < need) {
+                this.failedLine = l;
+                return fail(line(l) + " needs " + need + " more tents but has room for only " + room);
+            }
+            for (int j = 0; j < forced; j++) {
+                if (isOpen(this.lineForced[j])) {
+                    placeTent(this.lineForced[j], l);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Mark the spots of line l which could take a new tent before the trail entry before in lineOpen,
+         * and the trees next to them which had their tent in treeTaken (see unmarkTrees())
+         */
+        void markLine(int l, int before) {
+            // O(L) where L is the number of spots in the line, more for spots which a full line took away
+            int start = lineStart[l], count = lineStart[l + 1] - start;
+            if (this.lineOpen == null || this.lineOpen.length < count) {
+                this.lineOpen = new boolean[count];
+                this.lineForced = new int[count];
+                this.lineBest = new int[3 * count];
+            }
+            for (int j = 0; j < count; j++) {
+                int s = lineSpots[start + j];
+                this.lineOpen[j] = (before == this.trailSize) ? isFree(s) && !this.tent[s]
+                        : !(this.tent[s] && this.tentAt[s] < before) && !takenBefore(s, before) && fullLine(s, before) < 0;
+                for (int k = 0; k < 4; k++) {
+                    int i = spotTrees[4 * s + k];
+                    if (i >= 0) {
+                        this.treeTaken[i] = this.assigned[i] >= 0 && this.assignedAt[i] < before;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Clear the marks markLine() left in treeTaken
+         */
+        void unmarkTrees(int l) {
+            for (int j = lineStart[l]; j < lineStart[l + 1]; j++) {
+                for (int k = 0; k < 4; k++) {
+                    int i = spotTrees[4 * lineSpots[j] + k];
+                    if (i >= 0) {
+                        this.treeTaken[i] = false;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Count the most tents the spots of line l marked in lineOpen can take: no two of them next to each other,
+         * and each with a tree of its own which is not marked in treeTaken. A tree of another line reaches a single
+         * spot of the line and a tree of the line sits between two of its spots, so a single pass along the line
+         * is enough, remembering whether the last spot took a tent and whether that tent took the tree after it.
+         * The best counts after every spot are left in lineBest for lineTents().
+         * @param empty index in lineSpots of a spot to leave without a tent, -1 if none
+         * @return int, the number of tents
+         */
+        int lineMax(int l, int empty) {
+            // O(L) where L is the number of spots in the line
+            int start = lineStart[l], count = lineStart[l + 1] - start;
+            int[] best = this.lineBest;
+            int bare = 0, tented = NONE, claimed = NONE;
+            for (int j = 0; j < count; j++) {
+                int how = (start + j == empty) ? 0 : lineSpot(l, j);
+                int b = Math.max(bare, Math.max(tented, claimed));
+                int t = NONE, c = NONE;
+                for (int f = BARE; f <= CLAIMED; f++) {
+                    int from = (f == BARE) ? bare : (f == TENTED) ? tented : claimed;
+                    int g = next(how, f);
+                    if (from == NONE || g == BARE) {
+                        continue;
+                    }
+                    if (g == TENTED) {
+                        t = Math.max(t, from + 1);
+                    }
+                    else {
+                        c = Math.max(c, from + 1);
+                    }
+                }
+                bare = best[3 * j] = b;
+                tented = best[3 * j + 1] = t;
+                claimed = best[3 * j + 2] = c;
+            }
+            return Math.max(bare, Math.max(tented, claimed));
+        }
+
+        /**
+         * Find one way to put as many tents on line l as lineMax(l, -1) just counted
+         * @return int, the number of those tents, in lineForced
+         */
+        int lineTents(int l) {
+            // O(L) where L is the number of spots in the line
+            int start = lineStart[l], count = lineStart[l + 1] - start;
+            int[] best = this.lineBest;
+            int tents = 0, g = BARE;
+            for (int f = TENTED; f <= CLAIMED; f++) {
+                if (count > 0 && best[3 * (count - 1) + f] > best[3 * (count - 1) + g]) {
+                    g = f;
+                }
+            }
+            for (int j = count - 1; j >= 0; j--) {
+                int value = best[3 * j + g];
+                if (g != BARE) {
+                    this.lineForced[tents++] = start + j;
+                }
+                int how = lineSpot(l, j), f = BARE;
+                for (int h = BARE; j > 0 && h <= CLAIMED; h++) { //a state of the spot before which leads here
+                    int from = best[3 * (j - 1) + h];
+                    if (from != NONE && (g == BARE ? from == value : next(how, h) == g && from + 1 == value)) {
+                        f = h;
+                        break;
+                    }
+                }
+                g = f;
+            }
+            return tents;
+        }
+
+        /**
+         * Describe the j-th spot of line l for lineMax(): whether it can take a tent and which trees it can
+         * take one from
+         * @return int, a combination of the bits OPEN, NEXT, SHARED, OTHER, LEFT and RIGHT
+         */
+        int lineSpot(int l, int j) {
+            int start = lineStart[l];
+            int s = lineSpots[start + j];
+            if (!this.lineOpen[j]) {
+                return 0;
+            }
+            boolean row = l < board.numRows();
+            int at = row ? spotCol[s] : spotRow[s];
+            int how = OPEN;
+            if (j > 0 && (row ? spotCol[lineSpots[start + j - 1]] : spotRow[lineSpots[start + j - 1]]) == at - 1) {
+                how |= NEXT;
+            }
+            for (int k = 0; k < 4; k++) {
+                int i = spotTrees[4 * s + k];
+                if (i < 0 || this.treeTaken[i]) {
+                    continue;
+                }
+                if ((row ? treeRow[i] : treeCol[i]) != (row ? spotRow[s] : spotCol[s])) {
+                    how |= OTHER;
+                }
+                else if ((row ? treeCol[i] : treeRow[i]) > at) {
+                    how |= RIGHT;
+                }
+                else {
+                    how |= LEFT;
+                    // the tree before the spot is also the tree after the spot before it
+                    int p = (j > 0) ? lineSpots[start + j - 1] : -1;
+                    for (int m = 0; p >= 0 && m < 4; m++) {
+                        if (spotTrees[4 * p + m] == i) {
+                            how |= SHARED;
+                        }
+                    }
+                }
+            }
+            return how;
+        }
+
+        /**
+         * @return int, the state a spot described by how (see lineSpot()) gets after a spot in state f
+         * when it takes a tent: TENTED, CLAIMED if the tent needs the tree after the spot, BARE if it cannot
+         */
+        int next(int how, int f) {
+            if ((how & OPEN) == 0 || ((how & NEXT) != 0 && f != BARE)) {
+                return BARE;
+            }
+            if ((how & OTHER) != 0 || ((how & LEFT) != 0 && !((how & SHARED) != 0 && f == CLAIMED))) {
+                return TENTED;
+            }
+            return ((how & RIGHT) != 0) ? CLAIMED : BARE;
+        }
+
+        /**
+         * Visit the learned nogoods watching literal x, which just started to hold. A nogood moves its watch to
+         * another literal which does not hold; if there is none, its other watched literal is ruled out,
+         * or the branch fails if that one holds as well.
+         * @return boolean, false if every literal of a nogood holds
+         */
+        boolean watch(int x) {
+            // O(W * N) where W is the number of nogoods watching x and N their size
+            int[] list = this.watches[x];
+            int j = 0;
+            while (j < this.watchCount[x]) {
+                int n = list[j];
+                if (this.nogoods[n + 1] != x) { //keep x as the first watched literal
+                    this.nogoods[n + 2] = this.nogoods[n + 1];
+                    this.nogoods[n + 1] = x;
+                }
+                int m = n + 3, last = n + this.nogoods[n];
+                while (m <= last && holds(this.nogoods[m])) {
+                    m++;
+                }
+                if (m <= last) {
+                    int y = this.nogoods[m];
+                    this.nogoods[m] = x;
+                    this.nogoods[n + 1] = y;
+                    addWatch(y, n);
+                    list[j] = list[--this.watchCount[x]];
+                    continue;
+                }
+                int other = this.nogoods[n + 2];
+                if (holds(other)) {
+                    this.failedNogood = n;
+                    int t = (x < 4 * numTrees) ? treeSpots[x] : x - 4 * numTrees;
+                    return fail("the tents around " + cell(spotRow[t], spotCol[t]) + " repeat a placement which failed before");
+                }
+                if (!ruledOut(other)) {
+                    ruleOut(other, n);
+                }
+                j++;
+            }
+            return true;
+        }
+
+        /**
+         * Let nogood n watch literal x
+         */
+        void addWatch(int x, int n) {
+            if (this.watches[x] == null) {
+                this.watches[x] = new int[4];
+            }
+            else if (this.watchCount[x] == this.watches[x].length) {
+                this.watches[x] = Arrays.copyOf(this.watches[x], 2 * this.watchCount[x]);
+            }
+            this.watches[x][this.watchCount[x]++] = n;
+        }
+
+        boolean fail(String reason) {
+            this.failure = reason;
+            clearQueues();
+            return false;
+        }
+
+        /**
+         * Start explaining the last failed propagation: queue the trail entries it depends on
+         * @return int, the size of the work list in treeQueue
+         */
+        int blameFailure() {
+            this.stamp++;
+            int work = 0;
+            if (this.failedTree >= 0) { //every spot of the tree is taken, blocked, out for its lines or ruled out
+                for (int k = 0; k < 4; k++) {
+                    if (treeSpots[4 * this.failedTree + k] >= 0) {
+                        work = blameSpot(this.failedTree, k, this.trailSize, work);
+                    }
+                }
+            }
+            else if (this.failedTent >= 0) { //every tree next to the tent has another tent
+                work = blame(this.tentAt[this.failedTent], work);
+                for (int k = 0; k < 4; k++) {
+                    int i = spotTrees[4 * this.failedTent + k];
+                    if (i >= 0) {
+                        work = blame(this.assignedAt[i], work);
+                    }
+                }
+            }
+            else if (this.failedLine >= 0) { //the line has no room left for its tents
+                work = blameLine(this.failedLine, this.trailSize, -1, work);
+            }
+            else { //every literal of the nogood holds
+                int n = this.failedNogood;
+                for (int m = n + 1; m <= n + this.nogoods[n]; m++) {
+                    work = blame(holdsSince(this.nogoods[m]), work);
+                }
+            }
+            this.failedTree = -1;
+            this.failedTent = -1;
+            this.failedLine = -1;
+            this.failedNogood = -1;
+            return work;
+        }
+
+        /**
+         * Learn a nogood from the last failed propagation. Its reasons are followed back through the latest
+         * decision level they reach until a single entry of that level is left (the first unique implication
+         * point): that entry and the entries of earlier levels the failure depends on can never all stand.
+         * A LEARNED entry is always followed back to what made it, so that nogoods only hold assignments and tents.
+         * The nogood is stored with the literal of the single entry first and a literal of the latest other
+         * level second, the two literals it watches.
+         * learnedLevel is set to the latest level of the other entries, where the nogood rules out its first literal.
+         * @return int, the decision level of the failure (that of the single entry, which can be below the current
+         * level), -1 if the failure does not depend on any decision
+         */
+        int analyze() {
+            // O(K) where K is the size of the trail
+            int work = blameFailure();
+            int size = 0, top = 0;
+            while (work > 0) {
+                int e = this.treeQueue[--work];
+                if (this.trailKind[e] >= LEARNED) {
+                    work = reasons(e, work);
+                }
+                else {
+                    size = learn(e, size);
+                    bumpEntry(e);
+                    top = Math.max(top, this.trailLevel[e]);
+                }
+            }
+            if (top == 0) {
+                this.treeCount = 0;
+                return -1;
+            }
+            int pending = 0, kept = 0; //entries of the top level still to follow back, entries of earlier levels
+            for (int j = 0; j < size; j++) {
+                if (this.trailLevel[this.learnt[j]] == top) {
+                    pending++;
+                }
+                else {
+                    this.learnt[kept++] = this.learnt[j];
+                }
+            }
+            size = kept;
+            int uip = (top < this.level) ? this.levelStart[top + 1] - 1 : this.trailSize - 1; //the end of level top
+            for (; ; uip--) {
+                if (this.seen[uip] != this.stamp || this.trailKind[uip] >= LEARNED || this.trailLevel[uip] != top) {
+                    continue;
+                }
+                if (pending == 1) {
+                    break;
+                }
+                pending--;
+                work = reasons(uip, 0);
+                while (work > 0) {
+                    int e = this.treeQueue[--work];
+                    if (this.trailKind[e] >= LEARNED) {
+                        work = reasons(e, work);
+                    }
+                    else if (this.trailLevel[e] == top) {
+                        pending++;
+                        bumpEntry(e);
+                    }
+                    else {
+                        size = learn(e, size);
+                        bumpEntry(e);
+                    }
+                }
+            }
+            // drop the entries which the other entries (or the puzzle itself) already made happen
+            this.stamp++;
+            this.seen[uip] = this.stamp;
+            for (int j = 0; j < size; j++) {
+                this.seen[this.learnt[j]] = this.stamp;
+            }
+            int left = 0;
+            for (int j = 0; j < size; j++) {
+                int e = this.learnt[j];
+                if (this.trailKind[e] == DECIDED) {
+                    this.learnt[left++] = e;
+                    continue;
+                }
+                work = reasons(e, 0);
+                if (work > 0) {
+                    this.learnt[left++] = e;
+                }
+                for (int m = 0; m < work; m++) { //those are no part of the nogood
+                    this.seen[this.treeQueue[m]] = 0;
+                }
+            }
+            size = left;
+            this.treeCount = 0;
+            if (this.activity != null) {
+                this.bump /= DECAY;
+            }
+            // store the nogood: the first unique implication point, then the latest of the others
+            int jump = 0, second = -1;
+            for (int j = 0; j < size; j++) {
+                if (this.trailLevel[this.learnt[j]] > jump) {
+                    jump = this.trailLevel[this.learnt[j]];
+                    second = j;
+                }
+            }
+            if (this.nogoodSize + size + 2 > this.nogoods.length) {
+                this.nogoods = Arrays.copyOf(this.nogoods, 2 * (this.nogoodSize + size + 2));
+            }
+            int n = this.nogoodSize;
+            this.nogoods[n] = size + 1;
+            this.nogoods[n + 1] = literal(uip);
+            for (int j = 0, m = n + 3; j < size; j++) {
+                this.nogoods[(j == second) ? n + 2 : m++] = literal(this.learnt[j]);
+            }
+            this.learned = n;
+            this.learnedLevel = jump;
+            this.nogoodSize += size + 2;
+            return top;
+        }
+
+        /**
+         * Add trail entry e to the entries of the nogood being learned
+         * @return int, the new number of entries
+         */
+        int learn(int e, int size) {
+            if (size == this.learnt.length) {
+                this.learnt = Arrays.copyOf(this.learnt, 2 * size);
+            }
+            this.learnt[size] = e;
+            return size + 1;
+        }
+
+        /**
+         * Keep the nogood analyze() just stored, once the search has gone back to a level where every literal
+         * of it but the first still holds: it watches its first two literals, and its first literal is ruled out
+         */
+        void keepLearned() {
+            int n = this.learned;
+            if (this.watches == null) {
+                this.watches = new int[4 * numTrees + numSpots][];
+                this.watchCount = new int[4 * numTrees + numSpots];
+            }
+            if (this.nogoods[n] > 1) {
+                addWatch(this.nogoods[n + 1], n);
+                addWatch(this.nogoods[n + 2], n);
+            }
+            ruleOut(this.nogoods[n + 1], n);
+        }
+
+        /**
+         * Remember that nogood n had its missing literal ruled out at the current level, above the level at
+         * which the rest of it holds, so that reassert() can rule it out again once the search backtracks
+         */
+        void keepLate(int n) {
+            if (this.level == 0) {
+                return;
+            }
+            if (this.lateCount == this.lateNogood.length) {
+                this.lateNogood = Arrays.copyOf(this.lateNogood, 2 * this.lateCount);
+                this.lateLevel = Arrays.copyOf(this.lateLevel, 2 * this.lateCount);
+            }
+            this.lateNogood[this.lateCount] = n;
+            this.lateLevel[this.lateCount++] = this.level;
+        }
+
+        /**
+         * After backtracking to the current level, rule out again the missing literal of every nogood kept by
+         * keepLate() above this level whose other literals all still hold
+         */
+        void reassert() {
+            // O(N * S) where N is the number of such nogoods and S their size
+            int keep = this.lateCount;
+            while (keep > 0 && this.lateLevel[keep - 1] > this.level) {
+                keep--;
+            }
+            int end = this.lateCount;
+            this.lateCount = keep;
+            for (int j = keep; j < end; j++) {
+                int n = this.lateNogood[j];
+                int missing = -1, left = 0; //the literals which do not hold, watch() may have moved them
+                for (int m = n + 1; m <= n + this.nogoods[n] && left < 2; m++) {
+                    if (!holds(this.nogoods[m])) {
+                        missing = this.nogoods[m];
+                        left++;
+                    }
+                }
+                if (left == 1 && !ruledOut(missing)) {
+                    ruleOut(missing, n);
+                    keepLate(n);
+                }
+            }
+        }
+
+        /**
+         * @return boolean, true if spot s was taken or blocked by the trail entries before the entry before
+         */
+        boolean takenBefore(int s, int before) {
+            // the first entry which took or blocked the spot is still on the trail while the spot is not free
+            return (this.owner[s] >= 0 || this.blocked[s] > 0) && this.unfreeBy[s] < before;
+        }
+
+        /**
+         * @return int, a clued line of spot s which had all of its tents before the trail entry before, -1 if none
+         */
+        int fullLine(int s, int before) {
+            // O(L) where L is the number of spots in the line, O(1) if no line of the spot is full now
+            for (int k = 0; k < 2 && this.need != null; k++) {
+                int l = (k == 0) ? spotRow[s] : board.numRows() + spotCol[s];
+                if (this.need[l] != 0) { //a line only needs fewer tents as the trail grows
+                    continue;
+                }
+                int later = 0; //tents put on the line from the entry before on
+                for (int j = lineStart[l]; j < lineStart[l + 1]; j++) {
+                    int t = lineSpots[j];
+                    later += (this.tent[t] && this.tentAt[t] >= before) ? 1 : 0;
+                }
+                if (later == 0) {
+                    return l;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Queue the reasons why spot s was not free before the trail entry before: the entry which took or
+         * blocked it, or the tents of a line which had all of its tents
+         * @return int, the new size of the work list
+         */
+        int blameUnfree(int s, int before, int work) {
+            if (takenBefore(s, before)) {
+                return blame(this.unfreeBy[s], work);
+            }
+            int l = fullLine(s, before);
+            for (int j = (l < 0) ? 0 : lineStart[l]; l >= 0 && j < lineStart[l + 1]; j++) {
+                int t = lineSpots[j];
+                if (this.tent[t] && this.tentAt[t] < before) {
+                    work = blame(this.tentAt[t], work);
+                }
+            }
+            return work;
+        }
+
+        /**
+         * Queue the reasons of the state of line l before the trail entry before which its rule used: the tents
+         * it had, why some of its other spots could not take a tent and which trees next to it had their tent.
+         * Those facts are dropped one by one while the rule still follows without them, so that the nogoods
+         * learned from the line stay short.
+         * @param forced the index in lineSpots of the tent the line put on, -1 to explain that the line
+         * had no room left for its tents
+         * @return int, the new size of the work list
+         */
+        int blameLine(int l, int before, int forced, int work) {
+            // O(L^2) where L is the number of spots in the line, more for spots which a full line took away
+            int start = lineStart[l], end = lineStart[l + 1];
+            int need = this.need[l];
+            markLine(l, before);
+            for (int j = start; j < end; j++) {
+                int t = lineSpots[j];
+                if (this.tent[t] && this.tentAt[t] >= before) { //put there later
+                    need++;
+                }
+                else if (this.tent[t]) {
+                    work = blame(this.tentAt[t], work);
+                }
+            }
+            for (int j = start; j < end; j++) {
+                int t = lineSpots[j];
+                if (!this.lineOpen[j - start] && !this.tent[t]) {
+                    this.lineOpen[j - start] = true;
+                    if (lineMax(l, forced) >= need) {
+                        this.lineOpen[j - start] = false;
+                        work = blameUnfree(t, before, work);
+                    }
+                }
+                for (int k = 0; k < 4; k++) {
+                    int i = spotTrees[4 * t + k];
+                    if (i >= 0 && this.treeTaken[i]) {
+                        this.treeTaken[i] = false;
+                        if (lineMax(l, forced) >= need) {
+                            this.treeTaken[i] = true;
+                            work = blame(this.assignedAt[i], work);
+                        }
+                    }
+                }
+            }
+            unmarkTrees(l);
+            return work;
+        }
+
+        /**
+         * @return boolean, true if a tree of spot s had no tent before the trail entry before
+         */
+        boolean openBefore(int s, int before) {
+            for (int k = 0; k < 4; k++) {
+                int i = spotTrees[4 * s + k];
+                if (i >= 0 && (this.assigned[i] < 0 || this.assignedAt[i] >= before)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Queue trail entry e (if not seen yet) to be explained, using treeQueue as the work list
+         * @return int, the new size of the work list
+         */
+        int blame(int e, int work) {
+            if (e >= 0 && this.trailLevel[e] > 0 && this.seen[e] != this.stamp) { //level 0 depends on no decision
+                this.seen[e] = this.stamp;
+                if (work == this.treeQueue.length) {
+                    this.treeQueue = Arrays.copyOf(this.treeQueue, 2 * work);
+                }
+                this.treeQueue[work++] = e;
+            }
+            return work;
+        }
+
+        /**
+         * Queue the trail entries which made trail entry e happen
+         * @return int, the new size of the work list
+         */
+        int reasons(int e, int work) {
+            if (this.trailKind[e] == LEARNED) { //every other literal of its nogood held
+                int n = this.trailWhy[e];
+                for (int m = n + 1; m <= n + this.nogoods[n]; m++) {
+                    if (this.nogoods[m] != this.trail[e]) {
+                        work = blame(holdsSince(this.nogoods[m]), work);
+                    }
+                }
+                return work;
+            }
+            if (this.trailKind[e] == FORCED_BY_LINE) { //the line had no other way to get its tents
+                int s = ~this.trail[e], l = this.forcedBy[s];
+                int j = lineStart[l];
+                while (lineSpots[j] != s) {
+                    j++;
+                }
+                return blameLine(l, e, j, work);
+            }
+            int i = this.trail[e] >>> 1;
+            int s = this.assigned[i];
+            if (this.trailKind[e] == FORCED_BY_TREE) { //the other spots of the tree were not free
+                for (int k = 0; k < 4; k++) {
+                    int t = treeSpots[4 * i + k];
+                    if (t >= 0 && t != s) {
+                        work = blameSpot(i, k, e, work);
+                    }
+                }
+            }
+            else if (this.trailKind[e] == FORCED_BY_TENT) { //the tent was there and its other trees had their tents
+                work = blame(this.tentAt[s], work);
+                for (int k = 0; k < 4; k++) {
+                    int j = spotTrees[4 * s + k];
+                    if (j >= 0 && j != i) {
+                        work = blame(this.assignedAt[j], work);
+                    }
+                }
+            }
+            return work;
+        }
+
+        /**
+         * Queue the reasons why tree i could not take its k-th spot before the trail entry before:
+         * a learned entry which ruled it out, or whatever made the spot not free
+         * @return int, the new size of the work list
+         */
+        int blameSpot(int i, int k, int before, int work) {
+            if (this.banned[4 * i + k] > 0 && this.bannedAt[4 * i + k] < before) {
+                return blame(this.bannedAt[4 * i + k], work);
+            }
+            return blameUnfree(treeSpots[4 * i + k], before, work);
+        }
+
+        /**
+         * Search the trees of one cluster, learning from every failure (conflict-driven nogood learning).
+         * Every decision gives a tree one of its spots and opens a new decision level. When propagation fails,
+         * analyze() learns a nogood whose first literal comes from the level of the failure and the others from
+         * earlier levels. The search undoes only the level of the failure and rules out the first literal there,
+         * instead of going all the way back to the level of the others: on a large cluster that would throw away
+         * every decision in between, most of which have nothing to do with the failure (reassert() rules the
+         * literal out again if the search goes back further). A failure which does not depend on any decision
+         * means the cluster has no solution. The learned nogoods stay, so no combination of tents which failed
+         * once is ever tried again.
+         * On a clued puzzle the search branches on the trees which took part in the most recent failures,
+         * first on the spot each had last, and starts over from level 0 after a growing number of failures.
+         * Afterwards the state holds the solution of the cluster (if there is one).
+         * @param c the cluster to search, the state must have been propagated
+         * @return boolean, true if the cluster was solved, false if it cannot be solved
+         */
+        boolean searchCluster(int c) {
+            int end = clusterStart[c + 1];
+            this.cursor = clusterStart[c];
+            this.level = 0;
+            this.lateCount = 0;
+            if (this.need != null) {
+                orderTrees(c);
+            }
+            int failures = 0, restarts = 0, restartAt = RESTART_UNIT;
+            while (true) {
+                if (!propagate()) {
+                    int top = analyze();
+                    if (top < 0) { //the failure does not depend on any decision
+                        return false;
+                    }
+                    undoTo(this.levelStart[top]); //the first literal of the nogood no longer holds
+                    this.cursor = this.levelCursor[top];
+                    this.level = top - 1;
+                    reassert();
+                    keepLearned();
+                    if (this.learnedLevel < this.level) {
+                        keepLate(this.learned);
+                    }
+                    if (this.heapAt != null && ++failures >= restartAt && this.level > 0) {
+                        restartAt += RESTART_UNIT * luby(++restarts);
+                        undoTo(this.levelStart[1]);
+                        this.cursor = this.levelCursor[1];
+                        this.level = 0;
+                        reassert();
+                    }
+                    continue;
+                }
+                if (this.job != null && this.job.stopped(c)) { //another thread solved the cluster or failed
+                    return false;
+                }
+                int tree = pickTree(c, end);
+                if (tree < 0) { //every tree of the cluster has its tent
+                    return true;
+                }
+                int k = 0;
+                while (!canTake(tree, k)) { //propagation left it at least 2 spots
+                    k++;
+                }
+                if (this.phase != null && this.phase[tree] >= 0 && canTake(tree, this.phase[tree])) {
+                    k = this.phase[tree];
+                }
+                this.decisions++;
+                this.level++;
+                if (this.level == this.levelStart.length) {
+                    this.levelStart = Arrays.copyOf(this.levelStart, 2 * this.level);
+                    this.levelCursor = Arrays.copyOf(this.levelCursor, 2 * this.level);
+                }
+                this.levelStart[this.level] = this.trailSize;
+                this.levelCursor[this.level] = this.cursor;
+                assign(tree, treeSpots[4 * tree + k], DECIDED);
+            }
+        }
+
+        /**
+         * Pick a tree of cluster c without a tent to branch on. On a clued puzzle that is the most active open
+         * tree. Otherwise, after propagation every such tree has at least 2 free spots, so a tree which
+         * propagation saw with exactly 2 is taken if it is still open (the fewest choices); otherwise the first
+         * open tree in row-major order, so the search sweeps across the cluster.
+         * Scanning every open tree for the minimum would make the search quadratic on large clusters.
+         * @param c the cluster being searched
+         * @param end index in clusterTrees just past the last tree of the cluster
+         * @return int, the tree to branch on, -1 if every tree of the cluster has its tent
+         */
+        int pickTree(int c, int end) {
+            // O(1) amortized, O(log T) per tree taken off the heap
+            if (this.heapAt != null) {
+                while (this.heapSize > 0 && this.assigned[this.heap[0]] >= 0) { //back in the heap once undone
+                    heapRemoveTop();
+                }
+                return (this.heapSize > 0) ? this.heap[0] : -1;
+            }
+            while (this.pairCount > 0) {
+                int i = this.pairs[--this.pairCount];
+                if (treeCluster[i] == c && this.assigned[i] < 0 && freeSpots(i) == 2) {
+                    return i;
+                }
+            }
+            while (this.cursor < end && this.assigned[clusterTrees[this.cursor]] >= 0) {
+                this.cursor++;
+            }
+            return (this.cursor < end) ? clusterTrees[this.cursor] : -1;
+        }
+
+        /**
+         * Start branching on the open trees of cluster c by activity, see pickTree()
+         */
+        void orderTrees(int c) {
+            // O(T log T) where T is the number of trees in the cluster
+            if (this.heapAt == null) {
+                this.activity = new double[numTrees];
+                this.phase = new int[numTrees];
+                this.heap = new int[numTrees];
+                this.heapAt = new int[numTrees];
+                Arrays.fill(this.phase, -1);
+                Arrays.fill(this.heapAt, -1);
+            }
+            while (this.heapSize > 0) {
+                this.heapAt[this.heap[--this.heapSize]] = -1;
+            }
+            for (int j = clusterStart[c]; j < clusterStart[c + 1]; j++) {
+                if (this.assigned[clusterTrees[j]] < 0) {
+                    heapInsert(clusterTrees[j]);
+                }
+            }
+        }
+
+        /**
+         * Count trail entry e in the activity of the trees it concerns, when branching by activity
+         */
+        void bumpEntry(int e) {
+            // O(log T)
+            if (this.activity == null) {
+                return;
+            }
+            if (this.trail[e] >= 0) { //an assignment
+                bumpTree(this.trail[e] >>> 1);
+                return;
+            }
+            int s = ~this.trail[e]; //a tent put there by its lines
+            for (int k = 0; k < 4; k++) {
+                if (spotTrees[4 * s + k] >= 0) {
+                    bumpTree(spotTrees[4 * s + k]);
+                }
+            }
+        }
+
+        void bumpTree(int i) {
+            // O(log T), O(T) when the activities are scaled down
+            this.activity[i] += this.bump;
+            if (this.activity[i] > 1e100) { //scale everything down before it overflows, the order stays
+                for (int j = 0; j < numTrees; j++) {
+                    this.activity[j] *= 1e-100;
+                }
+                this.bump *= 1e-100;
+            }
+            if (this.heapAt[i] >= 0) {
+                heapUp(this.heapAt[i]);
+            }
+        }
+
+        void heapInsert(int i) {
+            // O(log T)
+            this.heap[this.heapSize] = i;
+            this.heapAt[i] = this.heapSize;
+            heapUp(this.heapSize++);
+        }
+
+        void heapRemoveTop() {
+            // O(log T)
+            this.heapAt[this.heap[0]] = -1;
+            int last = this.heap[--this.heapSize];
+            if (this.heapSize > 0) {
+                this.heap[0] = last;
+                this.heapAt[last] = 0;
+                heapDown(0);
+            }
+        }
+
+        /**
+         * @return boolean, true if tree i comes before tree j in the heap: it is more active, or as active and
+         * earlier in row-major order
+         */
+        boolean first(int i, int j) {
+            return this.activity[i] > this.activity[j] || (this.activity[i] == this.activity[j] && i < j);
+        }
+
+        /**
+         * Move the tree at index j of the heap up past the trees above it which come after it
+         */
+        void heapUp(int j) {
+            int i = this.heap[j];
+            while (j > 0 && first(i, this.heap[(j - 1) / 2])) {
+                this.heap[j] = this.heap[(j - 1) / 2];
+                this.heapAt[this.heap[j]] = j;
+                j = (j - 1) / 2;
+            }
+            this.heap[j] = i;
+            this.heapAt[i] = j;
+        }
+
+        /**
+         * Move the tree at index j of the heap down below the trees under it which come before it
+         */
+        void heapDown(int j) {
+            int i = this.heap[j];
+            while (2 * j + 1 < this.heapSize) {
+                int child = 2 * j + 1;
+                if (child + 1 < this.heapSize && first(this.heap[child + 1], this.heap[child])) {
+                    child++;
+                }
+                if (!first(this.heap[child], i)) {
+                    break;
+                }
+                this.heap[j] = this.heap[child];
+                this.heapAt[this.heap[j]] = j;
+                j = child;
+            }
+            this.heap[j] = i;
+            this.heapAt[i] = j;
+        }
+
+        /**
+         * @return int, the number of free spots left next to tree i
+         */
+        int freeSpots(int i) {
+            int free = 0;
+            for (int k = 0; k < 4; k++) {
+                if (canTake(i, k)) {
+                    free++;
+                }
+            }
+            return free;
+        }
+
+        /**
+         * @return TentTree, a copy of the puzzle with the tents of this state added
+         */
+        TentTree toBoard() {
+            TentTree solved = board.copy();
+            for (int s = 0; s < numSpots; s++) {
+                if (this.tent[s] && !given[s]) {
+                    solved.addTent(solved.positionAt(spotRow[s], spotCol[s]));
+                }
+            }
+            return solved;
+        }
+    }
+
+    /**
+     * What the tasks of one parallel search share: the solution being put together, which clusters are solved
+     * and whether the search has failed. Clusters use different trees and spots, so tasks working on different
+     * clusters never write the same entries of the solution.
+     */
+    private final class Parallel {
+        final int[] solution = new int[numTrees]; //spot of the tent of tree i in the solution
+        final AtomicIntegerArray solved = new AtomicIntegerArray(numClusters); //1 once cluster c is solved
+        final AtomicReference<String> failure = new AtomicReference<>(); //why the puzzle cannot be solved
+        final LongAdder decisions = new LongAdder();
+        final int grain; //a group of clusters with at most this many trees is searched by a single task
+        final int splitDepth; //a large cluster is split on this many levels of decisions
+
+        Parallel(int threads) {
+            // several tasks per thread so that a thread which finishes early can steal some work
+            this.grain = Math.max(MIN_GRAIN, numTrees / (4 * threads));
+            this.splitDepth = 34 - Integer.numberOfLeadingZeros(threads); //about 4 * threads branches
+        }
+
+        /**
+         * @return boolean, true if the search of cluster c can stop: it was solved or another cluster failed
+         */
+        boolean stopped(int c) {
+            return this.failure.get() != null || this.solved.get(c) != 0;
+        }
+
+        /**
+         * Record the tents of cluster c in the state as its solution, unless another task got there first
+         */
+        void publish(State state, int c) {
+            if (this.solved.compareAndSet(c, 0, 1)) {
+                for (int j = clusterStart[c]; j < clusterStart[c + 1]; j++) {
+                    this.solution[clusterTrees[j]] = state.assigned[clusterTrees[j]];
+                }
+            }
+        }
+
+        /**
+         * @return TentTree, a copy of the puzzle with the tents of the solution added
+         */
+        TentTree toBoard() {
+            TentTree solved = board.copy();
+            for (int i = 0; i < numTrees; i++) {
+                int s = this.solution[i];
+                if (!given[s]) {
+                    solved.addTent(solved.positionAt(spotRow[s], spotCol[s]));
+                }
+            }
+            return solved;
+        }
+    }
+
+    /**
+     * Search the clusters lo .. hi-1, splitting them into two halves with about as many trees each
+     * while there are more trees than one task should take
+     */
+    private final class ClusterRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Parallel job;
+        private final State base; //the propagated puzzle, only read
+        private final int lo, hi;
+
+        ClusterRange(Parallel job, State base, int lo, int hi) {
+            this.job = job;
+            this.base = base;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            int trees = clusterStart[this.hi] - clusterStart[this.lo];
+            if (this.hi - this.lo > 1 && trees > this.job.grain) {
+                int mid = Arrays.binarySearch(clusterStart, this.lo, this.hi, clusterStart[this.lo] + trees / 2);
+                mid = (mid >= 0) ? mid : -mid - 1;
+                mid = Math.min(this.hi - 1, Math.max(this.lo + 1, mid));
+                invokeAll(new ClusterRange(this.job, this.base, this.lo, mid),
+                        new ClusterRange(this.job, this.base, mid, this.hi));
+                return;
+            }
+            State state = new State(this.base);
+            state.job = this.job;
+            for (int c = this.lo; c < this.hi && this.job.failure.get() == null; c++) {
+                boolean found;
+                if (trees > this.job.grain) { //a single large cluster
+                    found = new Branch(this.job, state, c, 0).invoke();
+                }
+                else {
+                    found = state.searchCluster(c);
+                    if (found) {
+                        this.job.publish(state, c);
+                    }
+                }
+                if (!found && !this.job.stopped(c)) {
+                    this.job.failure.compareAndSet(null, unsolvable(c, this.job.decisions.sum() + state.decisions));
+                }
+            }
+            this.job.decisions.add(state.decisions);
+        }
+    }
+
+    /**
+     * Search one cluster from a state, branching into a task for every free spot of a tree
+     * until the split depth is reached. Returns true if one of the branches solved the cluster.
+     */
+    private final class Branch extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+        private final Parallel job;
+        private final State state; //owned by this task
+        private final int c, depth;
+
+        Branch(Parallel job, State state, int c, int depth) {
+            this.job = job;
+            this.state = state;
+            this.c = c;
+            this.depth = depth;
+        }
+
+        protected Boolean compute() {
+            if (this.job.stopped(this.c)) {
+                return false;
+            }
+            if (this.depth == this.job.splitDepth) {
+                boolean found = this.state.searchCluster(this.c);
+                this.job.decisions.add(this.state.decisions);
+                if (found) {
+                    this.job.publish(this.state, this.c); //the siblings see the cluster as solved and stop
+                }
+                return found;
+            }
+            this.state.cursor = clusterStart[this.c];
+            int tree = this.state.pickTree(this.c, clusterStart[this.c + 1]);
+            if (tree < 0) {
+                this.job.publish(this.state, this.c);
+                return true;
+            }
+            List<Branch> branches = new ArrayList<>(4);
+            for (int k = 0; k < 4; k++) {
+                int s = treeSpots[4 * tree + k];
+                if (this.state.canTake(tree, k)) {
+                    State branch = new State(this.state);
+                    branch.assign(tree, s, State.DECIDED);
+                    this.job.decisions.increment();
+                    if (branch.propagate()) {
+                        branches.add(new Branch(this.job, branch, this.c, this.depth + 1));
+                    }
+                }
+            }
+            boolean found = false;
+            for (Branch branch : invokeAll(branches)) {
+                found |= branch.join();
+            }
+            return found;
+        }
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    /**
+     * Build a solvable puzzle: scatter tents that do not touch, give each one a tree next to it,
+     * then take the tents away again (also used by TentSolverBenchmark)
+     */
+    static TentTree randomPuzzle(int numRows, int numCols, long seed) {
+        Random random = new Random(seed);
+        TentTree solved = new TentTree(numRows, numCols);
+        TentTree puzzle = new TentTree(numRows, numCols);
+        for (int attempt = 0; attempt < numRows * numCols / 3; attempt++) {
+            Position tent = new Position(random.nextInt(numRows), random.nextInt(numCols));
+            int k = random.nextInt(4);
+            Position tree = new Position(tent.getRow() + TentTree.NBR_ROW[k], tent.getCol() + TentTree.NBR_COL[k]);
+            if (solved.get(tent) == null && solved.isValidPosition(tree) && solved.get(tree) == null
+                    && !solved.posTouching(tent, "X")) {
+                solved.addTent(tent);
+                solved.addTree(tree);
+                puzzle.addTree(tree);
+            }
+        }
+        return puzzle;
+    }
+
+    public static void main(String[] args) {
+        // puzzle1.txt and its only solution puzzle2.txt
+        TentTree p1 = new TentTree(3, 3);
+        p1.addTree(new Position(2, 2)); p1.addTree(new Position(1, 0)); p1.addTree(new Position(1, 2));
+        Result r1 = solve(p1);
+        if (r1.isSolved() && r1.getBoard().checkStatus() == 1 && r1.getBoard().hasTent(new Position(0, 0))
+                && r1.getBoard().hasTent(new Position(0, 2)) && r1.getBoard().hasTent(new Position(2, 1))
+                && p1.checkStatus() == 2) {
+            System.out.println("Yay 1");
+        }
+
+        // two trees whose only free cells touch each other, and a tent that is not next to a tree
+        TentTree p2 = new TentTree(2, 2);
+        p2.addTree(new Position(0, 0)); p2.addTree(new Position(1, 1));
+        TentTree p3 = new TentTree(3, 3);
+        p3.addTree(new Position(0, 0)); p3.addTent(new Position(2, 2));
+        if (!solve(p2).isSolved() && solve(p2).getReason() != null && !solve(p3).isSolved()
+                && solve(p3).getReason().equals("tent <2,2> is not next to any tree")) {
+            System.out.println("Yay 2");
+        }
+
+        // puzzle4.txt with one of the tents of puzzle5.txt already placed
+        TentTree p4 = new TentTree(5, 5);
+        int[][] trees = {{1, 4}, {3, 4}, {3, 3}, {0, 1}, {1, 1}, {3, 1}, {3, 0}};
+        for (int[] t : trees) {
+            p4.addTree(new Position(t[0], t[1]));
+        }
+        p4.addTent(new Position(4, 3));
+        Result r4 = solve(p4);
+        if (r4.isSolved() && r4.getBoard().checkStatus() == 1 && r4.getBoard().hasTent(new Position(4, 3))) {
+            System.out.println("Yay 3");
+        }
+
+        // large random boards
+        boolean ok = true;
+        long worst = 0;
+        for (int size : new int[]{50, 100, 200}) {
+            TentTree puzzle = randomPuzzle(size, size, size);
+            long start = System.nanoTime();
+            Result result = solve(puzzle);
+            worst = Math.max(worst, System.nanoTime() - start);
+            ok &= result.isSolved() && result.getBoard().checkStatus() == 1 && result.getBoard().rescanStatus() == 1;
+        }
+        if (ok) {
+            System.out.println("Yay 4 (slowest solve " + worst / 1000000 + " ms)");
+        }
+
+        // the parallel search agrees with the sequential one, also on a puzzle without a solution
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TentTree large = randomPuzzle(300, 300, 5);
+        Result parallel = solveParallel(large, pool);
+        large.addTree(new Position(0, 0)); large.addTree(new Position(0, 1)); large.addTree(new Position(1, 0));
+        large.addTree(new Position(1, 1)); //a 2x2 block of trees in a corner has room for only 2 tents
+        if (parallel.isSolved() && parallel.getBoard().rescanStatus() == 1 && !solveParallel(large, pool).isSolved()
+                && !solve(large).isSolved() && !solveParallel(p2, pool).isSolved() && solveParallel(p1, pool).isSolved()) {
+            System.out.println("Yay 5");
+        }
+
+        // clues pick one of the 4 cells around a tree, or leave it no cell at all
+        TentTree p6 = new TentTree(3, 3);
+        p6.addTree(new Position(1, 1));
+        p6.setClues(new int[]{0, 0, 1}, new int[]{0, 1, 0});
+        Result r6 = solve(p6);
+        TentTree p7 = p6.copy();
+        p7.setClues(new int[]{0, 1, 0}, new int[]{0, 1, 0});
+        if (r6.isSolved() && r6.getBoard().checkStatus() == 1 && r6.getBoard().hasTent(new Position(2, 1))
+                && solveParallel(p6, pool).isSolved() && !solve(p7).isSolved() && !solveParallel(p7, pool).isSolved()) {
+            System.out.println("Yay 6");
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * TentSolverBenchmark.java
+ * A macro benchmark of TentSolver: solves the same random puzzles sequentially and then in parallel
+ * with 1, 2, 4, ... up to N threads, and prints the median time of every run and its speedup
+ * over the sequential solver.
+ *
+ * Usage: java TentSolverBenchmark [size] [puzzles] [maxThreads]
+ * size is the number of rows and columns of every puzzle (400 by default), puzzles the number of puzzles
+ * solved per run (4 by default) and maxThreads the most threads tried (every available processor by default).
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class TentSolverBenchmark {
+
+    private static final int WARMUP_RUNS = 5; //runs before measuring, so the JIT has compiled the solver
+    private static final int RUNS = 11; //measured runs, the median is reported
+
+    /**
+     * Solve every puzzle once and return how long that took
+     * @param puzzles the puzzles to solve
+     * @param pool the pool to solve them in, null to use the sequential solver
+     * @return long, the time in nanoseconds
+     */
+    private static long run(TentTree[] puzzles, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        for (TentTree puzzle : puzzles) {
+            TentSolver.Result result = (pool == null) ? TentSolver.solve(puzzle) : TentSolver.solveParallel(puzzle, pool);
+            if (!result.isSolved()) { //the random puzzles always have a solution
+                throw new IllegalStateException("puzzle was not solved: " + result);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return long, the median time of RUNS runs after WARMUP_RUNS warm-up runs
+     */
+    private static long median(TentTree[] puzzles, ForkJoinPool pool) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(puzzles, pool);
+        }
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            times[i] = run(puzzles, pool);
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    public static void main(String[] args) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 400;
+        int count = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int maxThreads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        TentTree[] puzzles = new TentTree[count];
+        for (int i = 0; i < count; i++) {
+            puzzles[i] = TentSolver.randomPuzzle(size, size, i);
+        }
+        System.out.println(count + " puzzles of " + size + "x" + size + ", "
+                + Runtime.getRuntime().availableProcessors() + " processors available");
+
+        long sequential = median(puzzles, null);
+        System.out.printf("%-12s %10.2f ms%n", "sequential", sequential / 1e6);
+        for (int threads = 1; threads <= maxThreads; threads = (threads == maxThreads) ? threads + 1 : Math.min(2 * threads, maxThreads)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long time = median(puzzles, pool);
+            pool.shutdown();
+            System.out.printf("%-12s %10.2f ms %6.2fx%n", threads + " threads", time / 1e6, (double)sequential / time);
+        }
+    }
+}
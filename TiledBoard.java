@@ -0,0 +1,468 @@
+/**
+ * TiledBoard.java
+ * A board storage for very large boards which splits the board into tiles of 64x64 cells.
+ * Every tile is a small BitBoard (one long per row of the tile, for trees and for tents, 1 KB in all) and only
+ * the tiles holding a tree or a tent exist: they are kept in an open addressing hash table keyed by their
+ * packed <tile row, tile col>, like the cells of a BoardMap. A tile is freed when its last cell is emptied.
+ * A board with clusters of trees and tents costs about 2 bits per cell of its clusters, and nothing for the
+ * empty parts, so boards of 10^5 x 10^5 cells and more can be played.
+ * The neighbors of a cell are in its own tile unless the cell is on the edge of the tile, then at most the
+ * adjacent tiles are fetched. The last tile used is remembered, so walking along a row fetches every tile once.
+ * statusCounts() counts each tile on its own, from its words and the edge words of the tiles around it.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+class TiledBoard implements BoardStorage {
+
+    static final int SHIFT = 6;
+    static final int TILE = 1 << SHIFT; //rows and columns of a tile
+    private static final double MAX_LOAD = 0.6; //grow the table of tiles once it is more than 60% full
+
+    // 3-bit patterns over the columns <col-1, col, col+1> of one row, as in BitBoard
+    private static final int CENTER = 2;
+    private static final int SIDES = 5;
+    private static final int ALL = 7;
+
+    /**
+     * A 64x64 tile, bit c of word r is the cell <64*tileRow + r, 64*tileCol + c>
+     */
+    private static final class Tile {
+        final long[] trees = new long[TILE];
+        final long[] tents = new long[TILE];
+        int size; //number of occupied cells of the tile
+
+        long[] plane(byte code) {
+            return (code == TREE) ? this.trees : this.tents;
+        }
+    }
+
+    private final int numRows, numCols;
+    private long[] keys;  //packed <tile row, tile col> of every slot holding a tile
+    private Tile[] tiles; //the tile of every slot, null if the slot is free
+    private int mask;     //table length - 1, the table length is always a power of two
+    private int numTiles; //number of tiles
+    private int size;     //number of occupied cells
+
+    private long lastKey = -1; //the tile found by the last lookup, no tile has the key -1
+    private Tile lastTile;
+
+    /**
+     * Create an empty board
+     * @param numRows number of rows of the board
+     * @param numCols number of columns of the board
+     */
+    public TiledBoard(int numRows, int numCols) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.keys = new long[16];
+        this.tiles = new Tile[16];
+        this.mask = 15;
+    }
+
+    public Kind kind() {
+        return Kind.TILED;
+    }
+
+    /**
+     * @return boolean, true if <row, col> is on the board
+     */
+    private boolean onBoard(int row, int col) {
+        return row >= 0 && row < this.numRows && col >= 0 && col < this.numCols;
+    }
+
+    /**
+     * Mix all of the bits of a tile key (the finalizer of MurmurHash3) and fold it into the table
+     */
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int)key & this.mask;
+    }
+
+    /**
+     * Return the tile <tileRow, tileCol>
+     * @return Tile, the tile or null if it holds nothing (or is off the board)
+     */
+    private Tile tile(int tileRow, int tileCol) {
+        // O(1) average case, no probe at all when it is the tile of the last lookup
+        if (tileRow < 0 || tileCol < 0) {
+            return null;
+        }
+        long key = BoardMap.key(tileRow, tileCol);
+        if (key == this.lastKey) {
+            return this.lastTile;
+        }
+        int i = slot(key);
+        while (this.tiles[i] != null && this.keys[i] != key) {
+            i = (i + 1) & this.mask;
+        }
+        this.lastKey = key;
+        this.lastTile = this.tiles[i];
+        return this.lastTile;
+    }
+
+    /**
+     * @return Tile, the tile holding the cell <row, col>, or null
+     */
+    private Tile tileOf(int row, int col) {
+        return tile(row >> SHIFT, col >> SHIFT);
+    }
+
+    public byte get(int row, int col) {
+        // O(1) average case
+        if (!onBoard(row, col)) {
+            return EMPTY;
+        }
+        Tile t = tileOf(row, col);
+        if (t == null) {
+            return EMPTY;
+        }
+        int r = row & (TILE - 1);
+        long bit = 1L << col; //shifts only use the low 6 bits of col
+        if ((t.trees[r] & bit) != 0) {
+            return TREE;
+        }
+        else if ((t.tents[r] & bit) != 0) {
+            return TENT;
+        }
+        else {
+            return EMPTY;
+        }
+    }
+
+    public boolean add(int row, int col, byte code) {
+        // O(1) amortized, allocates 1 KB when the cell is the first of its tile
+        if (code != TREE && code != TENT) {
+            throw new IllegalArgumentException("cannot store symbol code " + code);
+        }
+        if (!onBoard(row, col)) {
+            throw new IndexOutOfBoundsException("<" + row + "," + col + "> is not on the board");
+        }
+        Tile t = tileOf(row, col);
+        if (t == null) {
+            t = newTile(BoardMap.key(row >> SHIFT, col >> SHIFT));
+        }
+        int r = row & (TILE - 1);
+        long bit = 1L << col;
+        if (((t.trees[r] | t.tents[r]) & bit) != 0) { //the cell is already occupied
+            return false;
+        }
+        t.plane(code)[r] |= bit;
+        t.size++;
+        this.size++;
+        return true;
+    }
+
+    public boolean remove(int row, int col) {
+        // O(1) average case
+        if (!onBoard(row, col)) {
+            return false;
+        }
+        Tile t = tileOf(row, col);
+        int r = row & (TILE - 1);
+        long bit = 1L << col;
+        if (t == null || ((t.trees[r] | t.tents[r]) & bit) == 0) {
+            return false;
+        }
+        t.trees[r] &= ~bit;
+        t.tents[r] &= ~bit;
+        t.size--;
+        this.size--;
+        if (t.size == 0) {
+            removeTile(BoardMap.key(row >> SHIFT, col >> SHIFT));
+        }
+        return true;
+    }
+
+    /**
+     * Add an empty tile to the table
+     */
+    private Tile newTile(long key) {
+        if (this.numTiles + 1 > MAX_LOAD * this.tiles.length) {
+            grow();
+        }
+        Tile t = new Tile();
+        int i = slot(key);
+        while (this.tiles[i] != null) {
+            i = (i + 1) & this.mask;
+        }
+        this.keys[i] = key;
+        this.tiles[i] = t;
+        this.numTiles++;
+        this.lastKey = key;
+        this.lastTile = t;
+        return t;
+    }
+
+    /**
+     * Remove an empty tile, the tiles following it are shifted back like in BoardMap.remove()
+     */
+    private void removeTile(long key) {
+        int hole = slot(key);
+        while (this.keys[hole] != key || this.tiles[hole] == null) {
+            hole = (hole + 1) & this.mask;
+        }
+        int i = (hole + 1) & this.mask;
+        while (this.tiles[i] != null) {
+            int home = slot(this.keys[i]);
+            if (((i - home) & this.mask) >= ((i - hole) & this.mask)) {
+                this.keys[hole] = this.keys[i];
+                this.tiles[hole] = this.tiles[i];
+                hole = i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        this.tiles[hole] = null;
+        this.numTiles--;
+        this.lastKey = -1; //the remembered tile may be the removed one
+        this.lastTile = null;
+    }
+
+    /**
+     * Double the table of tiles
+     */
+    private void grow() {
+        long[] oldKeys = this.keys;
+        Tile[] oldTiles = this.tiles;
+        this.keys = new long[oldKeys.length * 2];
+        this.tiles = new Tile[oldTiles.length * 2];
+        this.mask = this.tiles.length - 1;
+        for (int j = 0; j < oldTiles.length; j++) {
+            if (oldTiles[j] != null) {
+                int i = slot(oldKeys[j]);
+                while (this.tiles[i] != null) {
+                    i = (i + 1) & this.mask;
+                }
+                this.keys[i] = oldKeys[j];
+                this.tiles[i] = oldTiles[j];
+            }
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return int, the number of tiles holding at least one tree or tent
+     */
+    public int numTiles() {
+        return this.numTiles;
+    }
+
+    /**
+     * Test the columns <col-1, col, col+1> of row r of a tile against a 3-bit pattern,
+     * col must not be on the left or right edge of the tile
+     */
+    private static boolean test(long[] plane, int r, int col, int pattern) {
+        return (plane[r] & ((long)pattern << ((col & (TILE - 1)) - 1))) != 0;
+    }
+
+    /**
+     * @return boolean, true if the cell is on the edge of its tile, so its neighbors may be in other tiles
+     */
+    private static boolean onEdge(int row, int col) {
+        int r = row & (TILE - 1), c = col & (TILE - 1);
+        return r == 0 || r == TILE - 1 || c == 0 || c == TILE - 1;
+    }
+
+    public boolean hasNbr(int row, int col, byte code) {
+        // O(1), 3 masked word tests inside a tile, 4 lookups on the edge of a tile
+        if ((code != TREE && code != TENT) || !onBoard(row, col)) {
+            return false;
+        }
+        if (onEdge(row, col)) {
+            return get(row - 1, col) == code || get(row + 1, col) == code
+                    || get(row, col - 1) == code || get(row, col + 1) == code;
+        }
+        Tile t = tileOf(row, col);
+        if (t == null) {
+            return false;
+        }
+        long[] plane = t.plane(code);
+        int r = row & (TILE - 1);
+        return test(plane, r - 1, col, CENTER) || test(plane, r, col, SIDES) || test(plane, r + 1, col, CENTER);
+    }
+
+    public boolean touching(int row, int col, byte code) {
+        // O(1), 3 masked word tests inside a tile, 8 lookups on the edge of a tile
+        if ((code != TREE && code != TENT) || !onBoard(row, col)) {
+            return false;
+        }
+        if (onEdge(row, col)) {
+            return hasNbr(row, col, code)
+                    || get(row - 1, col - 1) == code || get(row - 1, col + 1) == code
+                    || get(row + 1, col - 1) == code || get(row + 1, col + 1) == code;
+        }
+        Tile t = tileOf(row, col);
+        if (t == null) {
+            return false;
+        }
+        long[] plane = t.plane(code);
+        int r = row & (TILE - 1);
+        return test(plane, r - 1, col, ALL) || test(plane, r, col, SIDES) || test(plane, r + 1, col, ALL);
+    }
+
+    public void forEach(Visitor visitor) {
+        // O(T*64 + M) where T is the number of tiles and M = size returned by size()
+        Tile[] table = this.tiles;
+        long[] tileKeys = this.keys;
+        for (int j = 0; j < table.length; j++) {
+            Tile t = table[j];
+            if (t == null) {
+                continue;
+            }
+            int row0 = (int)(tileKeys[j] >> 32) << SHIFT, col0 = (int)tileKeys[j] << SHIFT;
+            for (int r = 0; r < TILE; r++) {
+                long bits = t.trees[r] | t.tents[r];
+                while (bits != 0) {
+                    int b = Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1; //clear the lowest set bit
+                    visitor.visit(row0 + r, col0 + b, (t.trees[r] & (1L << b)) != 0 ? TREE : TENT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Count what TentTree keeps its status counters of (see BitBoard.statusCounts()), 64 cells at a time.
+     * Every tile is counted on its own from its words and the edge words of the tiles to its left, right,
+     * above, below and diagonally below, which are fetched once per tile.
+     * @return int[], the number of trees, tents, pairs of touching tents, tents without an orthogonal tree
+     * and trees without an orthogonal tent
+     */
+    int[] statusCounts() {
+        // O(T*64) where T is the number of tiles
+        long[] counts = new long[5];
+        Tile[] table = this.tiles;
+        long[] tileKeys = this.keys;
+        for (int j = 0; j < table.length; j++) {
+            if (table[j] != null) {
+                countTile(table[j], (int)(tileKeys[j] >> 32), (int)tileKeys[j], counts);
+            }
+        }
+        return new int[]{(int)counts[0], (int)counts[1], (int)counts[2], (int)counts[3], (int)counts[4]};
+    }
+
+    private static final long[] NO_WORDS = new long[TILE];
+
+    private static long[] trees(Tile t) {
+        return (t == null) ? NO_WORDS : t.trees;
+    }
+
+    private static long[] tents(Tile t) {
+        return (t == null) ? NO_WORDS : t.tents;
+    }
+
+    /**
+     * Add the counts of one tile to counts (trees, tents, touching pairs, orphan tents, lonely trees),
+     * a pair of touching tents is counted from its left tent in one row and from its upper tent otherwise
+     */
+    private void countTile(Tile t, int tileRow, int tileCol, long[] counts) {
+        Tile up = tile(tileRow - 1, tileCol), down = tile(tileRow + 1, tileCol);
+        Tile left = tile(tileRow, tileCol - 1), right = tile(tileRow, tileCol + 1);
+        Tile downLeft = tile(tileRow + 1, tileCol - 1), downRight = tile(tileRow + 1, tileCol + 1);
+        for (int r = 0; r < TILE; r++) {
+            long tree = t.trees[r], tent = t.tents[r];
+            if ((tree | tent) == 0) {
+                continue;
+            }
+            counts[0] += Long.bitCount(tree);
+            counts[1] += Long.bitCount(tent);
+            long treeNbrs = vertical(t.trees, trees(up), trees(down), r)
+                    | shiftLeft(t.trees[r], trees(left)[r]) | shiftRight(t.trees[r], trees(right)[r]);
+            long tentNbrs = vertical(t.tents, tents(up), tents(down), r)
+                    | shiftLeft(t.tents[r], tents(left)[r]) | shiftRight(t.tents[r], tents(right)[r]);
+            counts[3] += Long.bitCount(tent & ~treeNbrs);
+            counts[4] += Long.bitCount(tree & ~tentNbrs);
+            counts[2] += Long.bitCount(tent & shiftRight(t.tents[r], tents(right)[r]));
+            long below, belowLeft, belowRight; //row r + 1 of the board, in this tile's columns and on both sides
+            if (r + 1 < TILE) {
+                below = t.tents[r + 1]; belowLeft = tents(left)[r + 1]; belowRight = tents(right)[r + 1];
+            }
+            else {
+                below = tents(down)[0]; belowLeft = tents(downLeft)[0]; belowRight = tents(downRight)[0];
+            }
+            counts[2] += Long.bitCount(tent & below) + Long.bitCount(tent & shiftLeft(below, belowLeft))
+                    + Long.bitCount(tent & shiftRight(below, belowRight));
+        }
+    }
+
+    /**
+     * @return long, the cells of row r with a set cell right above or below, in the rows of this tile or its neighbors
+     */
+    private static long vertical(long[] plane, long[] up, long[] down, int r) {
+        return ((r > 0) ? plane[r - 1] : up[TILE - 1]) | ((r + 1 < TILE) ? plane[r + 1] : down[0]);
+    }
+
+    /**
+     * @return long, word shifted so that bit b tells whether column b-1 is set, the left tile's last column at bit 0
+     */
+    private static long shiftLeft(long word, long leftWord) {
+        return (word << 1) | (leftWord >>> 63);
+    }
+
+    /**
+     * @return long, word shifted so that bit b tells whether column b+1 is set, the right tile's first column at bit 63
+     */
+    private static long shiftRight(long word, long rightWord) {
+        return (word >>> 1) | (rightWord << 63);
+    }
+
+    //----------------------------------------------------
+    // example testing code... edit this as much as you want!
+
+    public static void main(String[] args) {
+        TiledBoard board = new TiledBoard(100000, 100000);
+        if (board.add(99999, 99999, TREE) && !board.add(99999, 99999, TENT) && board.get(99999, 99999) == TREE
+                && board.get(0, 0) == EMPTY && board.get(100000, 0) == EMPTY && board.numTiles() == 1
+                && board.remove(99999, 99999) && board.numTiles() == 0 && board.size() == 0) {
+            System.out.println("Yay 1");
+        }
+
+        // neighbors across the corners of four tiles
+        board.add(63, 63, TREE);
+        board.add(64, 64, TENT);
+        if (board.touching(63, 63, TENT) && board.touching(64, 64, TREE) && !board.hasNbr(63, 63, TENT)
+                && board.hasNbr(63, 64, TREE) && board.hasNbr(64, 63, TENT) && board.hasNbr(64, 63, TREE)
+                && !board.touching(62, 62, TENT) && board.numTiles() == 2) {
+            System.out.println("Yay 2");
+        }
+
+        // random cells: every query and the status counts agree with a BitBoard of the same board
+        java.util.Random random = new java.util.Random(20);
+        int n = 300;
+        TiledBoard tiled = new TiledBoard(n, n);
+        BitBoard bits = new BitBoard(n, n);
+        boolean same = true;
+        for (int i = 0; i < 30000; i++) {
+            int row = random.nextInt(n), col = random.nextInt(n);
+            if (random.nextInt(3) == 0) {
+                same &= tiled.remove(row, col) == bits.remove(row, col);
+            }
+            else {
+                byte code = random.nextBoolean() ? TREE : TENT;
+                same &= tiled.add(row, col, code) == bits.add(row, col, code);
+            }
+        }
+        for (int row = -1; row <= n; row++) {
+            for (int col = -1; col <= n; col++) {
+                same &= tiled.get(row, col) == bits.get(row, col)
+                        && tiled.hasNbr(row, col, TREE) == bits.hasNbr(row, col, TREE)
+                        && tiled.touching(row, col, TENT) == bits.touching(row, col, TENT);
+            }
+        }
+        final int[] visited = {0};
+        tiled.forEach((row, col, code) -> visited[0] += (bits.get(row, col) == code) ? 1 : 0);
+        if (same && visited[0] == bits.size() && tiled.size() == bits.size()
+                && java.util.Arrays.equals(tiled.statusCounts(), bits.statusCounts())) {
+            System.out.println("Yay 3");
+        }
+    }
+}
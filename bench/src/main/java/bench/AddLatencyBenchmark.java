@@ -0,0 +1,63 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AddLatencyBenchmark.java
+ * The time of single HashTable.add() calls into a growing chained table, sampled so that the percentiles
+ * show the calls which had to grow the table: size new Positions are added, then the table starts over empty.
+ * With incremental=false a growing add() rehashes the whole table, with incremental=true it only moves a few chains.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddLatencyBenchmark {
+
+    @Param({"false", "true"})
+    public boolean incremental;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private Object[] keys;
+    private Object kind;
+    private Object table;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        this.keys = Keys.shuffle(Keys.positions(this.size, 0), 1);
+        this.kind = Handles.tableKind("CHAINED");
+        this.next = this.size; //start with a new table
+    }
+
+    @Benchmark
+    public boolean add() throws Throwable {
+        if (this.next == this.size) {
+            this.table = (Object)Handles.NEW_TABLE_INCREMENTAL.invokeExact(this.kind, 0.7, this.incremental);
+            this.next = 0;
+        }
+        return (boolean)Handles.TABLE_ADD.invokeExact(this.table, this.keys[this.next++]);
+    }
+}
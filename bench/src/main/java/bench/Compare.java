@@ -0,0 +1,202 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare.java
+ * Compares two JSON result files written by Run and prints every benchmark with both scores.
+ * A benchmark whose average time grew by more than the threshold (10% by default) is marked as a regression,
+ * and the exit status is 1 if there is at least one, so the comparison can fail a build.
+ * Usage: java -cp target/benchmarks.jar bench.Compare BASELINE.json CURRENT.json [THRESHOLD_PERCENT]
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+public final class Compare {
+
+    private Compare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java -cp benchmarks.jar bench.Compare BASELINE.json CURRENT.json [THRESHOLD_PERCENT]");
+            return;
+        }
+        double threshold = (args.length > 2) ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, Double> baseline = scores(args[0]);
+        Map<String, Double> current = scores(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-60s %14s %14.3f  new%n", entry.getKey(), "-", entry.getValue());
+                continue;
+            }
+            double change = (entry.getValue() - before) / before;
+            boolean regression = change > threshold; //scores are times, larger is slower
+            regressions += regression ? 1 : 0;
+            System.out.printf("%-60s %14.3f %14.3f %+7.1f%%%s%n", entry.getKey(), before, entry.getValue(),
+                    change * 100, regression ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions + " regression(s) above " + (threshold * 100) + "%");
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read the score of every benchmark in a JMH JSON result file
+     * @param fileName the result file
+     * @return Map, "benchmark size=N" to its score, in file order
+     */
+    static Map<String, Double> scores(String fileName) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (Object run : (List<?>)new Json(json).value()) {
+            Map<?, ?> fields = (Map<?, ?>)run;
+            StringBuilder name = new StringBuilder((String)fields.get("benchmark"));
+            Object params = fields.get("params");
+            if (params instanceof Map) {
+                for (Map.Entry<?, ?> param : ((Map<?, ?>)params).entrySet()) {
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue());
+                }
+            }
+            Map<?, ?> metric = (Map<?, ?>)fields.get("primaryMetric");
+            scores.put(name.toString(), ((Number)metric.get("score")).doubleValue());
+        }
+        return scores;
+    }
+
+    /**
+     * A small JSON reader, just enough for the files JMH writes:
+     * objects become a LinkedHashMap, arrays a List, numbers a Double and "NaN" stays a String
+     */
+    static final class Json {
+        private final String text;
+        private int pos;
+
+        Json(String text) {
+            this.text = text;
+        }
+
+        Object value() {
+            skipSpace();
+            char c = this.text.charAt(this.pos);
+            switch (c) {
+                case '{': return object();
+                case '[': return array();
+                case '"': return string();
+                case 't': return literal("true", Boolean.TRUE);
+                case 'f': return literal("false", Boolean.FALSE);
+                case 'n': return literal("null", null);
+                default: return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            this.pos++; // {
+            skipSpace();
+            if (this.text.charAt(this.pos) == '}') {
+                this.pos++;
+                return map;
+            }
+            while (true) {
+                skipSpace();
+                String key = string();
+                skipSpace();
+                expect(':');
+                map.put(key, value());
+                skipSpace();
+                if (this.text.charAt(this.pos++) == '}') {
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            this.pos++; // [
+            skipSpace();
+            if (this.text.charAt(this.pos) == ']') {
+                this.pos++;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipSpace();
+                if (this.text.charAt(this.pos++) == ']') {
+                    return list;
+                }
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder s = new StringBuilder();
+            char c;
+            while ((c = this.text.charAt(this.pos++)) != '"') {
+                if (c == '\\') {
+                    c = this.text.charAt(this.pos++);
+                    switch (c) {
+                        case 'n': s.append('\n'); break;
+                        case 't': s.append('\t'); break;
+                        case 'r': s.append('\r'); break;
+                        case 'b': s.append('\b'); break;
+                        case 'f': s.append('\f'); break;
+                        case 'u':
+                            s.append((char)Integer.parseInt(this.text.substring(this.pos, this.pos + 4), 16));
+                            this.pos += 4;
+                            break;
+                        default: s.append(c); // " \ /
+                    }
+                }
+                else {
+                    s.append(c);
+                }
+            }
+            return s.toString();
+        }
+
+        private Object number() {
+            int start = this.pos;
+            while (this.pos < this.text.length() && "+-0123456789.eE".indexOf(this.text.charAt(this.pos)) >= 0) {
+                this.pos++;
+            }
+            if (start == this.pos) {
+                throw new IllegalArgumentException("unexpected '" + this.text.charAt(this.pos) + "' at " + this.pos);
+            }
+            return Double.parseDouble(this.text.substring(start, this.pos));
+        }
+
+        private Object literal(String word, Object value) {
+            if (!this.text.startsWith(word, this.pos)) {
+                throw new IllegalArgumentException("unexpected text at " + this.pos);
+            }
+            this.pos += word.length();
+            return value;
+        }
+
+        private void expect(char c) {
+            if (this.text.charAt(this.pos++) != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at " + (this.pos - 1));
+            }
+        }
+
+        private void skipSpace() {
+            while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos))) {
+                this.pos++;
+            }
+        }
+    }
+}
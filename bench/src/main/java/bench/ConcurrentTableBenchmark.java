@@ -0,0 +1,75 @@
+package bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ConcurrentTableBenchmark.java
+ * Throughput of a table shared by every benchmark thread: 80% contains(), 10% add() and 10% remove() of random
+ * Positions, half of which are in the table. SYNCHRONIZED is a HashTable with every call in a synchronized block
+ * on the table, STRIPED is a StripedHashTable. Run it with "-t 1", "-t 2", "-t 4" ... to see how it scales.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentTableBenchmark {
+
+    @Param({"SYNCHRONIZED", "STRIPED"})
+    public String kind;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private Object[] keys; //2 * size keys, the first size of them are added before the run
+    private Object table;
+    private boolean striped;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        this.keys = Keys.shuffle(Keys.positions(2 * this.size, 0), 1);
+        this.striped = this.kind.equals("STRIPED");
+        this.table = this.striped ? (Object)Handles.NEW_STRIPED.invokeExact() : (Object)Handles.NEW_TABLE.invokeExact();
+        for (int i = 0; i < this.size; i++) {
+            boolean added = this.striped ? (boolean)Handles.STRIPED_ADD.invokeExact(this.table, this.keys[i])
+                    : (boolean)Handles.TABLE_ADD.invokeExact(this.table, this.keys[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean mixed() throws Throwable {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Object key = this.keys[random.nextInt(this.keys.length)];
+        int op = random.nextInt(10);
+        if (this.striped) {
+            return (op < 8) ? (boolean)Handles.STRIPED_CONTAINS.invokeExact(this.table, key)
+                    : (op == 8) ? (boolean)Handles.STRIPED_ADD.invokeExact(this.table, key)
+                    : (boolean)Handles.STRIPED_REMOVE.invokeExact(this.table, key);
+        }
+        synchronized (this.table) {
+            return (op < 8) ? (boolean)Handles.TABLE_CONTAINS.invokeExact(this.table, key)
+                    : (op == 8) ? (boolean)Handles.TABLE_ADD.invokeExact(this.table, key)
+                    : (boolean)Handles.TABLE_REMOVE.invokeExact(this.table, key);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.BiFunction;
+
+/**
+ * Handles.java
+ * Method handles to the classes of the project. Those classes are in the default package, which JMH
+ * does not allow for benchmarks and which cannot be imported from a named package, so the benchmarks
+ * call them through these handles instead. Every handle is a static final field with Object in place of the
+ * project's types, so invokeExact() calls are inlined by the JIT like a direct call would be.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+final class Handles {
+
+    // Position
+    static final MethodHandle NEW_POSITION = constructor("Position", int.class, int.class);
+    static final MethodHandle POSITION_HASH = virtual("Position", "hashCode", int.class);
+    static final MethodHandle POSITION_EQUALS = virtual("Position", "equals", boolean.class, Object.class);
+
+    // SimpleList
+    static final MethodHandle NEW_LIST = constructor("SimpleList");
+    static final MethodHandle LIST_ADD = virtual("SimpleList", "add", void.class, Object.class);
+    static final MethodHandle LIST_CONTAINS = virtual("SimpleList", "contains", boolean.class, Object.class);
+
+    // HashTable
+    static final MethodHandle NEW_TABLE = constructor("HashTable");
+    static final MethodHandle NEW_TABLE_OF_KIND = constructor("HashTable", type("HashTable$Kind"), double.class);
+    static final MethodHandle NEW_TABLE_INCREMENTAL = constructor("HashTable", type("HashTable$Kind"), double.class,
+            boolean.class);
+    static final MethodHandle TABLE_ADD = virtual("HashTable", "add", boolean.class, Object.class);
+    static final MethodHandle TABLE_CONTAINS = virtual("HashTable", "contains", boolean.class, Object.class);
+    static final MethodHandle TABLE_REMOVE = virtual("HashTable", "remove", boolean.class, Object.class);
+    static final MethodHandle TABLE_REHASH = virtual("HashTable", "rehash", boolean.class, int.class);
+    static final MethodHandle TABLE_NEXT_PRIME = virtual("HashTable", "nextPrime", int.class, int.class);
+    static final MethodHandle TABLE_LOAD = virtual("HashTable", "getLoad", double.class);
+
+    // StripedHashTable
+    static final MethodHandle NEW_STRIPED = constructor("StripedHashTable");
+    static final MethodHandle STRIPED_ADD = virtual("StripedHashTable", "add", boolean.class, Object.class);
+    static final MethodHandle STRIPED_CONTAINS = virtual("StripedHashTable", "contains", boolean.class, Object.class);
+    static final MethodHandle STRIPED_REMOVE = virtual("StripedHashTable", "remove", boolean.class, Object.class);
+
+    // HashMap
+    static final MethodHandle NEW_MAP = constructor("HashMap");
+    static final MethodHandle MAP_ADD = virtual("HashMap", "add", boolean.class, Object.class, Object.class);
+    static final MethodHandle MAP_HAS = virtual("HashMap", "has", boolean.class, Object.class, Object.class);
+    static final MethodHandle MAP_GET = virtual("HashMap", "getValue", Object.class, Object.class);
+    static final MethodHandle MAP_UPDATE = virtual("HashMap", "update", boolean.class, Object.class, Object.class);
+    static final MethodHandle MAP_GET_OR_NULL = virtual("HashMap", "getOrNull", Object.class, Object.class);
+    static final MethodHandle MAP_MERGE = virtual("HashMap", "merge", Object.class, Object.class, Object.class,
+            BiFunction.class);
+
+    // TentTree and PA2
+    static final MethodHandle NEW_BOARD = constructor("TentTree", int.class, int.class);
+    static final MethodHandle BOARD_ADD_TREE = virtual("TentTree", "addTree", boolean.class, type("Position"));
+    static final MethodHandle BOARD_ADD_TENT = virtual("TentTree", "addTent", boolean.class, type("Position"));
+    static final MethodHandle BOARD_TOUCHING = virtual("TentTree", "posTouching", boolean.class, type("Position"), String.class);
+    static final MethodHandle BOARD_TO_STRING = virtual("TentTree", "toString", String.class);
+    static final MethodHandle INIT_GAME = staticMethod("PA2", "initGame", void.class, String.class);
+
+    private Handles() {
+    }
+
+    /**
+     * @return Class, the project class with that name
+     */
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalStateException("project class " + name + " is missing", e);
+        }
+    }
+
+    /**
+     * @param name a constant of HashTable.Kind
+     * @return Object, the constant
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object tableKind(String name) {
+        return Enum.valueOf((Class)type("HashTable$Kind"), name);
+    }
+
+    /**
+     * @return MethodHandles.Lookup, a lookup which may use the package-private class
+     */
+    private static MethodHandles.Lookup lookup(Class<?> c) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+    }
+
+    /**
+     * @return MethodHandle, the constructor of the class, returning Object
+     */
+    private static MethodHandle constructor(String name, Class<?>... params) {
+        try {
+            Class<?> c = type(name);
+            return erase(lookup(c).findConstructor(c, MethodType.methodType(void.class, params)));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("no constructor of " + name, e);
+        }
+    }
+
+    /**
+     * @return MethodHandle, the instance method taking the receiver as Object and project types as Object
+     */
+    private static MethodHandle virtual(String name, String method, Class<?> result, Class<?>... params) {
+        try {
+            Class<?> c = type(name);
+            return erase(lookup(c).findVirtual(c, method, MethodType.methodType(result, params)));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("no method " + name + "." + method, e);
+        }
+    }
+
+    /**
+     * @return MethodHandle, the static method taking project types as Object
+     */
+    private static MethodHandle staticMethod(String name, String method, Class<?> result, Class<?>... params) {
+        try {
+            Class<?> c = type(name);
+            return erase(lookup(c).findStatic(c, method, MethodType.methodType(result, params)));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("no method " + name + "." + method, e);
+        }
+    }
+
+    /**
+     * Replace every project type in the type of the handle by Object, primitives and JDK types are kept
+     * @return MethodHandle, the handle adapted to the erased type
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isProjectType(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isProjectType(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isProjectType(Class<?> c) {
+        return !c.isPrimitive() && c.getPackageName().isEmpty();
+    }
+}
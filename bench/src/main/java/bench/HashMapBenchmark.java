@@ -0,0 +1,90 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HashMapBenchmark.java
+ * HashMap<Position, Integer> holding size entries: has(), getValue(), getOrNull(), update() and merge()
+ * of present keys.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashMapBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Object[] keys;     //keys in the map, shuffled
+    private Integer[] values;  //value of keys[i] in the map
+    private Object map;
+    private static final BiFunction<Object, Object, Object> KEEP = (old, value) -> old; //merge() without a change
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        this.keys = Keys.shuffle(Keys.positions(this.size, 0), 1);
+        this.values = new Integer[this.size];
+        this.map = (Object)Handles.NEW_MAP.invokeExact();
+        for (int i = 0; i < this.size; i++) {
+            this.values[i] = i;
+            boolean added = (boolean)Handles.MAP_ADD.invokeExact(this.map, this.keys[i], (Object)this.values[i]);
+        }
+    }
+
+    private int next() {
+        int i = this.next;
+        this.next = (i + 1 == this.size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public boolean has() throws Throwable {
+        int i = next();
+        return (boolean)Handles.MAP_HAS.invokeExact(this.map, this.keys[i], (Object)this.values[i]);
+    }
+
+    @Benchmark
+    public Object getValue() throws Throwable {
+        return (Object)Handles.MAP_GET.invokeExact(this.map, this.keys[next()]);
+    }
+
+    @Benchmark
+    public boolean update() throws Throwable {
+        int i = next();
+        return (boolean)Handles.MAP_UPDATE.invokeExact(this.map, this.keys[i], (Object)this.values[i]);
+    }
+
+    @Benchmark
+    public Object getOrNull() throws Throwable {
+        return (Object)Handles.MAP_GET_OR_NULL.invokeExact(this.map, this.keys[next()]);
+    }
+
+    @Benchmark
+    public Object merge() throws Throwable {
+        int i = next();
+        return (Object)Handles.MAP_MERGE.invokeExact(this.map, this.keys[i], (Object)this.values[i], KEEP);
+    }
+}
@@ -0,0 +1,105 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HashTableBenchmark.java
+ * HashTable<Position> holding size Positions: lookups of present and absent keys, adding and removing a key
+ * (each paired with the opposite operation so the table keeps its size), rehashing, and filling a new table.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashTableBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Object[] present; //keys in the table, shuffled
+    private Object[] absent;  //keys never in the table
+    private Object table;
+    private int next;         //index of the next key to use
+    private int[] capacities; //two capacities the rehash benchmark switches between
+    private int flip;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        this.present = Keys.positions(this.size, 0);
+        this.absent = Keys.shuffle(Keys.positions(this.size, Keys.side(this.size) + 1), 2);
+        this.table = fill(this.present);
+        Keys.shuffle(this.present, 1);
+        int first = (int)Handles.TABLE_NEXT_PRIME.invokeExact(this.table, 2 * this.size);
+        int second = (int)Handles.TABLE_NEXT_PRIME.invokeExact(this.table, first + 1);
+        this.capacities = new int[]{first, second};
+    }
+
+    private static Object fill(Object[] keys) throws Throwable {
+        Object table = (Object)Handles.NEW_TABLE.invokeExact();
+        for (Object key : keys) {
+            boolean added = (boolean)Handles.TABLE_ADD.invokeExact(table, key);
+        }
+        return table;
+    }
+
+    private int next() {
+        int i = this.next;
+        this.next = (i + 1 == this.size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public boolean contains() throws Throwable {
+        return (boolean)Handles.TABLE_CONTAINS.invokeExact(this.table, this.present[next()]);
+    }
+
+    @Benchmark
+    public boolean containsAbsent() throws Throwable {
+        return (boolean)Handles.TABLE_CONTAINS.invokeExact(this.table, this.absent[next()]);
+    }
+
+    @Benchmark
+    public boolean addThenRemove() throws Throwable {
+        Object key = this.absent[next()];
+        boolean added = (boolean)Handles.TABLE_ADD.invokeExact(this.table, key);
+        return added & (boolean)Handles.TABLE_REMOVE.invokeExact(this.table, key);
+    }
+
+    @Benchmark
+    public boolean removeThenAdd() throws Throwable {
+        Object key = this.present[next()];
+        boolean removed = (boolean)Handles.TABLE_REMOVE.invokeExact(this.table, key);
+        return removed & (boolean)Handles.TABLE_ADD.invokeExact(this.table, key);
+    }
+
+    @Benchmark
+    public boolean rehash() throws Throwable {
+        this.flip ^= 1;
+        return (boolean)Handles.TABLE_REHASH.invokeExact(this.table, this.capacities[this.flip]);
+    }
+
+    @Benchmark
+    public Object fill() throws Throwable {
+        return fill(this.present);
+    }
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * Keys.java
+ * Builds the Positions the benchmarks use as keys.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+final class Keys {
+
+    private Keys() {
+    }
+
+    /**
+     * @return int, the side of the smallest square board with at least cells cells
+     */
+    static int side(long cells) {
+        return (int)Math.ceil(Math.sqrt((double)cells));
+    }
+
+    /**
+     * Create n different Positions filling a square row by row, starting at row firstRow
+     * @param n the number of positions
+     * @param firstRow row of the first position, use different rows for keys which must not be present
+     * @return Object[], the positions
+     */
+    static Object[] positions(int n, int firstRow) throws Throwable {
+        int side = side(n);
+        Object[] keys = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (Object)Handles.NEW_POSITION.invokeExact(firstRow + i / side, i % side);
+        }
+        return keys;
+    }
+
+    /**
+     * Shuffle the keys, so that walking through them does not follow the order they were added in
+     */
+    static Object[] shuffle(Object[] keys, long seed) {
+        Random random = new Random(seed);
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Object key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,88 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LoadFactorBenchmark.java
+ * The chained and the Robin Hood HashTable side by side: size Positions are added and the table is then
+ * rehashed to the prime capacity which gives it the wanted load, from 0.5 to 0.9.
+ * Both tables are created with a largest load of 0.95 so that rehash() accepts every load.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadFactorBenchmark {
+
+    @Param({"CHAINED", "ROBIN_HOOD"})
+    public String kind;
+
+    @Param({"0.5", "0.6", "0.7", "0.8", "0.9"})
+    public double load;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private Object[] present; //keys in the table, shuffled
+    private Object[] absent;  //keys never in the table
+    private Object table;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        this.present = Keys.positions(this.size, 0);
+        this.absent = Keys.shuffle(Keys.positions(this.size, Keys.side(this.size) + 1), 2);
+        this.table = (Object)Handles.NEW_TABLE_OF_KIND.invokeExact(Handles.tableKind(this.kind), 0.95);
+        for (Object key : this.present) {
+            boolean added = (boolean)Handles.TABLE_ADD.invokeExact(this.table, key);
+        }
+        Keys.shuffle(this.present, 1);
+        int capacity = (int)Handles.TABLE_NEXT_PRIME.invokeExact(this.table, (int)Math.ceil(this.size / this.load));
+        if (!(boolean)Handles.TABLE_REHASH.invokeExact(this.table, capacity)) {
+            throw new IllegalStateException("cannot rehash to a load of " + this.load);
+        }
+    }
+
+    private int next() {
+        int i = this.next;
+        this.next = (i + 1 == this.size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public boolean contains() throws Throwable {
+        return (boolean)Handles.TABLE_CONTAINS.invokeExact(this.table, this.present[next()]);
+    }
+
+    @Benchmark
+    public boolean containsAbsent() throws Throwable {
+        return (boolean)Handles.TABLE_CONTAINS.invokeExact(this.table, this.absent[next()]);
+    }
+
+    @Benchmark
+    public boolean addThenRemove() throws Throwable {
+        Object key = this.absent[next()];
+        boolean added = (boolean)Handles.TABLE_ADD.invokeExact(this.table, key);
+        return added & (boolean)Handles.TABLE_REMOVE.invokeExact(this.table, key);
+    }
+}
@@ -0,0 +1,73 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PositionBenchmark.java
+ * Position.hashCode() and equals() over size different Positions, so the larger sizes also show
+ * what the Positions cost in cache misses.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Object[] positions; //shuffled
+    private Object[] copies;    //copies[i] equals positions[i] but is a different object
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        this.positions = Keys.positions(this.size, 0);
+        this.copies = Keys.positions(this.size, 0);
+        Keys.shuffle(this.positions, 1);
+        Keys.shuffle(this.copies, 1);
+    }
+
+    private int next() {
+        int i = this.next;
+        this.next = (i + 1 == this.size) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public int hashCode_() throws Throwable {
+        return (int)Handles.POSITION_HASH.invokeExact(this.positions[next()]);
+    }
+
+    @Benchmark
+    public boolean equalsSame() throws Throwable {
+        int i = next();
+        return (boolean)Handles.POSITION_EQUALS.invokeExact(this.positions[i], this.copies[i]);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() throws Throwable {
+        int i = next();
+        return (boolean)Handles.POSITION_EQUALS.invokeExact(this.positions[i], this.copies[this.size - 1 - i]);
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SimpleListBenchmark.java
+ * SimpleList<Integer> of size values: building the whole list with add(), and contains() of a value
+ * in the middle of the list and of a missing value (both walk the list, O(N)).
+ * add() alone is not measured, a list growing for a whole iteration would run out of memory.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleListBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Integer[] values;
+    private Object list;
+    private Integer middle;
+    private Integer missing;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        this.values = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.values[i] = i;
+        }
+        this.list = fill();
+        this.middle = this.size / 2;
+        this.missing = -1;
+    }
+
+    @Benchmark
+    public Object fill() throws Throwable {
+        Object list = (Object)Handles.NEW_LIST.invokeExact();
+        for (Integer value : this.values) {
+            Handles.LIST_ADD.invokeExact(list, (Object)value);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public boolean containsMiddle() throws Throwable {
+        return (boolean)Handles.LIST_CONTAINS.invokeExact(this.list, (Object)this.middle);
+    }
+
+    @Benchmark
+    public boolean containsMissing() throws Throwable {
+        return (boolean)Handles.LIST_CONTAINS.invokeExact(this.list, (Object)this.missing);
+    }
+}
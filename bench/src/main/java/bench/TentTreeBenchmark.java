@@ -0,0 +1,80 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TentTreeBenchmark.java
+ * A square TentTree of about size cells with random trees and tents on it: posTouching() of random
+ * positions and toString() of the whole board.
+ *
+ * @author Ali Malik
+ * Professor Zhong CS 310-001
+ * @since 03-18-2018
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TentTreeBenchmark {
+
+    private static final int PROBES = 1 << 16; //positions posTouching() walks through
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Object board;
+    private Object[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        int side = Keys.side(this.size);
+        Random random = new Random(1);
+        this.board = (Object)Handles.NEW_BOARD.invokeExact(side, side);
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int dice = random.nextInt(10); //about 20% trees and 10% tents
+                Object pos = (Object)Handles.NEW_POSITION.invokeExact(row, col);
+                if (dice < 2) {
+                    boolean added = (boolean)Handles.BOARD_ADD_TREE.invokeExact(this.board, pos);
+                }
+                else if (dice == 2) {
+                    boolean added = (boolean)Handles.BOARD_ADD_TENT.invokeExact(this.board, pos);
+                }
+            }
+        }
+        this.probes = new Object[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            this.probes[i] = (Object)Handles.NEW_POSITION.invokeExact(random.nextInt(side), random.nextInt(side));
+        }
+    }
+
+    @Benchmark
+    public boolean posTouching() throws Throwable {
+        Object pos = this.probes[this.next];
+        this.next = (this.next + 1) & (PROBES - 1);
+        return (boolean)Handles.BOARD_TOUCHING.invokeExact(this.board, pos, "O");
+    }
+
+    @Benchmark
+    public String toString_() throws Throwable {
+        return (String)Handles.BOARD_TO_STRING.invokeExact(this.board);
+    }
+}